@@ -0,0 +1,94 @@
+package com.spotify.backend.bench;
+
+import com.spotify.backend.model.Album;
+import com.spotify.backend.model.Artist;
+import com.spotify.backend.model.Playlist;
+import com.spotify.backend.model.PlaylistTrackBucket;
+import com.spotify.backend.model.Song;
+import com.spotify.backend.service.RankKeys;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic catalog for the benchmarks: artists, albums (ten per artist) and songs
+ * spread evenly across them, plus playlists built from the first songs, inline or as
+ * playlist_tracks buckets.
+ */
+public final class CatalogFixtures {
+
+    public final List<Artist> artists = new ArrayList<>();
+    public final List<Album> albums = new ArrayList<>();
+    public final List<Song> songs = new ArrayList<>();
+
+    public CatalogFixtures(int artistCount, int songCount) {
+        for (int i = 0; i < artistCount; i++) {
+            Artist artist = new Artist();
+            artist.setId(String.format("artist-%05d", i));
+            artist.setName("Artist " + i);
+            artist.setBio("Bio of artist " + i + ", long enough to look like a real one.");
+            artist.setGenre("Genre " + (i % 12));
+            artist.setPicture("https://cdn.example.com/artists/" + i + ".jpg");
+            artists.add(artist);
+
+            for (int j = 0; j < 10; j++) {
+                Album album = new Album();
+                album.setId(String.format("album-%05d-%02d", i, j));
+                album.setTitle("Album " + j + " by artist " + i);
+                album.setArtist_id(artist.getId());
+                album.setGenre(artist.getGenre());
+                album.setReleaseDate("2020-01-" + String.format("%02d", j + 1));
+                album.setCoverArt("https://cdn.example.com/albums/" + i + "-" + j + ".jpg");
+                albums.add(album);
+            }
+        }
+
+        for (int i = 0; i < songCount; i++) {
+            Album album = albums.get(i % albums.size());
+            Song song = new Song();
+            song.setId(String.format("song-%07d", i));
+            song.setTitle("Song " + i);
+            song.setArtist_id(album.getArtist_id());
+            song.setAlbum_id(album.getId());
+            song.setGenre(album.getGenre());
+            song.setDuration(180 + i % 120);
+            song.setFileUrl("/audio/" + i + ".mp3");
+            song.setPlayCount(i * 7L);
+            songs.add(song);
+        }
+    }
+
+    public Playlist playlist(String id, int size) {
+        Playlist playlist = new Playlist("Playlist " + id, "Benchmark playlist", "user-1", true, null);
+        playlist.setId(id);
+        for (int i = 0; i < size; i++) {
+            playlist.getSongIds().add(songs.get(i % songs.size()).getId());
+        }
+        return playlist;
+    }
+
+    /**
+     * Moves the playlist's songIds into buckets of bucketSize tracks, laid out the way
+     * PlaylistTrackStore writes them (seqs 1024 apart, evenly spaced ranks), and leaves the
+     * playlist bucketed: trackCount set, no inline songIds.
+     */
+    public List<PlaylistTrackBucket> bucketed(Playlist playlist, int bucketSize) {
+        List<String> songIds = playlist.getSongIds();
+        List<PlaylistTrackBucket> buckets = new ArrayList<>();
+        Instant addedAt = Instant.parse("2024-01-01T00:00:00Z");
+        for (int i = 0; i * bucketSize < songIds.size(); i++) {
+            List<String> chunk = songIds.subList(i * bucketSize, Math.min((i + 1) * bucketSize, songIds.size()));
+            List<String> ranks = RankKeys.evenlySpaced(chunk.size(), bucketSize);
+            List<PlaylistTrackBucket.Track> tracks = new ArrayList<>(chunk.size());
+            for (int j = 0; j < chunk.size(); j++) {
+                tracks.add(new PlaylistTrackBucket.Track(chunk.get(j), addedAt, ranks.get(j)));
+            }
+            buckets.add(new PlaylistTrackBucket(playlist.getId() + "-" + i, playlist.getId(), i * 1024,
+                    tracks.size(), tracks));
+        }
+        playlist.setTrackCount(songIds.size());
+        playlist.setSongIds(new ArrayList<>());
+        return buckets;
+    }
+}
@@ -0,0 +1,71 @@
+package com.spotify.backend.bench;
+
+import com.spotify.backend.config.RequestLog;
+import com.spotify.backend.model.Album;
+import com.spotify.backend.model.Artist;
+import com.spotify.backend.model.Playlist;
+import com.spotify.backend.model.PlaylistTrackBucket;
+import com.spotify.backend.model.Song;
+import com.spotify.backend.repository.AlbumRepository;
+import com.spotify.backend.repository.ArtistRepository;
+import com.spotify.backend.repository.PlaylistRepository;
+import com.spotify.backend.repository.SongRepository;
+import com.spotify.backend.service.AlbumService;
+import com.spotify.backend.service.ArtistService;
+import com.spotify.backend.service.CatalogCache;
+import com.spotify.backend.service.DashboardStatsService;
+import com.spotify.backend.service.InMemoryCatalogCacheStore;
+import com.spotify.backend.service.KeysetPaginator;
+import com.spotify.backend.service.PlayCountAccumulator;
+import com.spotify.backend.service.PlaylistService;
+import com.spotify.backend.service.PlaylistTrackStore;
+import com.spotify.backend.service.SongService;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+
+/**
+ * The catalog services wired by hand over in-memory repositories, in-memory track
+ * buckets and the in-memory catalog cache store, as Spring would wire them.
+ */
+final class CatalogServices {
+
+    final SongService songService;
+    final PlaylistService playlistService;
+    final RequestLog requestLog;
+
+    static final int BUCKET_SIZE = 200;
+    static final int PREVIEW_SIZE = 100;
+
+    CatalogServices(CatalogFixtures fixtures, List<Playlist> playlists) {
+        this(fixtures, playlists, List.of());
+    }
+
+    CatalogServices(CatalogFixtures fixtures, List<Playlist> playlists, List<PlaylistTrackBucket> buckets) {
+        // Near-cache TTL longer than any run so measurements see a warm cache
+        CatalogCache cache = new CatalogCache(new InMemoryCatalogCacheStore(), JsonMapper.builder().build(),
+                200_000, 3600, 3600);
+        KeysetPaginator paginator = new KeysetPaginator(null);
+
+        SongRepository songRepo = InMemoryRepository.of(SongRepository.class, fixtures.songs, Song::getId);
+        ArtistRepository artistRepo = InMemoryRepository.of(ArtistRepository.class, fixtures.artists, Artist::getId);
+        AlbumRepository albumRepo = InMemoryRepository.of(AlbumRepository.class, fixtures.albums, Album::getId);
+        PlaylistRepository playlistRepo = InMemoryRepository.of(PlaylistRepository.class, playlists, Playlist::getId);
+
+        requestLog = new RequestLog(8192, 0.0, "WARN", "WARN");
+        ArtistService artistService = new ArtistService(artistRepo, paginator, cache);
+        // Benchmarks only read; the Mongo-backed write paths (play flushes, dashboard totals) are never hit
+        DashboardStatsService dashboardStats = new DashboardStatsService(null, artistService);
+        songService = new SongService(songRepo, null, artistService,
+                new AlbumService(albumRepo, paginator, cache),
+                new PlayCountAccumulator(null, cache, dashboardStats), paginator, cache, dashboardStats);
+        // Only the track store's reads are exercised: inline playlists never reach its template,
+        // bucketed ones read windows and previews from the in-memory buckets
+        playlistService = new PlaylistService(playlistRepo, songRepo, songService, requestLog, paginator, cache, null,
+                new PlaylistTrackStore(new InMemoryTrackBuckets(buckets, PREVIEW_SIZE), BUCKET_SIZE, PREVIEW_SIZE, 12));
+    }
+
+    void close() throws InterruptedException {
+        requestLog.shutdown();
+    }
+}
@@ -0,0 +1,68 @@
+package com.spotify.backend.bench;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Map-backed stand-in for a Spring Data repository interface, so benchmarks measure our
+ * code rather than Mongo. Covers the id-based reads the hot paths use (findById,
+ * findAllById, existsById, findAll, count, save); anything else throws.
+ */
+public final class InMemoryRepository {
+
+    private InMemoryRepository() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <R, T> R of(Class<R> repositoryType, List<T> entities, Function<T, String> idOf) {
+        Map<String, T> store = new LinkedHashMap<>();
+        entities.forEach(entity -> store.put(idOf.apply(entity), entity));
+
+        return (R) Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType},
+                (proxy, method, args) -> invoke(repositoryType, store, idOf, method, args));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Object invoke(Class<?> type, Map<String, T> store, Function<T, String> idOf,
+                                     Method method, Object[] args) {
+        switch (method.getName()) {
+            case "findById":
+                return Optional.ofNullable(store.get((String) args[0]));
+            case "existsById":
+                return store.containsKey((String) args[0]);
+            case "findAllById": {
+                List<T> found = new ArrayList<>();
+                for (Object id : (Iterable<?>) args[0]) {
+                    T entity = store.get((String) id);
+                    if (entity != null) found.add(entity);
+                }
+                return found;
+            }
+            case "findAll":
+                if (args == null || args.length == 0) return new ArrayList<>(store.values());
+                break;
+            case "count":
+                return (long) store.size();
+            case "save": {
+                T entity = (T) args[0];
+                store.put(idOf.apply(entity), entity);
+                return entity;
+            }
+            case "toString":
+                return "InMemoryRepository(" + type.getSimpleName() + ")";
+            case "hashCode":
+                return System.identityHashCode(store);
+            case "equals":
+                return args[0] == store;
+            default:
+                break;
+        }
+        throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName() + " is not stubbed");
+    }
+}
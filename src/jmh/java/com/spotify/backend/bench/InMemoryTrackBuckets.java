@@ -0,0 +1,75 @@
+package com.spotify.backend.bench;
+
+import com.spotify.backend.model.PlaylistTrackBucket;
+import org.bson.Document;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * MongoTemplate stand-in holding playlist_tracks buckets in memory, so benchmarks measure
+ * PlaylistTrackStore's reads rather than Mongo. Answers the two read paths the benchmarks
+ * hit: the window stream (playlistId, seq >= start, by seq) and the previews aggregation
+ * (each playlist's buckets that start before its preview-size-th track). Anything else
+ * reaches the database factory, which throws.
+ */
+final class InMemoryTrackBuckets extends MongoTemplate {
+
+    // playlistId -> buckets in seq order
+    private final Map<String, List<PlaylistTrackBucket>> buckets;
+    private final int previewSize;
+
+    InMemoryTrackBuckets(List<PlaylistTrackBucket> buckets, int previewSize) {
+        super(noDatabase());
+        this.buckets = buckets.stream()
+                .sorted(Comparator.comparingInt(PlaylistTrackBucket::getSeq))
+                .collect(Collectors.groupingBy(PlaylistTrackBucket::getPlaylistId));
+        this.previewSize = previewSize;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Stream<T> stream(Query query, Class<T> entityType) {
+        Document filter = query.getQueryObject();
+        int start = ((Document) filter.get("seq")).getInteger("$gte");
+        return (Stream<T>) buckets.getOrDefault(filter.getString("playlistId"), List.of()).stream()
+                .filter(bucket -> bucket.getSeq() >= start);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <O> AggregationResults<O> aggregate(Aggregation aggregation, Class<?> inputType, Class<O> outputType) {
+        Document match = aggregation.toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$match", Document.class);
+        List<O> leading = new ArrayList<>();
+        for (Object playlistId : (Collection<?>) ((Document) match.get("playlistId")).get("$in")) {
+            int before = 0;
+            for (PlaylistTrackBucket bucket : buckets.getOrDefault((String) playlistId, List.of())) {
+                if (before >= previewSize) break;
+                leading.add((O) bucket);
+                before += bucket.getCount();
+            }
+        }
+        return new AggregationResults<>(leading, new Document());
+    }
+
+    private static MongoDatabaseFactory noDatabase() {
+        MongoExceptionTranslator translator = new MongoExceptionTranslator();
+        return (MongoDatabaseFactory) Proxy.newProxyInstance(MongoDatabaseFactory.class.getClassLoader(),
+                new Class<?>[]{MongoDatabaseFactory.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getExceptionTranslator")) return translator;
+                    throw new UnsupportedOperationException("MongoDatabaseFactory." + method.getName() + " is not stubbed");
+                });
+    }
+}
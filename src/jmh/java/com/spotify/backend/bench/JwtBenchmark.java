@@ -0,0 +1,62 @@
+package com.spotify.backend.bench;
+
+import com.spotify.backend.config.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtUtil token costs: signing a token, a cold parse (a token the verified-claims
+ * cache has never seen), a warm parse, and the claims-vs-user check done per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtUtil jwtUtil;
+    private String token;
+    private Claims claims;
+    private UserDetails user;
+    private long counter;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        token = jwtUtil.generateToken("listener@example.com");
+        claims = jwtUtil.validateAndParse(token);
+        user = User.withUsername("listener@example.com").password("{noop}x").roles("USER").build();
+    }
+
+    @Benchmark
+    public String generate() {
+        return jwtUtil.generateToken("listener@example.com");
+    }
+
+    // A new subject each time, so the parse always verifies the signature
+    @Benchmark
+    public Claims generateAndParseCold() {
+        return jwtUtil.validateAndParse(jwtUtil.generateToken("user-" + counter++ + "@example.com"));
+    }
+
+    @Benchmark
+    public Claims parseWarm() {
+        return jwtUtil.validateAndParse(token);
+    }
+
+    @Benchmark
+    public boolean validateClaims() {
+        return jwtUtil.validateToken(claims, user);
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtUtil.validateToken(token, user);
+    }
+}
@@ -0,0 +1,83 @@
+package com.spotify.backend.bench;
+
+import com.spotify.backend.config.JwtAuthenticationFilter;
+import com.spotify.backend.config.JwtUtil;
+import com.spotify.backend.config.RequestLog;
+import com.spotify.backend.service.UserDetailsCache;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of JwtAuthenticationFilter: a public path it skips, an anonymous
+ * request, and an authenticated request with a valid bearer token (warm token and
+ * user caches). Each invocation builds a fresh mock request, so part of the figure
+ * is mock allocation; compare runs, not absolute values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    private JwtAuthenticationFilter filter;
+    private RequestLog requestLog;
+    private String authorization;
+
+    @Setup
+    public void setUp() {
+        JwtUtil jwtUtil = new JwtUtil();
+        requestLog = new RequestLog(8192, 0.0, "WARN", "WARN");
+        UserDetailsCache userDetailsCache = new UserDetailsCache(
+                email -> User.withUsername(email).password("{noop}x").roles("USER").build(), 10_000, 3600);
+
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(filter, "userDetailsCache", userDetailsCache);
+        ReflectionTestUtils.setField(filter, "requestLog", requestLog);
+
+        authorization = "Bearer " + jwtUtil.generateToken("listener@example.com");
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        requestLog.shutdown();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse publicPath() throws ServletException, IOException {
+        return run(new MockHttpServletRequest("GET", "/api/auth/login"));
+    }
+
+    @Benchmark
+    public MockHttpServletResponse anonymous() throws ServletException, IOException {
+        return run(new MockHttpServletRequest("GET", "/api/songs"));
+    }
+
+    @Benchmark
+    public MockHttpServletResponse authenticated() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/songs");
+        request.addHeader("Authorization", authorization);
+        return run(request);
+    }
+
+    private MockHttpServletResponse run(MockHttpServletRequest request) throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, new MockFilterChain());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response;
+    }
+}
@@ -0,0 +1,83 @@
+package com.spotify.backend.bench;
+
+import com.spotify.backend.model.Playlist;
+import com.spotify.backend.model.PlaylistTrackBucket;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PlaylistService hydration with a warm catalog cache: enrichPlaylist on an already
+ * loaded playlist, getPlaylistById (cached document plus enrichment), and getTracks
+ * (GET /api/playlists/{id}/tracks) for the first window and one from the middle.
+ * Playlists are either legacy inline songIds or playlist_tracks buckets served from
+ * memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlaylistEnrichBenchmark {
+
+    private static final int TRACKS_WINDOW = 50;
+
+    @Param({"50", "1000"})
+    public int playlistSize;
+
+    @Param({"inline", "bucketed"})
+    public String layout;
+
+    private CatalogServices services;
+    private Playlist playlist;
+    private String middleCursor;
+
+    @Setup
+    public void setUp() {
+        CatalogFixtures fixtures = new CatalogFixtures(200, 20_000);
+        // The service's copy, and a separate one that enrichPlaylist may overwrite
+        Playlist stored = fixtures.playlist("playlist-1", playlistSize);
+        playlist = fixtures.playlist("playlist-1", playlistSize);
+        List<PlaylistTrackBucket> buckets = List.of();
+        if ("bucketed".equals(layout)) {
+            buckets = fixtures.bucketed(stored, CatalogServices.BUCKET_SIZE);
+            fixtures.bucketed(playlist, CatalogServices.BUCKET_SIZE);
+        }
+        services = new CatalogServices(fixtures, List.of(stored), buckets);
+
+        // Page to the window halfway through (the first one for playlists that fit in one)
+        String cursor = null;
+        for (int read = 0; read + TRACKS_WINDOW <= playlistSize / 2; read += TRACKS_WINDOW) {
+            cursor = (String) services.playlistService.getTracks(stored.getId(), cursor, TRACKS_WINDOW).get("nextCursor");
+        }
+        middleCursor = cursor;
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        services.close();
+    }
+
+    @Benchmark
+    public Playlist enrichPlaylist() {
+        return services.playlistService.enrichPlaylist(playlist);
+    }
+
+    @Benchmark
+    public Playlist getPlaylistById() {
+        return services.playlistService.getPlaylistById(playlist.getId());
+    }
+
+    @Benchmark
+    public Map<String, Object> tracksFirstWindow() {
+        return services.playlistService.getTracks(playlist.getId(), null, TRACKS_WINDOW);
+    }
+
+    @Benchmark
+    public Map<String, Object> tracksMiddleWindow() {
+        return services.playlistService.getTracks(playlist.getId(), middleCursor, TRACKS_WINDOW);
+    }
+}
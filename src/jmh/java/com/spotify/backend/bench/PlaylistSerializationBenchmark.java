@@ -0,0 +1,51 @@
+package com.spotify.backend.bench;
+
+import com.spotify.backend.model.Album;
+import com.spotify.backend.model.Artist;
+import com.spotify.backend.model.Playlist;
+import com.spotify.backend.model.Song;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of an enriched Playlist with 1,000 embedded songs (each with
+ * its artist and album), i.e. the GET /api/playlists/{id} response body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlaylistSerializationBenchmark {
+
+    private JsonMapper jsonMapper;
+    private Playlist playlist;
+
+    @Setup
+    public void setUp() {
+        jsonMapper = JsonMapper.builder().build();
+
+        CatalogFixtures fixtures = new CatalogFixtures(200, 1000);
+        Map<String, Artist> artists = new HashMap<>();
+        fixtures.artists.forEach(a -> artists.put(a.getId(), a));
+        Map<String, Album> albums = new HashMap<>();
+        fixtures.albums.forEach(a -> albums.put(a.getId(), a));
+
+        playlist = fixtures.playlist("playlist-1", 1000);
+        for (Song song : fixtures.songs) {
+            song.setArtist(artists.get(song.getArtist_id()));
+            song.setAlbum(albums.get(song.getAlbum_id()));
+        }
+        playlist.setSongs(fixtures.songs);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return jsonMapper.writeValueAsBytes(playlist);
+    }
+}
@@ -0,0 +1,54 @@
+package com.spotify.backend.bench;
+
+import com.spotify.backend.model.Song;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SongService hydration with a warm catalog cache: a single enrich, a page of 50
+ * through enrichAll, and getById (cache read plus enrich).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SongEnrichBenchmark {
+
+    private CatalogServices services;
+    private Song song;
+    private List<Song> page;
+
+    @Setup
+    public void setUp() {
+        CatalogFixtures fixtures = new CatalogFixtures(200, 20_000);
+        services = new CatalogServices(fixtures, List.of());
+        song = fixtures.songs.get(42);
+        page = new ArrayList<>(fixtures.songs.subList(0, 50));
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        services.close();
+    }
+
+    @Benchmark
+    public Song enrich() {
+        return services.songService.enrich(song);
+    }
+
+    @Benchmark
+    public List<Song> enrichAllPageOf50() {
+        return services.songService.enrichAll(page);
+    }
+
+    @Benchmark
+    public Optional<Song> getById() {
+        return services.songService.getById(song.getId());
+    }
+}
@@ -2,8 +2,12 @@ package com.spotify.backend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableAsync
+@EnableScheduling
 public class SpotifyBackendApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(SpotifyBackendApplication.class, args);
@@ -0,0 +1,31 @@
+package com.spotify.backend.config;
+
+import com.spotify.backend.service.CatalogCacheStore;
+import com.spotify.backend.service.InMemoryCatalogCacheStore;
+import com.spotify.backend.service.RedisCatalogCacheStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Picks the shared tier of the catalog cache: {@code catalog-cache.store=redis} (default)
+ * or {@code memory} for tests and single-node runs without Redis.
+ */
+@Configuration
+public class CatalogCacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "catalog-cache.store", havingValue = "redis", matchIfMissing = true)
+    public CatalogCacheStore redisCatalogCacheStore(StringRedisTemplate redisTemplate,
+                                                    RedisConnectionFactory connectionFactory) {
+        return new RedisCatalogCacheStore(redisTemplate, connectionFactory);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "catalog-cache.store", havingValue = "memory")
+    public CatalogCacheStore inMemoryCatalogCacheStore() {
+        return new InMemoryCatalogCacheStore();
+    }
+}
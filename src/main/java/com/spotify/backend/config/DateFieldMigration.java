@@ -0,0 +1,174 @@
+package com.spotify.backend.config;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rewrites timestamps stored as ISO-8601 strings (songs.createdAt/updatedAt,
+ * users.joinDate/lastActive) as BSON dates, so time-window queries can use range indexes.
+ *
+ * Runs in the background after startup, one field at a time, in _id order: each batch
+ * reads documents whose field is still a string, converts them with one unordered bulk
+ * write, records the last _id in the migrations collection and pauses before the next
+ * batch. A restart resumes after the recorded _id; finished fields are skipped. Each
+ * update only matches while the field still holds the string it read, so a concurrent
+ * write by the application wins. Values that don't parse are left alone and counted.
+ *
+ * Until a field is migrated, reads still work (MongoConfig converts strings), but
+ * date-range queries don't match the remaining string values.
+ */
+@Component
+public class DateFieldMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(DateFieldMigration.class);
+    private static final String MIGRATIONS = "migrations";
+    private static final String PREFIX = "date-fields:";
+
+    // collection -> fields
+    private static final Map<String, List<String>> FIELDS = Map.of(
+            "songs", List.of("createdAt", "updatedAt"),
+            "users", List.of("joinDate", "lastActive"));
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pauseMs;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public DateFieldMigration(MongoTemplate mongoTemplate,
+                              @Value("${date-migration.enabled:true}") boolean enabled,
+                              @Value("${date-migration.batch-size:500}") int batchSize,
+                              @Value("${date-migration.pause-ms:200}") long pauseMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) run();
+    }
+
+    /**
+     * Migrates every field not yet finished. Returns false if a run is already in progress.
+     */
+    public boolean run() {
+        if (!running.compareAndSet(false, true)) return false;
+        try {
+            FIELDS.forEach((collection, fields) -> fields.forEach(field -> migrate(collection, field)));
+        } catch (RuntimeException e) {
+            // The checkpoint is kept; the next run resumes from it
+            logger.warn("Date field migration stopped: {}", e.getMessage());
+        } finally {
+            running.set(false);
+        }
+        return true;
+    }
+
+    private void migrate(String collection, String field) {
+        String id = PREFIX + collection + "." + field;
+        Document checkpoint = mongoTemplate.findById(id, Document.class, MIGRATIONS);
+        if (checkpoint != null && Boolean.TRUE.equals(checkpoint.getBoolean("done"))) return;
+
+        Object lastId = checkpoint != null ? checkpoint.get("lastId") : null;
+        long converted = checkpoint != null ? checkpoint.get("converted", 0L) : 0L;
+        long unparseable = checkpoint != null ? checkpoint.get("unparseable", 0L) : 0L;
+        logger.info("Migrating {}.{} to BSON dates{}", collection, field, lastId != null ? " (resuming)" : "");
+
+        while (!Thread.currentThread().isInterrupted()) {
+            Criteria criteria = Criteria.where(field).type(2); // BSON string
+            if (lastId != null) {
+                criteria = criteria.and("_id").gt(lastId);
+            }
+            Query query = new Query(criteria).with(Sort.by("_id")).limit(batchSize);
+            query.fields().include(field);
+            List<Document> batch = mongoTemplate.find(query, Document.class, collection);
+            if (batch.isEmpty()) break;
+
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+            int updates = 0;
+            for (Document doc : batch) {
+                String value = doc.getString(field);
+                try {
+                    Date date = Date.from(Instant.parse(value));
+                    bulk.updateOne(Query.query(Criteria.where("_id").is(doc.get("_id")).and(field).is(value)),
+                            new Update().set(field, date));
+                    updates++;
+                } catch (DateTimeParseException e) {
+                    unparseable++;
+                }
+            }
+            if (updates > 0) {
+                converted += bulk.execute().getModifiedCount();
+            }
+            lastId = batch.get(batch.size() - 1).get("_id");
+            saveCheckpoint(id, lastId, converted, unparseable, false);
+
+            if (batch.size() < batchSize) break;
+            pause();
+        }
+
+        if (!Thread.currentThread().isInterrupted()) {
+            saveCheckpoint(id, lastId, converted, unparseable, true);
+            logger.info("Migrated {}.{}: {} converted, {} unparseable", collection, field, converted, unparseable);
+        }
+    }
+
+    private void saveCheckpoint(String id, Object lastId, long converted, long unparseable, boolean done) {
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(id)),
+                new Update()
+                        .set("lastId", lastId)
+                        .set("converted", converted)
+                        .set("unparseable", unparseable)
+                        .set("done", done)
+                        .set("updatedAt", new Date()),
+                MIGRATIONS);
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        List<Document> fields = new ArrayList<>();
+        for (Document checkpoint : mongoTemplate.find(Query.query(Criteria.where("_id").regex("^" + PREFIX)),
+                Document.class, MIGRATIONS)) {
+            if (checkpoint.get("lastId") instanceof ObjectId objectId) {
+                checkpoint.put("lastId", objectId.toHexString());
+            }
+            fields.add(checkpoint);
+        }
+        status.put("fields", fields);
+        return status;
+    }
+}
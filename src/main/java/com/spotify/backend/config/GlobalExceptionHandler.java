@@ -1,5 +1,8 @@
 package com.spotify.backend.config;
 
+import com.spotify.backend.service.KeysetPaginator;
+import com.spotify.backend.service.PlaylistTrackStore;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -27,6 +30,27 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(errorResponse);
     }
 
+    @ExceptionHandler(KeysetPaginator.InvalidCursorException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidCursor(KeysetPaginator.InvalidCursorException ex) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", "Invalid cursor");
+        errorResponse.put("message", ex.getMessage());
+        errorResponse.put("timestamp", java.time.Instant.now().toString());
+
+        return ResponseEntity.badRequest().body(errorResponse);
+    }
+
+    // Lost races on a busy playlist: nothing was changed, the client can simply retry
+    @ExceptionHandler(PlaylistTrackStore.BusyException.class)
+    public ResponseEntity<Map<String, Object>> handlePlaylistBusy(PlaylistTrackStore.BusyException ex) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", "Playlist busy");
+        errorResponse.put("message", ex.getMessage());
+        errorResponse.put("timestamp", java.time.Instant.now().toString());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(errorResponse);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleAllExceptions(Exception ex) {
         System.out.println("=== GENERAL ERROR ===");
@@ -0,0 +1,274 @@
+package com.spotify.backend.config;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver.IndexDefinitionHolder;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Applies the indexes declared on the model classes (@Indexed / @CompoundIndex).
+ *
+ * Spring Data's auto-index-creation stays off: it builds indexes synchronously while the
+ * mapping context starts and never reports anything. Instead, once the application is
+ * ready, the declared indexes of every @Document entity are diffed against listIndexes
+ * by key pattern (an index with the same keys under another name counts as present) and
+ * the missing ones are created with background builds, off the startup path.
+ *
+ * {@link #report()} lists declared-but-missing indexes and present-but-unused ones
+ * ($indexStats shows no accesses since the server started tracking them).
+ */
+@Component
+public class IndexReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexReconciler.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mappingContext;
+    private final boolean reconcileOnStartup;
+    private final boolean createMissing;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile Map<String, Object> lastRun = Map.of("status", "not run");
+
+    public IndexReconciler(MongoTemplate mongoTemplate, MongoMappingContext mappingContext,
+                           @Value("${index-management.reconcile-on-startup:true}") boolean reconcileOnStartup,
+                           @Value("${index-management.create-missing:true}") boolean createMissing) {
+        this.mongoTemplate = mongoTemplate;
+        this.mappingContext = mappingContext;
+        this.reconcileOnStartup = reconcileOnStartup;
+        this.createMissing = createMissing;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!reconcileOnStartup) return;
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            // Never fail the app over indexes; the report endpoint shows what's missing
+            logger.warn("Index reconciliation failed: {}", e.getMessage());
+            lastRun = Map.of("status", "failed", "at", Instant.now().toString(), "error", String.valueOf(e.getMessage()));
+        }
+    }
+
+    /**
+     * Creates every declared index that has no existing index with the same key pattern.
+     * With index-management.create-missing=false only the diff is recorded. If a run is
+     * already in progress, returns status "running" with the previous run instead.
+     */
+    public Map<String, Object> reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            return Map.of("status", "running", "previous", lastRun);
+        }
+        try {
+            return reconcileDeclared();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Map<String, Object> reconcileDeclared() {
+        List<Map<String, Object>> created = new ArrayList<>();
+        List<Map<String, Object>> missing = new ArrayList<>();
+        List<Map<String, Object>> failed = new ArrayList<>();
+
+        declaredIndexes().forEach((collection, declared) -> {
+            Map<String, Document> existing = existingIndexes(collection);
+            for (IndexDefinitionHolder index : declared) {
+                if (existing.containsKey(keyPattern(index.getIndexKeys()))) continue;
+
+                Map<String, Object> entry = describe(collection, index);
+                if (!createMissing) {
+                    missing.add(entry);
+                    continue;
+                }
+                try {
+                    createIndex(collection, index);
+                    created.add(entry);
+                    logger.info("Created index {} on {} {}", entry.get("name"), collection, index.getIndexKeys().toJson());
+                } catch (RuntimeException e) {
+                    // e.g. duplicate values under a unique index, or a name clash with different keys
+                    entry.put("error", e.getMessage());
+                    failed.add(entry);
+                    logger.warn("Could not create index {} on {}: {}", entry.get("name"), collection, e.getMessage());
+                }
+            }
+        });
+
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("status", "done");
+        run.put("at", Instant.now().toString());
+        run.put("created", created);
+        run.put("missing", missing);
+        run.put("failed", failed);
+        lastRun = run;
+        return run;
+    }
+
+    /**
+     * Per collection: declared indexes with their status, present indexes with no recorded
+     * use, and present indexes that no model declares.
+     */
+    public Map<String, Object> report() {
+        Map<String, Object> collections = new TreeMap<>();
+        int missingCount = 0;
+        int unusedCount = 0;
+
+        for (Map.Entry<String, List<IndexDefinitionHolder>> entry : declaredIndexes().entrySet()) {
+            String collection = entry.getKey();
+            Map<String, Document> existing = existingIndexes(collection);
+            Map<String, Document> usage = indexUsage(collection);
+
+            List<Map<String, Object>> declared = new ArrayList<>();
+            List<String> declaredPatterns = new ArrayList<>();
+            for (IndexDefinitionHolder index : entry.getValue()) {
+                String pattern = keyPattern(index.getIndexKeys());
+                declaredPatterns.add(pattern);
+                Map<String, Object> status = describe(collection, index);
+                Document present = existing.get(pattern);
+                status.put("status", present != null ? "present" : "missing");
+                if (present != null) {
+                    status.put("existingName", present.getString("name"));
+                } else {
+                    missingCount++;
+                }
+                declared.add(status);
+            }
+
+            List<Map<String, Object>> unused = new ArrayList<>();
+            List<String> undeclared = new ArrayList<>();
+            for (Document present : listIndexes(collection)) {
+                String name = present.getString("name");
+                if ("_id_".equals(name)) continue;
+                if (!declaredPatterns.contains(keyPattern(present.get("key", Document.class)))) {
+                    undeclared.add(name);
+                }
+                Document stats = usage.get(name);
+                Document accesses = stats != null ? stats.get("accesses", Document.class) : null;
+                if (accesses != null && accesses.get("ops") instanceof Number ops && ops.longValue() == 0) {
+                    Map<String, Object> idle = new LinkedHashMap<>();
+                    idle.put("name", name);
+                    idle.put("key", present.get("key"));
+                    idle.put("since", String.valueOf(accesses.get("since")));
+                    unused.add(idle);
+                    unusedCount++;
+                }
+            }
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("declared", declared);
+            summary.put("unused", unused);
+            summary.put("undeclared", undeclared);
+            collections.put(collection, summary);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("missing", missingCount);
+        report.put("unused", unusedCount);
+        report.put("lastReconcile", lastRun);
+        report.put("collections", collections);
+        return report;
+    }
+
+    // ==================== HELPERS ====================
+
+    private Map<String, List<IndexDefinitionHolder>> declaredIndexes() {
+        IndexResolver resolver = IndexResolver.create(mappingContext);
+        Map<String, List<IndexDefinitionHolder>> byCollection = new TreeMap<>();
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class)) continue;
+            for (IndexDefinition definition : resolver.resolveIndexFor(entity.getTypeInformation())) {
+                // Nested paths come from embedded copies of other @Document types (Playlist.songs
+                // would yield playlists.songs.artist_id); those indexes belong to their own collection
+                if (definition instanceof IndexDefinitionHolder holder && !holder.getPath().contains(".")) {
+                    byCollection.computeIfAbsent(holder.getCollection(), c -> new ArrayList<>()).add(holder);
+                }
+            }
+        }
+        return byCollection;
+    }
+
+    private List<Document> listIndexes(String collection) {
+        if (!mongoTemplate.collectionExists(collection)) return List.of();
+        return mongoTemplate.getCollection(collection).listIndexes().into(new ArrayList<>());
+    }
+
+    // Existing indexes keyed by key pattern
+    private Map<String, Document> existingIndexes(String collection) {
+        Map<String, Document> byPattern = new LinkedHashMap<>();
+        for (Document index : listIndexes(collection)) {
+            byPattern.putIfAbsent(keyPattern(index.get("key", Document.class)), index);
+        }
+        return byPattern;
+    }
+
+    // $indexStats by index name; empty when the user lacks the privilege or the collection is missing
+    private Map<String, Document> indexUsage(String collection) {
+        Map<String, Document> byName = new LinkedHashMap<>();
+        if (!mongoTemplate.collectionExists(collection)) return byName;
+        try {
+            for (Document stats : mongoTemplate.getCollection(collection)
+                    .aggregate(List.of(new Document("$indexStats", new Document())))) {
+                byName.put(stats.getString("name"), stats);
+            }
+        } catch (RuntimeException e) {
+            logger.debug("$indexStats unavailable for {}: {}", collection, e.getMessage());
+        }
+        return byName;
+    }
+
+    private void createIndex(String collection, IndexDefinitionHolder index) {
+        Document spec = new Document("key", index.getIndexKeys());
+        spec.putAll(index.getIndexOptions());
+        spec.putIfAbsent("name", defaultName(index.getIndexKeys()));
+        // Ignored by 4.2+ servers, which always build without holding the collection lock
+        spec.put("background", true);
+        mongoTemplate.getDb().runCommand(new Document("createIndexes", collection).append("indexes", List.of(spec)));
+    }
+
+    private static Map<String, Object> describe(String collection, IndexDefinitionHolder index) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("collection", collection);
+        entry.put("name", index.getIndexOptions().getOrDefault("name", defaultName(index.getIndexKeys())));
+        entry.put("key", index.getIndexKeys());
+        if (Boolean.TRUE.equals(index.getIndexOptions().get("unique"))) {
+            entry.put("unique", true);
+        }
+        return entry;
+    }
+
+    // "artist_id:1", "userId:1,targetId:1"; directions compared as ints (the shell stores 1.0)
+    private static String keyPattern(Document keys) {
+        StringJoiner pattern = new StringJoiner(",");
+        keys.forEach((field, direction) -> pattern.add(field + ":"
+                + (direction instanceof Number n ? String.valueOf(n.intValue()) : String.valueOf(direction))));
+        return pattern.toString();
+    }
+
+    private static String defaultName(Document keys) {
+        StringJoiner name = new StringJoiner("_");
+        keys.forEach((field, direction) -> name.add(field).add(String.valueOf(direction)));
+        return name.toString();
+    }
+}
@@ -0,0 +1,117 @@
+package com.spotify.backend.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every repository and @Service method call.
+ *
+ * - app.repository.calls / app.service.calls: timers tagged with operation
+ *   ("SongRepository.findByGenreIgnoreCase"), outcome (success/error) and exception
+ * - app.repository.documents: documents returned per repository call, for methods
+ *   returning a collection, page, Optional or a single entity
+ *
+ * Percentile histograms are switched on in application.properties
+ * (management.metrics.distribution.*) and scraped from /actuator/prometheus.
+ * Meters are cached per operation so the hot path does no registry lookups.
+ */
+@Aspect
+@Component
+public class InvocationMetricsAspect {
+
+    private static final String REPOSITORY_PACKAGE = "com.spotify.backend.repository.";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> documentCounts = new ConcurrentHashMap<>();
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+    public InvocationMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        String operation = repositoryName(joinPoint.getTarget()) + "." + joinPoint.getSignature().getName();
+        Object result = time("app.repository.calls", operation, joinPoint);
+
+        int documents = documentCount(result);
+        if (documents >= 0) {
+            documentCounts.computeIfAbsent(operation, op -> DistributionSummary.builder("app.repository.documents")
+                            .description("Documents returned per repository call")
+                            .baseUnit("documents")
+                            .tag("operation", op)
+                            .register(registry))
+                    .record(documents);
+        }
+        return result;
+    }
+
+    @Around("@within(org.springframework.stereotype.Service) && execution(public * *(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        String operation = ((MethodSignature) joinPoint.getSignature()).getDeclaringType().getSimpleName()
+                + "." + joinPoint.getSignature().getName();
+        return time("app.service.calls", operation, joinPoint);
+    }
+
+    private Object time(String metric, String operation, ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            timer(metric, operation, "success", "none").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            timer(metric, operation, "error", e.getClass().getSimpleName())
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private Timer timer(String metric, String operation, String outcome, String exception) {
+        String key = metric + '|' + operation + '|' + outcome + '|' + exception;
+        Timer timer = timers.get(key);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(key, k -> Timer.builder(metric)
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .tag("exception", exception)
+                    .register(registry));
+        }
+        return timer;
+    }
+
+    // Our repository interface behind the Spring Data proxy (e.g. SongRepository, not CrudRepository)
+    private String repositoryName(Object target) {
+        return repositoryNames.computeIfAbsent(target.getClass(), type -> {
+            for (Class<?> candidate : type.getInterfaces()) {
+                if (candidate.getName().startsWith(REPOSITORY_PACKAGE)) {
+                    return candidate.getSimpleName();
+                }
+            }
+            return type.getSimpleName();
+        });
+    }
+
+    // Number of documents in a query result, or -1 for counts, booleans and void
+    private static int documentCount(Object result) {
+        if (result == null) return -1;
+        if (result instanceof Collection<?> collection) return collection.size();
+        if (result instanceof Slice<?> slice) return slice.getNumberOfElements();
+        if (result instanceof Optional<?> optional) return optional.isPresent() ? 1 : 0;
+        if (result instanceof Number || result instanceof Boolean) return -1;
+        return result.getClass().getName().startsWith("com.spotify.backend.model.") ? 1 : -1;
+    }
+}
@@ -1,18 +1,20 @@
 package com.spotify.backend.config;
 
+import com.spotify.backend.service.UserDetailsCache;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -28,7 +30,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtUtil jwtUtil;
 
     @Autowired
-    private UserDetailsService userDetailsService;
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private RequestLog requestLog;
+
     @Override
     protected void doFilterInternal(
             @NonNull HttpServletRequest request,
@@ -36,71 +42,47 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             @NonNull FilterChain filterChain
     ) throws ServletException, IOException {
 
-        final String requestUri = request.getRequestURI();
-        final String method = request.getMethod();
-
-        System.out.println("🚀 ========== JWT FILTER START ==========");
-        System.out.println("📨 Request: " + method + " " + requestUri);
-        System.out.println("🌐 Remote Address: " + request.getRemoteAddr());
+        requestLog.trace("JWT filter start, remote address {}", request.getRemoteAddr());
 
         // Skip filter for certain paths (optional)
         if (shouldNotFilter(request)) {
-            System.out.println("⏭️  Skipping JWT filter for public endpoint: " + requestUri);
+            requestLog.trace("Skipping JWT filter for public endpoint");
             filterChain.doFilter(request, response);
-            System.out.println("🏁 ========== JWT FILTER END (SKIPPED) ==========");
             return;
         }
 
-        System.out.println("🔒 Protected endpoint - checking authentication");
-
         final String authHeader = request.getHeader("Authorization");
-        System.out.println("🔑 Authorization Header: " + (authHeader != null ? authHeader : "NULL"));
 
-        // Print all headers for debugging
-        System.out.println("📋 All Headers:");
-        java.util.Collections.list(request.getHeaderNames()).forEach(headerName -> {
-            System.out.println("   " + headerName + ": " + request.getHeader(headerName));
-        });
+        // Header dump only for traced requests
+        if (requestLog.isEnabled(Level.TRACE)) {
+            java.util.Collections.list(request.getHeaderNames()).forEach(headerName ->
+                    requestLog.trace("Header {}: {}", headerName,
+                            "authorization".equalsIgnoreCase(headerName) ? mask(request.getHeader(headerName))
+                                    : request.getHeader(headerName)));
+        }
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            System.out.println("❌ No Bearer token found or invalid format");
-            if (authHeader == null) {
-                System.out.println("💥 Authorization header is completely missing");
-            } else {
-                System.out.println("💥 Authorization header exists but doesn't start with 'Bearer '");
-                System.out.println("💥 Header value: '" + authHeader + "'");
-            }
-            System.out.println("➡️  Continuing filter chain without authentication");
+            requestLog.debug(authHeader == null
+                    ? "No Authorization header - continuing without authentication"
+                    : "Authorization header is not a Bearer token - continuing without authentication");
             filterChain.doFilter(request, response);
-            System.out.println("🏁 ========== JWT FILTER END (NO TOKEN) ==========");
             return;
         }
 
         try {
             final String jwt = authHeader.substring(7);
-            System.out.println("✂️  Extracted JWT token: " + (jwt.length() > 20 ? jwt.substring(0, 20) + "..." : jwt));
-            System.out.println("📏 Token length: " + jwt.length() + " characters");
 
-            final String username = jwtUtil.extractUsername(jwt);
-            System.out.println("👤 Extracted username from JWT: " + username);
-
-            if (username == null) {
-                System.out.println("💥 Username is null - token might be invalid or expired");
-            } else {
-                System.out.println("✅ Successfully extracted username: " + username);
-            }
+            // Signature and expiry are verified once here; the claims are reused below
+            final Claims claims = jwtUtil.validateAndParse(jwt);
+            final String username = claims.getSubject();
 
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                System.out.println("🔍 No existing authentication in SecurityContext - loading user details");
+                requestLog.setUser(username);
 
                 try {
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                    System.out.println("✅ Loaded user details for: " + username);
-                    System.out.println("👮 User authorities: " + userDetails.getAuthorities());
-
-                    if (jwtUtil.validateToken(jwt, userDetails)) {
-                        System.out.println("✅ JWT token validated successfully for user: " + username);
+                    UserDetails userDetails = userDetailsCache.load(username);
 
+                    if (jwtUtil.validateToken(claims, userDetails)) {
                         UsernamePasswordAuthenticationToken authToken =
                                 new UsernamePasswordAuthenticationToken(
                                         userDetails,
@@ -113,49 +95,37 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                         );
 
                         SecurityContextHolder.getContext().setAuthentication(authToken);
-                        System.out.println("🎉 User authenticated successfully: " + username);
-                        System.out.println("🔐 Authentication set in SecurityContext: " +
-                                SecurityContextHolder.getContext().getAuthentication());
+                        requestLog.debug("Authenticated with authorities {}", userDetails.getAuthorities());
 
                     } else {
-                        System.out.println("❌ JWT token validation FAILED for user: " + username);
-                        System.out.println("💡 Token might be expired or signature invalid");
+                        requestLog.info("JWT validation failed - token subject does not match or token expired");
                     }
                 } catch (Exception e) {
-                    System.out.println("❌ User not found in database: " + username);
-                    System.out.println("💥 Exception: " + e.getMessage());
+                    requestLog.info("User from JWT could not be loaded: {}", e.getMessage());
                 }
+            } else if (username == null) {
+                requestLog.info("JWT has no subject - cannot load user details");
             } else {
-                if (username == null) {
-                    System.out.println("💥 Username is null - cannot load user details");
-                } else {
-                    System.out.println("ℹ️  Authentication already exists in SecurityContext");
-                    System.out.println("🔐 Current authentication: " +
-                            SecurityContextHolder.getContext().getAuthentication());
-                }
+                requestLog.trace("Authentication already present in SecurityContext");
             }
         } catch (Exception e) {
-            System.out.println("💥 ERROR processing JWT token: " + e.getMessage());
-            System.out.println("🔄 Clearing SecurityContext due to error");
-            e.printStackTrace();
+            requestLog.info("Rejected JWT, clearing SecurityContext: {}", e.getMessage());
             SecurityContextHolder.clearContext();
         }
 
-        // Check final authentication state
-        Authentication finalAuth = SecurityContextHolder.getContext().getAuthentication();
-        System.out.println("🔍 Final SecurityContext authentication: " +
-                (finalAuth != null ? finalAuth.getName() + " - " + finalAuth.getAuthorities() : "NULL"));
+        if (requestLog.isEnabled(Level.TRACE)) {
+            Authentication finalAuth = SecurityContextHolder.getContext().getAuthentication();
+            requestLog.trace("Final authentication: {}",
+                    finalAuth != null ? finalAuth.getName() + " - " + finalAuth.getAuthorities() : "NULL");
+        }
 
-        System.out.println("➡️  Continuing to next filter/controller");
         filterChain.doFilter(request, response);
-
-        System.out.println("🔚 ========== JWT FILTER END ==========");
     }
 
     @Override
     protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
         String path = request.getRequestURI();
-        boolean shouldNotFilter = path.startsWith("/api/auth/") ||
+        return path.startsWith("/api/auth/") ||
                 path.startsWith("/auth/") ||
                 path.startsWith("/public/") ||
                 path.startsWith("/api/debug/") || // ADD THIS LINE
@@ -164,8 +134,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 path.startsWith("/v3/api-docs") ||
                 path.startsWith("/webjars/") ||
                 path.equals("/error");
+    }
 
-        System.out.println("🔍 Checking if should filter: " + path + " -> " + (shouldNotFilter ? "SKIP" : "PROCESS"));
-        return shouldNotFilter;
+    private static String mask(String value) {
+        if (value == null) return "NULL";
+        return value.length() > 20 ? value.substring(0, 20) + "..." : value;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,21 @@
+package com.spotify.backend.config;
+
+import org.springframework.boot.mongodb.autoconfigure.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MongoBudgetConfig {
+
+    // Per-request command accounting alongside the driver's own listeners
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoRequestBudgetCustomizer(MongoRequestBudget budget) {
+        return settings -> settings.addCommandListener(budget);
+    }
+
+    // Query-shape statistics for /api/admin/query-profile
+    @Bean
+    public MongoClientSettingsBuilderCustomizer queryShapeProfilerCustomizer(QueryShapeProfiler profiler) {
+        return settings -> settings.addCommandListener(profiler);
+    }
+}
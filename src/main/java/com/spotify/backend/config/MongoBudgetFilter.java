@@ -0,0 +1,89 @@
+package com.spotify.backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Binds a {@link MongoRequestBudget} scope to each request. When the request is done it
+ * records the command count (app.request.mongo.commands, per route), sets the
+ * X-Mongo-Commands header if the response is not committed yet (body responses get it
+ * from MongoBudgetResponseAdvice), and logs requests that went over budget.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class MongoBudgetFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Mongo-Commands";
+
+    private final MongoRequestBudget budget;
+    private final MeterRegistry registry;
+    private final RequestLog requestLog;
+
+    public MongoBudgetFilter(MongoRequestBudget budget, MeterRegistry registry, RequestLog requestLog) {
+        this.budget = budget;
+        this.registry = registry;
+        this.requestLog = requestLog;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        if (!budget.isEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        MongoRequestBudget.Usage usage = budget.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            budget.end();
+            if (!response.isCommitted()) {
+                response.setHeader(HEADER, String.valueOf(usage.getCommands()));
+            }
+            report(request, usage);
+        }
+    }
+
+    private void report(HttpServletRequest request, MongoRequestBudget.Usage usage) {
+        // Route template (e.g. /api/playlists/{id}) keeps the tag cardinality bounded
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = pattern != null ? pattern.toString() : "UNMAPPED";
+
+        DistributionSummary.builder("app.request.mongo.commands")
+                .description("Mongo commands issued per HTTP request")
+                .tag("method", request.getMethod())
+                .tag("route", route)
+                .register(registry)
+                .record(usage.getCommands());
+
+        if (budget.isOverBudget(usage)) {
+            Counter.builder("app.request.mongo.over-budget")
+                    .description("Requests over the Mongo command budget")
+                    .tag("method", request.getMethod())
+                    .tag("route", route)
+                    .register(registry)
+                    .increment();
+            requestLog.warn("Mongo budget exceeded on {} {}: {} commands in {} ms (budget {}), repeated: {}",
+                    request.getMethod(), route, usage.getCommands(), usage.getMillis(),
+                    budget.getMaxCommands(), budget.repeatedShapes(usage));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.spotify.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds X-Mongo-Commands to @ResponseBody responses just before the body is written,
+ * i.e. after the handler has done all its queries but before the response commits.
+ *
+ * With {@code mongo-budget.strict=true} (CI / staging) an over-budget request fails
+ * with a 500 instead of only being logged, so new N+1 paths break the build.
+ */
+@ControllerAdvice
+public class MongoBudgetResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    private final MongoRequestBudget budget;
+    private final boolean strict;
+
+    public MongoBudgetResponseAdvice(MongoRequestBudget budget,
+                                     @Value("${mongo-budget.strict:false}") boolean strict) {
+        this.budget = budget;
+        this.strict = strict;
+    }
+
+    @Override
+    public boolean supports(@NonNull MethodParameter returnType,
+                            @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+        return budget.isEnabled();
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, @NonNull MethodParameter returnType,
+                                  @NonNull MediaType selectedContentType,
+                                  @NonNull Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  @NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response) {
+        MongoRequestBudget.Usage usage = budget.current();
+        if (usage == null) return body;
+
+        if (strict && !usage.rejected && budget.isOverBudget(usage)) {
+            usage.rejected = true;
+            throw new IllegalStateException("Mongo budget exceeded: " + usage.getCommands() + " commands, repeated "
+                    + budget.repeatedShapes(usage));
+        }
+        response.getHeaders().set(MongoBudgetFilter.HEADER, String.valueOf(usage.getCommands()));
+        return body;
+    }
+}
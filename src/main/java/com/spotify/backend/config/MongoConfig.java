@@ -1,4 +1,38 @@
 package com.spotify.backend.config;
 
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+@Configuration
 public class MongoConfig {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(List.of(new IsoStringToInstantConverter()));
+    }
+
+    /**
+     * Timestamps used to be stored as ISO-8601 strings; until DateFieldMigration has rewritten
+     * a document as BSON dates, its string values still read into Instant fields. A value
+     * that doesn't parse reads as null; song and user edits $set only the fields they
+     * change (SongService.update, UserService.setFields), so the stored string survives.
+     */
+    @ReadingConverter
+    static class IsoStringToInstantConverter implements Converter<String, Instant> {
+        @Override
+        public Instant convert(String source) {
+            try {
+                return Instant.parse(source);
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+    }
 }
@@ -0,0 +1,164 @@
+package com.spotify.backend.config;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request Mongo round-trip accounting.
+ *
+ * Registered as a driver CommandListener (see MongoBudgetConfig). The sync driver
+ * reports commands on the calling thread, so each command is charged to the request
+ * bound to the current thread by {@link MongoBudgetFilter}; commands outside a request
+ * (schedulers, startup, driver monitoring) are ignored.
+ *
+ * A request is over budget when it issues more than {@code mongo-budget.max-commands}
+ * commands, or repeats the same command on the same collection more than
+ * {@code mongo-budget.repeat-threshold} times (the N+1 signature: one find per row).
+ */
+@Component
+public class MongoRequestBudget implements CommandListener {
+
+    private static final ThreadLocal<Usage> CURRENT = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final int maxCommands;
+    private final int repeatThreshold;
+
+    public MongoRequestBudget(@Value("${mongo-budget.enabled:true}") boolean enabled,
+                              @Value("${mongo-budget.max-commands:25}") int maxCommands,
+                              @Value("${mongo-budget.repeat-threshold:10}") int repeatThreshold) {
+        this.enabled = enabled;
+        this.maxCommands = maxCommands;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // ==================== REQUEST SCOPE ====================
+
+    public Usage begin() {
+        Usage usage = new Usage();
+        CURRENT.set(usage);
+        return usage;
+    }
+
+    public Usage current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Charges commands issued on this thread to another thread's request, for work the
+     * request hands to an executor; pair with {@link #end()} when the task finishes.
+     */
+    public void bind(Usage usage) {
+        if (usage != null) {
+            CURRENT.set(usage);
+        }
+    }
+
+    public void end() {
+        CURRENT.remove();
+    }
+
+    // ==================== COMMAND LISTENER ====================
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        Usage usage = CURRENT.get();
+        if (usage != null) {
+            usage.record(event.getCommandName(), collectionOf(event.getCommandName(), event.getCommand()));
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        Usage usage = CURRENT.get();
+        if (usage != null) {
+            usage.addNanos(event.getElapsedTime(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        Usage usage = CURRENT.get();
+        if (usage != null) {
+            usage.addNanos(event.getElapsedTime(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    // {find: "songs"}, {aggregate: "users"}, ... ; getMore names the collection separately
+    private static String collectionOf(String commandName, BsonDocument command) {
+        BsonValue value = "getMore".equals(commandName) ? command.get("collection") : command.get(commandName);
+        return value != null && value.isString() ? value.asString().getValue() : "-";
+    }
+
+    // ==================== BUDGET ====================
+
+    public boolean isOverBudget(Usage usage) {
+        return usage.getCommands() > maxCommands || !repeatedShapes(usage).isEmpty();
+    }
+
+    // "find songs x42" for every command/collection pair over the repeat threshold
+    public List<String> repeatedShapes(Usage usage) {
+        List<String> repeated = new ArrayList<>();
+        usage.shapes().forEach((shape, count) -> {
+            if (count > repeatThreshold) {
+                repeated.add(shape + " x" + count);
+            }
+        });
+        return repeated;
+    }
+
+    public int getMaxCommands() {
+        return maxCommands;
+    }
+
+    /**
+     * Commands issued by one request. Mostly touched by the request's own thread, but tasks
+     * it fans out (see {@link #bind}) record into it concurrently, hence the locking.
+     */
+    public static final class Usage {
+        private int commands;
+        private long nanos;
+        private final Map<String, int[]> byShape = new HashMap<>();
+        // Set once strict mode has failed the request, so the error response itself isn't rejected
+        boolean rejected;
+
+        synchronized void record(String commandName, String collection) {
+            commands++;
+            byShape.computeIfAbsent(commandName + " " + collection, k -> new int[1])[0]++;
+        }
+
+        synchronized void addNanos(long elapsed) {
+            nanos += elapsed;
+        }
+
+        synchronized Map<String, Integer> shapes() {
+            Map<String, Integer> shapes = new HashMap<>();
+            byShape.forEach((shape, count) -> shapes.put(shape, count[0]));
+            return shapes;
+        }
+
+        public synchronized int getCommands() {
+            return commands;
+        }
+
+        public synchronized long getMillis() {
+            return nanos / 1_000_000;
+        }
+    }
+}
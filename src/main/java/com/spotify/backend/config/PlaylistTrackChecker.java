@@ -0,0 +1,331 @@
+package com.spotify.backend.config;
+
+import com.spotify.backend.model.PlaylistTrackBucket;
+import com.spotify.backend.model.PlaylistTrackBucket.Track;
+import com.spotify.backend.service.CatalogCache;
+import com.spotify.backend.service.PlaylistTrackStore;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Checks that playlist membership in playlist_tracks is self-consistent:
+ *
+ * - bucket_count_mismatch: a bucket's count differs from its number of tracks
+ * - empty_bucket: a bucket with no tracks
+ * - duplicate_track: a song appears more than once in one playlist (lost append races,
+ *   interrupted cross-bucket moves)
+ * - orphan_bucket: buckets of a playlist that no longer exists
+ * - track_count_mismatch: playlist.trackCount differs from the tracks in its buckets
+ * - inline_and_bucketed: a bucketed playlist that has inline songIds again
+ *
+ * Reads are two aggregations over playlist_tracks (per-playlist totals, and duplicate
+ * songs), joined to the playlists in batches of ids. With repair, orphans are removed and
+ * leftover inline songIds are appended and unset; then each playlist with an issue is
+ * repaired under PlaylistTrackStore's repair lease, so its track writes are held off
+ * (answered 503) meanwhile: its buckets are re-read, duplicates keep their first position
+ * (lowest seq, then rank), counts are recomputed from the arrays, empty buckets are
+ * removed and trackCount is set from the buckets. Each bucket is rewritten only if it is
+ * still exactly as read. A playlist whose lease is taken is skipped until the next check.
+ * Every repaired playlist is evicted from the catalog cache.
+ *
+ * Runs report-only on a schedule (a warning when anything is found) and on demand; one
+ * check at a time.
+ */
+@Component
+public class PlaylistTrackChecker {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlaylistTrackChecker.class);
+    private static final int JOIN_BATCH = 500;
+    private static final int MAX_SAMPLES = 20;
+
+    private final MongoTemplate mongoTemplate;
+    private final PlaylistTrackStore trackStore;
+    private final CatalogCache catalogCache;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile Map<String, Object> lastReport = Map.of("status", "not run");
+
+    public PlaylistTrackChecker(MongoTemplate mongoTemplate, PlaylistTrackStore trackStore, CatalogCache catalogCache) {
+        this.mongoTemplate = mongoTemplate;
+        this.trackStore = trackStore;
+        this.catalogCache = catalogCache;
+    }
+
+    @Scheduled(fixedDelayString = "${playlist-tracks.check-interval-ms:86400000}",
+            initialDelayString = "${playlist-tracks.check-initial-delay-ms:600000}")
+    public void scheduledCheck() {
+        try {
+            Map<String, Object> report = check(false);
+            if (report.get("issues") instanceof Map<?, ?> issues && !issues.isEmpty()) {
+                logger.warn("Playlist track consistency issues: {}", report.get("issues"));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Playlist track consistency check failed: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> lastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Runs a check (and with repair, the repairs). If one is already running, returns
+     * status "running" with the last report instead.
+     */
+    public Map<String, Object> check(boolean repair) {
+        if (!running.compareAndSet(false, true)) {
+            return Map.of("status", "running", "previous", lastReport);
+        }
+        try {
+            return checkAll(repair);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Map<String, Object> checkAll(boolean repair) {
+        Map<String, Long> issues = new TreeMap<>();
+        List<Map<String, Object>> samples = new ArrayList<>();
+        Set<String> toRepair = new LinkedHashSet<>();
+        MongoCollection<Document> buckets = mongoTemplate.getCollection(
+                mongoTemplate.getCollectionName(PlaylistTrackBucket.class));
+
+        // Per-playlist totals over its buckets
+        List<Document> totals = List.of(
+                new Document("$group", new Document("_id", "$playlistId")
+                        .append("buckets", new Document("$sum", 1))
+                        .append("counted", new Document("$sum", "$count"))
+                        .append("tracks", new Document("$sum", size("$tracks")))
+                        .append("empty", new Document("$sum", cond(new Document("$eq", List.of(size("$tracks"), 0)))))
+                        .append("mismatched", new Document("$sum",
+                                cond(new Document("$ne", List.of("$count", size("$tracks"))))))));
+        long playlistsChecked = 0;
+        long bucketsChecked = 0;
+        List<Document> batch = new ArrayList<>();
+        for (Document row : buckets.aggregate(totals).allowDiskUse(true)) {
+            batch.add(row);
+            bucketsChecked += toLong(row.get("buckets"));
+            if (batch.size() == JOIN_BATCH) {
+                playlistsChecked += checkTotals(batch, issues, samples, toRepair, repair);
+                batch.clear();
+            }
+        }
+        playlistsChecked += checkTotals(batch, issues, samples, toRepair, repair);
+
+        // Songs listed more than once in a playlist
+        List<Document> duplicates = List.of(
+                new Document("$unwind", "$tracks"),
+                new Document("$group", new Document("_id", new Document("p", "$playlistId").append("s", "$tracks.songId"))
+                        .append("n", new Document("$sum", 1))),
+                new Document("$match", new Document("n", new Document("$gt", 1))));
+        for (Document row : buckets.aggregate(duplicates).allowDiskUse(true)) {
+            Document id = row.get("_id", Document.class);
+            String playlistId = id.getString("p");
+            record(issues, samples, "duplicate_track", playlistId, id.getString("s") + " x" + row.get("n"));
+            if (repair) toRepair.add(playlistId);
+        }
+
+        // Playlists that think they have tracks but have no buckets, or hold inline songIds again
+        checkPlaylistsWithoutBuckets(issues, samples, toRepair, repair);
+        checkInlineLeftovers(issues, samples, toRepair, repair);
+
+        long skipped = 0;
+        if (repair) {
+            Set<String> repaired = new LinkedHashSet<>();
+            for (String playlistId : toRepair) {
+                if (trackStore.underRepairLease(playlistId, () -> repairBuckets(playlistId))) {
+                    repaired.add(playlistId);
+                } else {
+                    skipped++;
+                }
+            }
+            catalogCache.evictAll(CatalogCache.PLAYLISTS, repaired);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("status", "done");
+        report.put("at", Instant.now().toString());
+        report.put("repair", repair);
+        if (repair) report.put("skipped", skipped);
+        report.put("playlistsChecked", playlistsChecked);
+        report.put("bucketsChecked", bucketsChecked);
+        report.put("issues", issues);
+        report.put("samples", samples);
+        lastReport = report;
+        return report;
+    }
+
+    // Compares one batch of per-playlist totals with the playlists; returns the batch size
+    private int checkTotals(List<Document> batch, Map<String, Long> issues, List<Map<String, Object>> samples,
+                            Set<String> toRepair, boolean repair) {
+        if (batch.isEmpty()) return 0;
+        Map<String, Document> playlists = playlists(batch.stream().map(row -> String.valueOf(row.get("_id"))).toList());
+
+        for (Document row : batch) {
+            String playlistId = String.valueOf(row.get("_id"));
+            long tracks = toLong(row.get("tracks"));
+            Document playlist = playlists.get(playlistId);
+            if (playlist == null) {
+                record(issues, samples, "orphan_bucket", playlistId, row.get("buckets") + " buckets");
+                if (repair) trackStore.deleteAll(playlistId);
+                continue;
+            }
+            if (toLong(row.get("mismatched")) > 0) {
+                record(issues, samples, "bucket_count_mismatch", playlistId, row.get("mismatched") + " buckets");
+                if (repair) toRepair.add(playlistId);
+            }
+            if (toLong(row.get("empty")) > 0) {
+                record(issues, samples, "empty_bucket", playlistId, row.get("empty") + " buckets");
+                if (repair) toRepair.add(playlistId);
+            }
+            Object trackCount = playlist.get("trackCount");
+            if (trackCount == null || toLong(trackCount) != tracks) {
+                record(issues, samples, "track_count_mismatch", playlistId, trackCount + " != " + tracks);
+                if (repair) toRepair.add(playlistId);
+            }
+        }
+        return batch.size();
+    }
+
+    private void checkPlaylistsWithoutBuckets(Map<String, Long> issues, List<Map<String, Object>> samples,
+                                              Set<String> toRepair, boolean repair) {
+        Query query = Query.query(Criteria.where("trackCount").gt(0));
+        query.fields().include("_id");
+        List<String> ids = new ArrayList<>();
+        for (Document playlist : mongoTemplate.find(query, Document.class, "playlists")) {
+            ids.add(idString(playlist.get("_id")));
+            if (ids.size() == JOIN_BATCH) {
+                withoutBuckets(ids, issues, samples, toRepair, repair);
+                ids.clear();
+            }
+        }
+        withoutBuckets(ids, issues, samples, toRepair, repair);
+    }
+
+    private void withoutBuckets(List<String> ids, Map<String, Long> issues, List<Map<String, Object>> samples,
+                                Set<String> toRepair, boolean repair) {
+        if (ids.isEmpty()) return;
+        Set<String> withBuckets = new HashSet<>(mongoTemplate.findDistinct(Query.query(Criteria.where("playlistId").in(ids)),
+                "playlistId", PlaylistTrackBucket.class, String.class));
+        for (String id : ids) {
+            if (!withBuckets.contains(id)) {
+                record(issues, samples, "track_count_mismatch", id, "no buckets");
+                if (repair) toRepair.add(id);
+            }
+        }
+    }
+
+    private void checkInlineLeftovers(Map<String, Long> issues, List<Map<String, Object>> samples,
+                                      Set<String> toRepair, boolean repair) {
+        Query query = Query.query(Criteria.where("trackCount").exists(true).and("songIds.0").exists(true));
+        query.fields().include("songIds");
+        for (Document playlist : mongoTemplate.find(query, Document.class, "playlists")) {
+            String playlistId = idString(playlist.get("_id"));
+            List<String> songIds = playlist.getList("songIds", String.class);
+            record(issues, samples, "inline_and_bucketed", playlistId, songIds.size() + " inline songIds");
+            if (repair) {
+                // A plain append, so before (and outside) the repair lease
+                try {
+                    trackStore.append(playlistId, songIds);
+                } catch (PlaylistTrackStore.BusyException e) {
+                    continue;
+                }
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(playlistId)),
+                        new Update().unset("songIds"), "playlists");
+                toRepair.add(playlistId);
+            }
+        }
+    }
+
+    // ==================== REPAIRS ====================
+
+    /*
+     * Runs under the playlist's repair lease. Keeps each song's first occurrence (lowest
+     * seq, then lowest rank, then array position), sets count to the tracks kept and
+     * removes buckets left empty, each guarded on the bucket's tracks being as read.
+     */
+    private void repairBuckets(String playlistId) {
+        Query query = Query.query(Criteria.where("playlistId").is(playlistId)).with(Sort.by("seq"));
+        Set<String> seen = new HashSet<>();
+        int duplicates = 0;
+        for (PlaylistTrackBucket bucket : mongoTemplate.find(query, PlaylistTrackBucket.class)) {
+            List<Track> tracks = bucket.getTracks() != null ? bucket.getTracks() : List.of();
+            List<Track> byRank = new ArrayList<>(tracks);
+            byRank.sort(Comparator.comparing(Track::getRank, Comparator.nullsFirst(Comparator.naturalOrder())));
+            Set<Track> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Track track : byRank) {
+                if (seen.add(track.getSongId())) kept.add(track);
+            }
+            duplicates += tracks.size() - kept.size();
+            if (kept.size() == tracks.size() && bucket.getCount() == tracks.size() && !tracks.isEmpty()) continue;
+
+            Query unchanged = Query.query(Criteria.where("_id").is(bucket.getId()).and("tracks").is(bucket.getTracks()));
+            if (kept.isEmpty()) {
+                mongoTemplate.remove(unchanged, PlaylistTrackBucket.class);
+            } else {
+                List<Track> remaining = tracks.stream().filter(kept::contains).toList();
+                mongoTemplate.updateFirst(unchanged, new Update().set("tracks", remaining).set("count", remaining.size()),
+                        PlaylistTrackBucket.class);
+            }
+        }
+        if (duplicates > 0) {
+            logger.info("Removed {} duplicate track entries in playlist {}", duplicates, playlistId);
+        }
+    }
+
+    // ==================== HELPERS ====================
+
+    // trackCount and _id of the given playlists, keyed by id
+    private Map<String, Document> playlists(List<String> ids) {
+        Query query = Query.query(Criteria.where("_id").in(ids));
+        query.fields().include("trackCount");
+        Map<String, Document> byId = new HashMap<>();
+        for (Document playlist : mongoTemplate.find(query, Document.class, "playlists")) {
+            byId.put(idString(playlist.get("_id")), playlist);
+        }
+        return byId;
+    }
+
+    private static void record(Map<String, Long> issues, List<Map<String, Object>> samples,
+                               String type, String playlistId, String detail) {
+        issues.merge(type, 1L, Long::sum);
+        if (samples.size() < MAX_SAMPLES) {
+            Map<String, Object> sample = new LinkedHashMap<>();
+            sample.put("type", type);
+            sample.put("playlistId", playlistId);
+            sample.put("detail", detail);
+            samples.add(sample);
+        }
+    }
+
+    private static Document size(String array) {
+        return new Document("$size", new Document("$ifNull", List.of(array, List.of())));
+    }
+
+    private static Document cond(Document condition) {
+        return new Document("$cond", List.of(condition, 1, 0));
+    }
+
+    private static String idString(Object id) {
+        return id instanceof ObjectId objectId ? objectId.toHexString() : String.valueOf(id);
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number n ? n.longValue() : 0L;
+    }
+}
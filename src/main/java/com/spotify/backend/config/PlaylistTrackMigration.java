@@ -0,0 +1,268 @@
+package com.spotify.backend.config;
+
+import com.spotify.backend.service.CatalogCache;
+import com.spotify.backend.service.PlaylistTrackStore;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+/**
+ * Moves all playlist membership into the playlist_tracks buckets, the single source
+ * PlaylistTrackStore maintains. Two phases, each in batches with a checkpoint in the
+ * migrations collection and a pause between batches:
+ *
+ * 1. "inline": playlists still holding songIds inline (no trackCount), in _id order, are
+ *    converted the same way their first write would convert them.
+ * 2. "playlist_songs": rows of the old playlist_songs collection, one playlist at a time in
+ *    playlistId order, are appended after the playlist's existing tracks (ordered by
+ *    position, then addedAt) keeping their addedAt. Songs already in the playlist are
+ *    skipped, so re-running a batch is harmless; rows whose playlist no longer exists are
+ *    counted as orphaned. The rows themselves are left in place.
+ *
+ * The application keeps working during the migration: reads fall back to inline songIds
+ * and the reverse lookup also scans them until the inline phase is done. Each converted
+ * or appended-to playlist is evicted from the catalog cache, like any other track write.
+ */
+@Component
+public class PlaylistTrackMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlaylistTrackMigration.class);
+    private static final String MIGRATIONS = "migrations";
+    private static final String PREFIX = "playlist-tracks:";
+    private static final String INLINE = PREFIX + "inline";
+    private static final String PLAYLIST_SONGS = PREFIX + "playlist_songs";
+    private static final String LEGACY_COLLECTION = "playlist_songs";
+
+    private final MongoTemplate mongoTemplate;
+    private final PlaylistTrackStore trackStore;
+    private final CatalogCache catalogCache;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pauseMs;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean inlineDone;
+
+    public PlaylistTrackMigration(MongoTemplate mongoTemplate, PlaylistTrackStore trackStore, CatalogCache catalogCache,
+                                  @Value("${playlist-migration.enabled:true}") boolean enabled,
+                                  @Value("${playlist-migration.batch-size:200}") int batchSize,
+                                  @Value("${playlist-migration.pause-ms:200}") long pauseMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.trackStore = trackStore;
+        this.catalogCache = catalogCache;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) run();
+    }
+
+    /**
+     * Runs every phase not yet finished. Returns false if a run is already in progress.
+     */
+    public boolean run() {
+        if (!running.compareAndSet(false, true)) return false;
+        try {
+            migrateInline();
+            migratePlaylistSongs();
+        } catch (RuntimeException e) {
+            // The checkpoint is kept; the next run resumes from it
+            logger.warn("Playlist track migration stopped: {}", e.getMessage());
+        } finally {
+            running.set(false);
+        }
+        return true;
+    }
+
+    // Whether no playlist keeps its tracks inline any more (checked once, then remembered)
+    public boolean isInlineDone() {
+        if (!inlineDone) {
+            Document checkpoint = mongoTemplate.findById(INLINE, Document.class, MIGRATIONS);
+            inlineDone = checkpoint != null && Boolean.TRUE.equals(checkpoint.getBoolean("done"));
+        }
+        return inlineDone;
+    }
+
+    private void migrateInline() {
+        Document checkpoint = mongoTemplate.findById(INLINE, Document.class, MIGRATIONS);
+        if (checkpoint != null && Boolean.TRUE.equals(checkpoint.getBoolean("done"))) return;
+
+        Object lastId = checkpoint != null ? checkpoint.get("lastId") : null;
+        long converted = checkpoint != null ? checkpoint.get("converted", 0L) : 0L;
+        logger.info("Moving inline playlist tracks into buckets{}", lastId != null ? " (resuming)" : "");
+
+        while (!Thread.currentThread().isInterrupted()) {
+            Criteria criteria = Criteria.where("trackCount").exists(false);
+            if (lastId != null) {
+                criteria = criteria.and("_id").gt(lastId);
+            }
+            Query query = new Query(criteria).with(Sort.by("_id")).limit(batchSize);
+            query.fields().include("_id");
+            List<Document> batch = mongoTemplate.find(query, Document.class, "playlists");
+            if (batch.isEmpty()) break;
+
+            for (Document playlist : batch) {
+                String playlistId = idString(playlist.get("_id"));
+                try {
+                    trackStore.ensureBucketed(playlistId);
+                    catalogCache.evict(CatalogCache.PLAYLISTS, playlistId);
+                    converted++;
+                } catch (RuntimeException e) {
+                    // Deleted meanwhile; anything else fails again on the next write to it
+                    logger.debug("Skipped playlist {}: {}", playlist.get("_id"), e.getMessage());
+                }
+            }
+            lastId = batch.get(batch.size() - 1).get("_id");
+            saveCheckpoint(INLINE, new Update().set("lastId", lastId).set("converted", converted), false);
+
+            if (batch.size() < batchSize) break;
+            pause();
+        }
+
+        if (!Thread.currentThread().isInterrupted()) {
+            saveCheckpoint(INLINE, new Update().set("lastId", lastId).set("converted", converted), true);
+            inlineDone = true;
+            logger.info("Inline playlist tracks moved: {} playlists", converted);
+        }
+    }
+
+    private void migratePlaylistSongs() {
+        Document checkpoint = mongoTemplate.findById(PLAYLIST_SONGS, Document.class, MIGRATIONS);
+        if (checkpoint != null && Boolean.TRUE.equals(checkpoint.getBoolean("done"))) return;
+        if (!mongoTemplate.collectionExists(LEGACY_COLLECTION)) {
+            saveCheckpoint(PLAYLIST_SONGS, new Update().set("rows", 0L), true);
+            return;
+        }
+
+        String lastPlaylistId = checkpoint != null ? checkpoint.getString("lastPlaylistId") : null;
+        long rows = checkpoint != null ? checkpoint.get("rows", 0L) : 0L;
+        long appended = checkpoint != null ? checkpoint.get("appended", 0L) : 0L;
+        long orphaned = checkpoint != null ? checkpoint.get("orphaned", 0L) : 0L;
+        logger.info("Folding playlist_songs into playlist buckets{}", lastPlaylistId != null ? " (resuming)" : "");
+
+        while (!Thread.currentThread().isInterrupted()) {
+            List<String> playlistIds = nextPlaylistIds(lastPlaylistId);
+            if (playlistIds.isEmpty()) break;
+
+            for (String playlistId : playlistIds) {
+                List<Document> memberships = mongoTemplate.find(
+                        Query.query(Criteria.where("playlistId").is(playlistId)), Document.class, LEGACY_COLLECTION);
+                memberships.sort(Comparator
+                        .comparing((Document row) -> row.getInteger("position"), Comparator.nullsLast(Comparator.naturalOrder()))
+                        .thenComparing(PlaylistTrackMigration::addedAt, Comparator.nullsLast(Comparator.naturalOrder())));
+
+                List<String> songIds = new ArrayList<>();
+                Map<String, Instant> addedAt = new HashMap<>();
+                for (Document row : memberships) {
+                    String songId = row.getString("songId");
+                    if (songId == null || songId.isBlank()) continue;
+                    songIds.add(songId);
+                    if (addedAt(row) != null) {
+                        addedAt.putIfAbsent(songId, addedAt(row));
+                    }
+                }
+                rows += memberships.size();
+
+                if (!mongoTemplate.exists(Query.query(Criteria.where("_id").is(playlistId)), "playlists")) {
+                    orphaned += memberships.size();
+                    continue;
+                }
+                if (!songIds.isEmpty()) {
+                    int added = trackStore.append(playlistId, songIds, addedAt).size();
+                    if (added > 0) {
+                        catalogCache.evict(CatalogCache.PLAYLISTS, playlistId);
+                    }
+                    appended += added;
+                }
+            }
+            lastPlaylistId = playlistIds.get(playlistIds.size() - 1);
+            saveCheckpoint(PLAYLIST_SONGS, new Update().set("lastPlaylistId", lastPlaylistId).set("rows", rows)
+                    .set("appended", appended).set("orphaned", orphaned), false);
+
+            if (playlistIds.size() < batchSize) break;
+            pause();
+        }
+
+        if (!Thread.currentThread().isInterrupted()) {
+            saveCheckpoint(PLAYLIST_SONGS, new Update().set("lastPlaylistId", lastPlaylistId).set("rows", rows)
+                    .set("appended", appended).set("orphaned", orphaned), true);
+            logger.info("playlist_songs folded in: {} rows, {} tracks appended, {} orphaned", rows, appended, orphaned);
+        }
+    }
+
+    // The next batch of distinct playlist ids in playlist_songs, in order
+    private List<String> nextPlaylistIds(String after) {
+        Criteria criteria = Criteria.where("playlistId").ne(null);
+        if (after != null) {
+            criteria = Criteria.where("playlistId").gt(after);
+        }
+        Aggregation aggregation = newAggregation(
+                match(criteria),
+                group("playlistId"),
+                sort(Sort.Direction.ASC, "_id"),
+                limit(batchSize)
+        );
+        List<String> ids = new ArrayList<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, LEGACY_COLLECTION, Document.class)) {
+            ids.add(idString(row.get("_id")));
+        }
+        return ids;
+    }
+
+    private void saveCheckpoint(String id, Update update, boolean done) {
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(id)),
+                update.set("done", done).set("updatedAt", new Date()), MIGRATIONS);
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Instant addedAt(Document row) {
+        return row.get("addedAt") instanceof Date date ? date.toInstant() : null;
+    }
+
+    private static String idString(Object id) {
+        return id instanceof ObjectId objectId ? objectId.toHexString() : String.valueOf(id);
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        List<Document> phases = new ArrayList<>();
+        for (Document checkpoint : mongoTemplate.find(Query.query(Criteria.where("_id").regex("^" + PREFIX)),
+                Document.class, MIGRATIONS)) {
+            if (checkpoint.get("lastId") instanceof ObjectId objectId) {
+                checkpoint.put("lastId", objectId.toHexString());
+            }
+            phases.add(checkpoint);
+        }
+        status.put("phases", phases);
+        return status;
+    }
+}
@@ -0,0 +1,502 @@
+package com.spotify.backend.config;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-app query profiler keyed by query shape.
+ *
+ * Registered as a driver CommandListener (see MongoBudgetConfig), so it sees every query
+ * issued through MongoTemplate and the repositories. Each command is reduced to a shape:
+ * command, collection and the filter / pipeline / update with literal values replaced by
+ * "?" (sort and projection documents are kept as-is, they are part of the shape). Per
+ * shape it keeps the call count, a latency histogram for p50/p99 and documents returned
+ * (first batch plus getMore batches for cursors).
+ *
+ * Documents examined are only known to the server, so when a read shape runs slower than
+ * {@code query-profiler.slow-ms} it is explained once per {@code explain-interval-seconds}
+ * on a background thread (executionStats verbosity), recording docs/keys examined and the
+ * winning plan's stages and indexes.
+ */
+@Component
+public class QueryShapeProfiler implements CommandListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryShapeProfiler.class);
+
+    private static final Set<String> PROFILED = Set.of(
+            "find", "aggregate", "count", "distinct", "findAndModify", "update", "delete");
+    private static final Set<String> EXPLAINABLE = Set.of("find", "aggregate", "count", "distinct");
+    // Pipeline stages whose arguments describe the shape rather than carry values
+    private static final Set<String> STRUCTURAL_STAGES = Set.of(
+            "$sort", "$project", "$group", "$lookup", "$unwind", "$addFields", "$set", "$count", "$replaceRoot");
+    private static final BsonString PLACEHOLDER = new BsonString("?");
+    private static final int MAX_OPEN_CURSORS = 10_000;
+
+    // Latency buckets grow by 20%: bucket i covers up to 1.2^(i+1) µs, the last one ~100 s
+    private static final double BUCKET_GROWTH = Math.log(1.2);
+    private static final int BUCKETS = 102;
+
+    private final boolean enabled;
+    private final long slowNanos;
+    private final long explainIntervalMillis;
+    private final int maxShapes;
+    private final ObjectProvider<MongoTemplate> mongoTemplate;
+
+    private final Map<String, ShapeStats> shapes = new ConcurrentHashMap<>();
+    private final Map<Integer, Pending> inFlight = new ConcurrentHashMap<>();
+    private final Map<Long, ShapeStats> openCursors = new ConcurrentHashMap<>();
+    private final LongAdder droppedShapes = new LongAdder();
+    private final ThreadPoolExecutor explainer;
+    private volatile Instant since = Instant.now();
+
+    public QueryShapeProfiler(@Value("${query-profiler.enabled:true}") boolean enabled,
+                              @Value("${query-profiler.slow-ms:50}") long slowMs,
+                              @Value("${query-profiler.explain-interval-seconds:600}") long explainIntervalSeconds,
+                              @Value("${query-profiler.max-shapes:500}") int maxShapes,
+                              ObjectProvider<MongoTemplate> mongoTemplate) {
+        this.enabled = enabled;
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowMs);
+        this.explainIntervalMillis = TimeUnit.SECONDS.toMillis(explainIntervalSeconds);
+        this.maxShapes = maxShapes;
+        this.mongoTemplate = mongoTemplate;
+        // One explain at a time, a short queue, and anything beyond that is dropped
+        this.explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16),
+                r -> {
+                    Thread thread = new Thread(r, "query-profiler-explain");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    // ==================== COMMAND LISTENER ====================
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (!enabled) return;
+        String commandName = event.getCommandName();
+        BsonDocument command = event.getCommand();
+
+        if ("getMore".equals(commandName)) {
+            long cursorId = command.isNumber("getMore") ? command.getNumber("getMore").longValue() : 0;
+            ShapeStats stats = openCursors.get(cursorId);
+            if (stats != null) {
+                inFlight.put(event.getRequestId(), new Pending(stats, true, cursorId, null, null));
+            }
+            return;
+        }
+        if (!PROFILED.contains(commandName)) return;
+
+        String collection = command.get(commandName) instanceof BsonString name ? name.getValue() : "-";
+        String shape = commandName + " " + collection + " " + shapeOf(commandName, command).toJson();
+
+        ShapeStats stats = shapes.get(shape);
+        if (stats == null) {
+            if (shapes.size() >= maxShapes) {
+                droppedShapes.increment();
+                return;
+            }
+            stats = shapes.computeIfAbsent(shape, s -> new ShapeStats(s, commandName, collection));
+        }
+        // The event's command is only valid during this callback, so keep a copy when an explain may follow
+        BsonDocument explainable = EXPLAINABLE.contains(commandName) && stats.explainDue(explainIntervalMillis)
+                && !writesOutput(command) ? command.clone() : null;
+        inFlight.put(event.getRequestId(), new Pending(stats, false, 0, event.getDatabaseName(), explainable));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        Pending pending = inFlight.remove(event.getRequestId());
+        if (pending == null) return;
+
+        long nanos = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        BsonDocument response = event.getResponse();
+        ShapeStats stats = pending.stats;
+        stats.docsReturned.add(documentsReturned(event.getCommandName(), response));
+        trackCursor(pending, response);
+
+        // getMore batches add documents to the originating shape but aren't separate calls
+        if (pending.getMore) return;
+        stats.record(nanos);
+
+        if (nanos >= slowNanos && pending.command != null && stats.claimExplain(explainIntervalMillis)) {
+            explainer.execute(() -> explain(stats, pending.database, pending.command));
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        Pending pending = inFlight.remove(event.getRequestId());
+        if (pending == null) return;
+        if (pending.getMore) {
+            openCursors.remove(pending.cursorId);
+        } else {
+            pending.stats.errors.increment();
+            pending.stats.record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    // ==================== SHAPES ====================
+
+    static BsonDocument shapeOf(String commandName, BsonDocument command) {
+        BsonDocument shape = new BsonDocument();
+        switch (commandName) {
+            case "find" -> {
+                putNormalized(shape, "filter", command.get("filter"));
+                putRaw(shape, "sort", command.get("sort"));
+                putRaw(shape, "projection", command.get("projection"));
+            }
+            case "aggregate" -> {
+                BsonArray pipeline = new BsonArray();
+                BsonValue stages = command.get("pipeline");
+                if (stages != null && stages.isArray()) {
+                    for (BsonValue stage : stages.asArray()) {
+                        pipeline.add(stage.isDocument() ? normalizeStage(stage.asDocument()) : PLACEHOLDER);
+                    }
+                }
+                shape.put("pipeline", pipeline);
+            }
+            case "count" -> putNormalized(shape, "query", command.get("query"));
+            case "distinct" -> {
+                putRaw(shape, "key", command.get("key"));
+                putNormalized(shape, "query", command.get("query"));
+            }
+            case "findAndModify" -> {
+                putNormalized(shape, "query", command.get("query"));
+                putRaw(shape, "sort", command.get("sort"));
+                putNormalized(shape, "update", command.get("update"));
+                putRaw(shape, "remove", command.get("remove"));
+            }
+            case "update", "delete" -> {
+                // Batched writes: the first statement stands for the batch
+                BsonValue statements = command.get("update".equals(commandName) ? "updates" : "deletes");
+                if (statements != null && statements.isArray() && !statements.asArray().isEmpty()
+                        && statements.asArray().get(0).isDocument()) {
+                    BsonDocument first = statements.asArray().get(0).asDocument();
+                    putNormalized(shape, "q", first.get("q"));
+                    putNormalized(shape, "u", first.get("u"));
+                    putRaw(shape, "multi", first.get("multi"));
+                }
+            }
+            default -> { }
+        }
+        return shape;
+    }
+
+    private static BsonDocument normalizeStage(BsonDocument stage) {
+        BsonDocument normalized = new BsonDocument();
+        stage.forEach((name, argument) ->
+                normalized.put(name, STRUCTURAL_STAGES.contains(name) ? argument : normalize(argument)));
+        return normalized;
+    }
+
+    // Literals become "?"; arrays of literals ($in lists) collapse to ["?"] so list length doesn't split shapes
+    static BsonValue normalize(BsonValue value) {
+        if (value.isDocument()) {
+            BsonDocument normalized = new BsonDocument();
+            value.asDocument().forEach((key, nested) -> normalized.put(key, normalize(nested)));
+            return normalized;
+        }
+        if (value.isArray()) {
+            BsonArray normalized = new BsonArray();
+            boolean documents = false;
+            for (BsonValue element : value.asArray()) {
+                if (element.isDocument() || element.isArray()) {
+                    normalized.add(normalize(element));
+                    documents = true;
+                }
+            }
+            return documents ? normalized : new BsonArray(List.of(PLACEHOLDER));
+        }
+        return PLACEHOLDER;
+    }
+
+    private static void putNormalized(BsonDocument shape, String key, BsonValue value) {
+        if (value != null) shape.put(key, normalize(value));
+    }
+
+    private static void putRaw(BsonDocument shape, String key, BsonValue value) {
+        if (value != null) shape.put(key, value);
+    }
+
+    private static long documentsReturned(String commandName, BsonDocument response) {
+        switch (commandName) {
+            case "find", "aggregate", "getMore" -> {
+                BsonDocument cursor = response.getDocument("cursor", null);
+                if (cursor == null) return 0;
+                BsonValue batch = cursor.containsKey("firstBatch") ? cursor.get("firstBatch") : cursor.get("nextBatch");
+                return batch != null && batch.isArray() ? batch.asArray().size() : 0;
+            }
+            case "distinct" -> {
+                BsonValue values = response.get("values");
+                return values != null && values.isArray() ? values.asArray().size() : 0;
+            }
+            case "findAndModify" -> {
+                BsonValue value = response.get("value");
+                return value != null && value.isDocument() ? 1 : 0;
+            }
+            default -> {
+                // count, update (matched) and delete report n
+                BsonValue n = response.get("n");
+                return n != null && n.isNumber() ? n.asNumber().longValue() : 0;
+            }
+        }
+    }
+
+    private void trackCursor(Pending pending, BsonDocument response) {
+        BsonDocument cursor = response.getDocument("cursor", null);
+        if (cursor == null || !cursor.isNumber("id")) return;
+        long id = cursor.getNumber("id").longValue();
+        if (id == 0) {
+            // Exhausted; for getMore this closes the cursor opened by find/aggregate
+            if (pending.cursorId != 0) openCursors.remove(pending.cursorId);
+        } else if (openCursors.size() < MAX_OPEN_CURSORS) {
+            openCursors.put(id, pending.stats);
+        }
+    }
+
+    private static boolean writesOutput(BsonDocument command) {
+        BsonValue pipeline = command.get("pipeline");
+        if (pipeline == null || !pipeline.isArray()) return false;
+        for (BsonValue stage : pipeline.asArray()) {
+            if (stage.isDocument() && (stage.asDocument().containsKey("$out") || stage.asDocument().containsKey("$merge"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ==================== EXPLAIN ====================
+
+    private void explain(ShapeStats stats, String database, BsonDocument original) {
+        MongoTemplate template = mongoTemplate.getIfAvailable();
+        if (template == null) return;
+
+        // Drop driver-generated fields ($db, lsid, $clusterTime, ...) before re-issuing the command
+        BsonDocument command = new BsonDocument();
+        original.forEach((key, value) -> {
+            if (!key.startsWith("$") && !"lsid".equals(key) && !"txnNumber".equals(key)) {
+                command.put(key, value);
+            }
+        });
+
+        try {
+            Document plan = template.getMongoDatabaseFactory().getMongoDatabase(database).runCommand(
+                    new BsonDocument("explain", command).append("verbosity", new BsonString("executionStats")));
+            stats.explain = summarize(plan);
+        } catch (RuntimeException e) {
+            logger.debug("Explain failed for {}: {}", stats.shape, e.getMessage());
+            stats.explain = Map.of("sampledAt", Instant.now().toString(), "error", String.valueOf(e.getMessage()));
+        }
+    }
+
+    private static Map<String, Object> summarize(Document plan) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("sampledAt", Instant.now().toString());
+
+        // find/count/distinct report executionStats at the top; aggregate nests it under its $cursor stage
+        Document executionStats = findDocument(plan, "executionStats");
+        if (executionStats != null) {
+            long examined = number(executionStats.get("totalDocsExamined"));
+            long returned = number(executionStats.get("nReturned"));
+            summary.put("millis", number(executionStats.get("executionTimeMillis")));
+            summary.put("docsExamined", examined);
+            summary.put("keysExamined", number(executionStats.get("totalKeysExamined")));
+            summary.put("nReturned", returned);
+            summary.put("examinedPerReturned", returned > 0 ? (double) examined / returned : (double) examined);
+        }
+
+        Document winningPlan = findDocument(plan, "winningPlan");
+        Set<String> stages = new LinkedHashSet<>();
+        Set<String> indexes = new LinkedHashSet<>();
+        if (winningPlan != null) {
+            collectPlan(winningPlan, stages, indexes);
+        }
+        summary.put("stages", stages);
+        summary.put("indexes", indexes);
+        summary.put("collectionScan", stages.contains("COLLSCAN"));
+        return summary;
+    }
+
+    private static Document findDocument(Object node, String key) {
+        if (node instanceof Document document) {
+            if (document.get(key) instanceof Document found) return found;
+            for (Object value : document.values()) {
+                Document found = findDocument(value, key);
+                if (found != null) return found;
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object value : list) {
+                Document found = findDocument(value, key);
+                if (found != null) return found;
+            }
+        }
+        return null;
+    }
+
+    private static void collectPlan(Object node, Set<String> stages, Set<String> indexes) {
+        if (node instanceof Document document) {
+            if (document.get("stage") instanceof String stage) stages.add(stage);
+            if (document.get("indexName") instanceof String index) indexes.add(index);
+            document.values().forEach(value -> collectPlan(value, stages, indexes));
+        } else if (node instanceof List<?> list) {
+            list.forEach(value -> collectPlan(value, stages, indexes));
+        }
+    }
+
+    private static long number(Object value) {
+        return value instanceof Number n ? n.longValue() : 0;
+    }
+
+    // ==================== REPORT ====================
+
+    /**
+     * Shapes ordered by {@code sort}: "total" (time spent, default), "p99", "count" or "docs".
+     */
+    public Map<String, Object> snapshot(String sort, int limit) {
+        Comparator<ShapeStats> order = switch (sort) {
+            case "p99" -> Comparator.comparingLong(s -> s.percentileNanos(99));
+            case "count" -> Comparator.comparingLong(s -> s.count.sum());
+            case "docs" -> Comparator.comparingLong(s -> s.docsReturned.sum());
+            default -> Comparator.comparingLong(s -> s.totalNanos.sum());
+        };
+
+        List<Map<String, Object>> top = shapes.values().stream()
+                .filter(s -> s.count.sum() > 0)
+                .sorted(order.reversed())
+                .limit(limit)
+                .map(ShapeStats::toMap)
+                .toList();
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", enabled);
+        snapshot.put("since", since.toString());
+        snapshot.put("slowMs", TimeUnit.NANOSECONDS.toMillis(slowNanos));
+        snapshot.put("shapes", shapes.size());
+        snapshot.put("droppedShapes", droppedShapes.sum());
+        snapshot.put("sort", sort);
+        snapshot.put("top", top);
+        return snapshot;
+    }
+
+    public void reset() {
+        shapes.clear();
+        openCursors.clear();
+        droppedShapes.reset();
+        since = Instant.now();
+    }
+
+    @PreDestroy
+    public void stop() {
+        explainer.shutdownNow();
+    }
+
+    // getMore only carries the cursor back to its shape; command is set when the shape is due an explain
+    private record Pending(ShapeStats stats, boolean getMore, long cursorId, String database, BsonDocument command) {
+    }
+
+    private static final class ShapeStats {
+        private final String shape;
+        private final String command;
+        private final String collection;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder docsReturned = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+        private final AtomicLong lastExplainMillis = new AtomicLong();
+        private volatile Map<String, Object> explain;
+
+        ShapeStats(String shape, String command, String collection) {
+            this.shape = shape;
+            this.command = command;
+            this.collection = collection;
+        }
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            long micros = Math.max(1, nanos / 1000);
+            histogram.incrementAndGet((int) Math.min(BUCKETS - 1, Math.log(micros) / BUCKET_GROWTH));
+        }
+
+        boolean explainDue(long intervalMillis) {
+            return System.currentTimeMillis() - lastExplainMillis.get() >= intervalMillis;
+        }
+
+        // At most one explain per shape per interval, across threads
+        boolean claimExplain(long intervalMillis) {
+            long now = System.currentTimeMillis();
+            long last = lastExplainMillis.get();
+            return now - last >= intervalMillis && lastExplainMillis.compareAndSet(last, now);
+        }
+
+        long percentileNanos(double percentile) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) total += histogram.get(i);
+            if (total == 0) return 0;
+
+            long target = (long) Math.ceil(total * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += histogram.get(i);
+                if (seen >= target) {
+                    return Math.min(maxNanos.get(), (long) (Math.exp((i + 1) * BUCKET_GROWTH) * 1000));
+                }
+            }
+            return maxNanos.get();
+        }
+
+        Map<String, Object> toMap() {
+            long calls = count.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("shape", shape);
+            map.put("command", command);
+            map.put("collection", collection);
+            map.put("count", calls);
+            map.put("errors", errors.sum());
+            map.put("totalMs", totalNanos.sum() / 1_000_000.0);
+            map.put("meanMs", calls > 0 ? totalNanos.sum() / 1_000_000.0 / calls : 0);
+            map.put("p50Ms", percentileNanos(50) / 1_000_000.0);
+            map.put("p99Ms", percentileNanos(99) / 1_000_000.0);
+            map.put("maxMs", maxNanos.get() / 1_000_000.0);
+            map.put("docsReturned", docsReturned.sum());
+            map.put("avgDocsReturned", calls > 0 ? (double) docsReturned.sum() / calls : 0);
+            if (explain != null) {
+                map.put("explain", explain);
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.spotify.backend.config;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.slf4j.helpers.MessageFormatter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous, sampled request logger for the hot path.
+ *
+ * Request threads only check a level gate and enqueue an entry into a bounded ring
+ * buffer; a single background thread formats the messages and writes them through
+ * SLF4J. When the buffer is full entries are dropped (and counted) instead of blocking.
+ *
+ * Gating per request:
+ * - messages at or above {@code request-log.level} are always recorded
+ * - sampled requests ({@code request-log.sample-rate}) also record down to {@code request-log.sampled-level}
+ * - requests from a traced user or under a traced path prefix record everything (TRACE)
+ */
+@Component
+public class RequestLog {
+
+    private static final Logger logger = LoggerFactory.getLogger("request-log");
+    private static final ThreadLocal<Context> CURRENT = new ThreadLocal<>();
+
+    private final BlockingQueue<Entry> buffer;
+    private final Thread writer;
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Set<String> tracedUsers = ConcurrentHashMap.newKeySet();
+    private final Set<String> tracedPaths = ConcurrentHashMap.newKeySet();
+
+    private volatile double sampleRate;
+    private volatile Level baseLevel;
+    private volatile Level sampledLevel;
+    private volatile boolean running = true;
+
+    public RequestLog(@Value("${request-log.buffer-size:8192}") int bufferSize,
+                      @Value("${request-log.sample-rate:0.01}") double sampleRate,
+                      @Value("${request-log.level:INFO}") String baseLevel,
+                      @Value("${request-log.sampled-level:DEBUG}") String sampledLevel) {
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.sampleRate = sampleRate;
+        this.baseLevel = Level.valueOf(baseLevel.toUpperCase());
+        this.sampledLevel = Level.valueOf(sampledLevel.toUpperCase());
+
+        this.writer = new Thread(this::drain, "request-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // ==================== REQUEST SCOPE ====================
+
+    public void begin(String requestId, String method, String path) {
+        boolean sampled = ThreadLocalRandom.current().nextDouble() < sampleRate;
+        CURRENT.set(new Context(requestId, method, path, sampled));
+    }
+
+    // Called once the caller is authenticated, so per-user tracing can apply
+    public void setUser(String user) {
+        Context context = CURRENT.get();
+        if (context != null) {
+            context.user = user;
+        }
+    }
+
+    public void end() {
+        CURRENT.remove();
+    }
+
+    // ==================== LOGGING ====================
+
+    public boolean isEnabled(Level level) {
+        return level.toInt() >= effectiveLevel(CURRENT.get()).toInt();
+    }
+
+    public void trace(String format, Object... args) { log(Level.TRACE, format, args); }
+
+    public void debug(String format, Object... args) { log(Level.DEBUG, format, args); }
+
+    public void info(String format, Object... args) { log(Level.INFO, format, args); }
+
+    public void warn(String format, Object... args) { log(Level.WARN, format, args); }
+
+    public void error(String format, Object... args) { log(Level.ERROR, format, args); }
+
+    public void log(Level level, String format, Object... args) {
+        Context context = CURRENT.get();
+        if (level.toInt() < effectiveLevel(context).toInt()) return;
+
+        String prefix = context != null
+                ? "[" + context.requestId + " " + context.method + " " + context.path
+                  + (context.user != null ? " user=" + context.user : "") + "] "
+                : "";
+        if (!buffer.offer(new Entry(level, prefix, format, args))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private Level effectiveLevel(Context context) {
+        if (context == null) return baseLevel;
+        if ((context.user != null && tracedUsers.contains(context.user)) || isTracedPath(context.path)) {
+            return Level.TRACE;
+        }
+        return context.sampled ? sampledLevel : baseLevel;
+    }
+
+    private boolean isTracedPath(String path) {
+        if (tracedPaths.isEmpty() || path == null) return false;
+        for (String prefix : tracedPaths) {
+            if (path.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    // ==================== RUNTIME CONTROLS ====================
+
+    public void traceUser(String user) { tracedUsers.add(user); }
+
+    public void untraceUser(String user) { tracedUsers.remove(user); }
+
+    public void tracePath(String pathPrefix) { tracedPaths.add(pathPrefix); }
+
+    public void untracePath(String pathPrefix) { tracedPaths.remove(pathPrefix); }
+
+    public void clearTraces() {
+        tracedUsers.clear();
+        tracedPaths.clear();
+    }
+
+    public void setSampleRate(double sampleRate) { this.sampleRate = sampleRate; }
+
+    public void setBaseLevel(Level level) { this.baseLevel = level; }
+
+    public void setSampledLevel(Level level) { this.sampledLevel = level; }
+
+    public Set<String> getTracedUsers() { return Set.copyOf(tracedUsers); }
+
+    public Set<String> getTracedPaths() { return Set.copyOf(tracedPaths); }
+
+    public double getSampleRate() { return sampleRate; }
+
+    public Level getBaseLevel() { return baseLevel; }
+
+    public Level getSampledLevel() { return sampledLevel; }
+
+    public long getDroppedCount() { return dropped.get(); }
+
+    public int getBufferedCount() { return buffer.size(); }
+
+    // ==================== WRITER ====================
+
+    private void drain() {
+        while (running || !buffer.isEmpty()) {
+            try {
+                Entry entry = buffer.poll(200, TimeUnit.MILLISECONDS);
+                if (entry != null) {
+                    write(entry);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                logger.warn("Failed to write request log entry: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void write(Entry entry) {
+        String message = entry.prefix + MessageFormatter.arrayFormat(entry.format, entry.args).getMessage();
+        logger.atLevel(entry.level).log(message);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(2000);
+    }
+
+    private static final class Context {
+        final String requestId;
+        final String method;
+        final String path;
+        final boolean sampled;
+        volatile String user;
+
+        Context(String requestId, String method, String path, boolean sampled) {
+            this.requestId = requestId;
+            this.method = method;
+            this.path = path;
+            this.sampled = sampled;
+        }
+    }
+
+    private record Entry(Level level, String prefix, String format, Object[] args) {}
+}
@@ -3,8 +3,10 @@ package com.spotify.backend.config;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -20,6 +22,7 @@ import java.util.Arrays;
 
 @Configuration
 @EnableWebSecurity
+@EnableMethodSecurity // Enforces the controllers' @PreAuthorize
 public class SecurityConfig {
 
     @Autowired
@@ -37,6 +40,9 @@ public class SecurityConfig {
                         .requestMatchers("/api/debug/**").permitAll() // Debug endpoints
                         .requestMatchers("/api/test/**").permitAll()  // Test endpoints
                         .requestMatchers("/", "/error", "/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll() // Probes and scraping
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/api/indexing/reconcile").hasRole("ADMIN")
                         .anyRequest().authenticated() // All other endpoints require auth
                 )
                 .sessionManagement(session -> session
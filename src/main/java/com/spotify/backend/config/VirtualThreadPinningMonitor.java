@@ -0,0 +1,134 @@
+package com.spotify.backend.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pinning detector for virtual-thread mode ({@code spring.threads.virtual.enabled=true}).
+ *
+ * Streams the JFR {@code jdk.VirtualThreadPinned} event in-process: a virtual thread that
+ * blocks inside a synchronized block or a native frame holds its carrier for the whole
+ * wait, which on Java 21 quietly shrinks the carrier pool. Each pin longer than the
+ * threshold is counted against the first application frame of its stack (or the top
+ * frame if none), and the first pin per site is logged with its stack.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.spotify.backend.";
+    private static final int MAX_SITES = 200;
+
+    private final Duration threshold;
+    private final Map<String, LongAdder> pinsBySite = new ConcurrentHashMap<>();
+    private final AtomicLong totalPins = new AtomicLong();
+    private final AtomicLong totalPinnedNanos = new AtomicLong();
+
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(@Value("${virtual-threads.pinning.threshold-ms:20}") long thresholdMs) {
+        this.threshold = Duration.ofMillis(thresholdMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        try {
+            stream = new RecordingStream();
+            stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+            stream.onEvent(PINNED_EVENT, this::record);
+            stream.startAsync();
+            logger.info("Virtual thread pinning monitor started (threshold {} ms)", threshold.toMillis());
+        } catch (RuntimeException e) {
+            // JFR can be unavailable (e.g. disabled in the runtime image); the app runs without the detector
+            logger.warn("Virtual thread pinning monitor not started: {}", e.getMessage());
+            stream = null;
+        }
+    }
+
+    private void record(RecordedEvent event) {
+        totalPins.incrementAndGet();
+        totalPinnedNanos.addAndGet(event.getDuration().toNanos());
+
+        String site = site(event.getStackTrace());
+        LongAdder counter = pinsBySite.get(site);
+        if (counter == null) {
+            if (pinsBySite.size() >= MAX_SITES) return;
+            counter = pinsBySite.computeIfAbsent(site, s -> new LongAdder());
+            logger.warn("Virtual thread pinned for {} ms at {}\n{}", event.getDuration().toMillis(), site,
+                    format(event.getStackTrace()));
+        }
+        counter.increment();
+    }
+
+    private static String site(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) return "unknown";
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        for (RecordedFrame frame : frames) {
+            if (frame.isJavaFrame() && frame.getMethod().getType().getName().startsWith(APP_PACKAGE)) {
+                return describe(frame);
+            }
+        }
+        return describe(frames.get(0));
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    private static String format(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) return "";
+        StringBuilder sb = new StringBuilder();
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            sb.append("\tat ").append(describe(frame)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Long> sites = new LinkedHashMap<>();
+        pinsBySite.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .forEach(e -> sites.put(e.getKey(), e.getValue().sum()));
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("monitoring", stream != null);
+        snapshot.put("thresholdMs", threshold.toMillis());
+        snapshot.put("pinnedEvents", totalPins.get());
+        snapshot.put("pinnedMillis", Duration.ofNanos(totalPinnedNanos.get()).toMillis());
+        snapshot.put("sites", sites);
+        return snapshot;
+    }
+
+    public void reset() {
+        pinsBySite.clear();
+        totalPins.set(0);
+        totalPinnedNanos.set(0);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
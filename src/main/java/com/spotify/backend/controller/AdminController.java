@@ -2,7 +2,13 @@ package com.spotify.backend.controller;
 
 import com.spotify.backend.model.*;
 import com.spotify.backend.repository.*;
+import com.spotify.backend.service.AdminStatsService;
+import com.spotify.backend.service.DashboardStatsService;
+import com.spotify.backend.service.PlaylistService;
+import com.spotify.backend.service.SongService;
+import com.spotify.backend.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
@@ -10,12 +16,16 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
-import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 @RestController
@@ -33,69 +43,84 @@ public class AdminController {
     private ArtistRepository artistRepository;
 
     @Autowired
-    private AlbumRepository albumRepository;
+    private PlaylistRepository playlistRepository;
 
     @Autowired
-    private PlaylistRepository playlistRepository;
+    private AdminStatsService adminStatsService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private SongService songService;
+
+    @Autowired
+    private PlaylistService playlistService;
 
     @Autowired
-    private GenreRepository genreRepository;
+    private DashboardStatsService dashboardStatsService;
+
+    @Value("${admin-stats.query-timeout:2s}")
+    private Duration statsQueryTimeout;
 
     // ==================== COMPLETE ADMIN STATISTICS ====================
 
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getAdminStats() {
-        Map<String, Object> stats = new HashMap<>();
-
+    public ResponseEntity<Map<String, Object>> getAdminStats(@RequestParam(defaultValue = "false") boolean exact) {
+        Instant yesterday = Instant.now().minus(1, ChronoUnit.DAYS);
+        Instant lastWeek = Instant.now().minus(7, ChronoUnit.DAYS);
+        Instant last30Days = Instant.now().minus(30, ChronoUnit.DAYS);
+
+        // Independent queries, issued concurrently; totals are estimated unless ?exact=true.
+        // All of them go through adminStatsService so each carries the fan-out deadline as maxTimeMS
+        Map<String, Callable<?>> queries = new LinkedHashMap<>();
         // 1. Basic Counts
-        stats.put("totalUsers", userRepository.count());
-        stats.put("totalSongs", songRepository.count());
-        stats.put("totalArtists", artistRepository.count());
-        stats.put("totalAlbums", albumRepository.count());
-        stats.put("totalPlaylists", playlistRepository.count());
-        stats.put("totalGenres", genreRepository.count());
-
+        queries.put("totalUsers", () -> exact ? adminStatsService.exactCount(User.class) : adminStatsService.estimatedCount(User.class));
+        queries.put("totalSongs", () -> exact ? adminStatsService.exactCount(Song.class) : adminStatsService.estimatedCount(Song.class));
+        queries.put("totalArtists", () -> exact ? adminStatsService.exactCount(Artist.class) : adminStatsService.estimatedCount(Artist.class));
+        queries.put("totalAlbums", () -> exact ? adminStatsService.exactCount(Album.class) : adminStatsService.estimatedCount(Album.class));
+        queries.put("totalPlaylists", () -> exact ? adminStatsService.exactCount(Playlist.class) : adminStatsService.estimatedCount(Playlist.class));
+        queries.put("totalGenres", () -> exact ? adminStatsService.exactCount(Genre.class) : adminStatsService.estimatedCount(Genre.class));
         // 2. Today's Activity
-        String today = Instant.now().toString();
-        String yesterday = Instant.now().minus(1, ChronoUnit.DAYS).toString();
-
-        stats.put("todayNewUsers", userRepository.countByJoinDateAfter(yesterday));
-        stats.put("todayNewSongs", songRepository.countByCreatedAtAfter(yesterday));
-
-        // 3. Active Users (users active in last 7 days)
-        String lastWeek = Instant.now().minus(7, ChronoUnit.DAYS).toString();
-        long activeUsers = userRepository.findAll().stream()
-                .filter(user -> {
-                    if (user.getLastActive() == null) return false;
-                    return user.getLastActive().compareTo(lastWeek) > 0;
-                })
-                .count();
-        stats.put("activeUsers", activeUsers);
-
+        queries.put("todayNewUsers", () -> adminStatsService.exactCount(User.class, "joinDate", yesterday));
+        queries.put("todayNewSongs", () -> adminStatsService.exactCount(Song.class, "createdAt", yesterday));
+        // 3. Active Users (users active in last 7 days) and role distribution, one $facet
+        queries.put("userActivity", () -> adminStatsService.getUserActivity(lastWeek));
         // 4. Platform Growth (last 30 days users)
-        String last30Days = Instant.now().minus(30, ChronoUnit.DAYS).toString();
-        long newUsersLast30Days = userRepository.countByJoinDateAfter(last30Days);
-        stats.put("newUsersLast30Days", newUsersLast30Days);
-
+        queries.put("newUsersLast30Days", () -> adminStatsService.exactCount(User.class, "joinDate", last30Days));
         // 5. Most Played Song
-        Optional<Song> mostPlayedSong = songRepository.findAll().stream()
-                .max(Comparator.comparingLong(Song::getPlayCount));
-        mostPlayedSong.ifPresent(song ->
-                stats.put("mostPlayedSong", Map.of(
-                        "title", song.getTitle(),
-                        "plays", song.getPlayCount(),
-                        "artist", song.getArtist_id()
-                ))
-        );
-
-        // 6. User Role Distribution
-        Map<String, Long> roleDistribution = userRepository.findAll().stream()
-                .collect(Collectors.groupingBy(
-                        user -> user.getRole() != null ? user.getRole() : "USER",
-                        Collectors.counting()
-                ));
-        stats.put("roleDistribution", roleDistribution);
+        queries.put("mostPlayedSong", () -> adminStatsService.getMostPlayedSong());
+
+        AdminStatsService.FanOut fanOut = adminStatsService.fanOut(queries, statsQueryTimeout);
+        Map<String, Object> results = fanOut.results();
+
+        Map<String, Object> stats = new HashMap<>();
+        for (String key : List.of("totalUsers", "totalSongs", "totalArtists", "totalAlbums", "totalPlaylists",
+                "totalGenres", "todayNewUsers", "todayNewSongs", "newUsersLast30Days")) {
+            if (results.containsKey(key)) stats.put(key, results.get(key));
+        }
+
+        if (results.get("userActivity") instanceof Map<?, ?> userActivity) {
+            stats.put("activeUsers", userActivity.get("activeUsers"));
+            // 6. User Role Distribution (from the same $facet as active users)
+            stats.put("roleDistribution", userActivity.get("roleDistribution"));
+        }
 
+        if (results.get("mostPlayedSong") instanceof Optional<?> mostPlayed) {
+            mostPlayed.map(Song.class::cast).ifPresent(song ->
+                    stats.put("mostPlayedSong", Map.of(
+                            "title", song.getTitle(),
+                            "plays", song.getPlayCount(),
+                            "artist", song.getArtist_id()
+                    ))
+            );
+        }
+
+        stats.put("countsEstimated", !exact);
+        if (fanOut.isPartial()) {
+            stats.put("partial", true);
+            stats.put("unavailable", fanOut.unavailable());
+        }
         return ResponseEntity.ok(stats);
     }
 
@@ -103,17 +128,13 @@ public class AdminController {
     public ResponseEntity<Map<String, Object>> getGenreStats() {
         Map<String, Object> response = new HashMap<>();
 
-        // 1. Genre Distribution from Songs
-        Map<String, Long> genreDistribution = songRepository.findAll().stream()
-                .filter(song -> song.getGenre() != null && !song.getGenre().isEmpty())
-                .collect(Collectors.groupingBy(Song::getGenre, Collectors.counting()));
+        // 1. Genre Distribution from Songs (materialized in dashboard_stats)
+        Map<String, Long> genreDistribution = dashboardStatsService.getSongCountsByGenre();
 
         response.put("songGenres", genreDistribution);
 
         // 2. Genre Distribution from Artists
-        Map<String, Long> artistGenres = artistRepository.findAll().stream()
-                .filter(artist -> artist.getGenre() != null && !artist.getGenre().isEmpty())
-                .collect(Collectors.groupingBy(Artist::getGenre, Collectors.counting()));
+        Map<String, Long> artistGenres = adminStatsService.countByField(Artist.class, "genre");
 
         response.put("artistGenres", artistGenres);
 
@@ -138,35 +159,8 @@ public class AdminController {
     public ResponseEntity<Map<String, Object>> getArtistStats() {
         Map<String, Object> response = new HashMap<>();
 
-        // 1. Top Artists by Song Count
-        Map<String, Long> artistSongCount = songRepository.findAll().stream()
-                .filter(song -> song.getArtist_id() != null)
-                .collect(Collectors.groupingBy(Song::getArtist_id, Collectors.counting()));
-
-        // 2. Top Artists by Total Plays
-        Map<String, Long> artistTotalPlays = new HashMap<>();
-        songRepository.findAll().forEach(song -> {
-            if (song.getArtist_id() != null) {
-                artistTotalPlays.merge(song.getArtist_id(), song.getPlayCount(), Long::sum);
-            }
-        });
-
-        // 3. Top 5 Artists by Plays
-        List<Map<String, Object>> topArtists = artistTotalPlays.entrySet().stream()
-                .sorted((e1, e2) -> Long.compare(e2.getValue(), e1.getValue()))
-                .limit(5)
-                .map(entry -> {
-                    String artistId = entry.getKey();
-                    Optional<Artist> artistOpt = artistRepository.findById(artistId);
-
-                    Map<String, Object> artistData = new HashMap<>();
-                    artistData.put("artistId", artistId);
-                    artistData.put("name", artistOpt.map(Artist::getName).orElse("Unknown Artist"));
-                    artistData.put("totalPlays", entry.getValue());
-                    artistData.put("songCount", artistSongCount.getOrDefault(artistId, 0L));
-                    return artistData;
-                })
-                .collect(Collectors.toList());
+        // Top 5 Artists by Plays, with their song count
+        List<Map<String, Object>> topArtists = adminStatsService.getTopArtistsByPlays(5);
 
         response.put("topArtists", topArtists);
         response.put("totalArtists", artistRepository.count());
@@ -175,47 +169,42 @@ public class AdminController {
     }
 
     @GetMapping("/stats/daily")
-    public ResponseEntity<Map<String, Object>> getDailyStats(@RequestParam(defaultValue = "7") int days) {
-        Map<String, Object> response = new HashMap<>();
+    public ResponseEntity<Map<String, Object>> getDailyStats(@RequestParam(defaultValue = "7") int days,
+                                                             @RequestParam(defaultValue = "day") String granularity) {
+        ChronoUnit unit = switch (granularity) {
+            case "day" -> ChronoUnit.DAYS;
+            case "week" -> ChronoUnit.WEEKS;
+            case "month" -> ChronoUnit.MONTHS;
+            default -> null;
+        };
+        if (unit == null || days < 1) {
+            return ResponseEntity.badRequest().body(Map.of("error", "granularity must be day, week or month and days >= 1"));
+        }
+
+        // UTC days, matching the stored timestamps; the first week/month bucket is widened to its start
+        LocalDate endDate = LocalDate.now(ZoneOffset.UTC);
+        LocalDate startDate = bucketStart(endDate.minusDays(days - 1), unit);
+        Instant from = startDate.atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant to = endDate.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
 
-        LocalDate endDate = LocalDate.now();
-        LocalDate startDate = endDate.minusDays(days - 1);
+        // One aggregation for both series
+        Map<String, Map<Instant, Long>> counts = adminStatsService.getNewUsersAndSongs(from, to, granularity);
 
         List<String> dateLabels = new ArrayList<>();
         List<Long> newUsersData = new ArrayList<>();
         List<Long> newSongsData = new ArrayList<>();
 
-        // Get all users and songs
-        List<User> allUsers = userRepository.findAll();
-        List<Song> allSongs = songRepository.findAll();
-
         DateTimeFormatter formatter = DateTimeFormatter.ISO_DATE;
 
-        for (int i = 0; i < days; i++) {
-            LocalDate currentDate = startDate.plusDays(i);
-            String dateStr = currentDate.format(formatter);
-            dateLabels.add(dateStr);
-
-            // Count users joined on this date
-            long usersCount = allUsers.stream()
-                    .filter(user -> {
-                        if (user.getJoinDate() == null) return false;
-                        return user.getJoinDate().startsWith(dateStr);
-                    })
-                    .count();
-            newUsersData.add(usersCount);
-
-            // Count songs created on this date (if you have createdAt field)
-            long songsCount = allSongs.stream()
-                    .filter(song -> {
-                        // Assuming Song has getCreatedAt() method
-                        // If not, you might need to add it or use another field
-                        return true; // Placeholder - adjust based on your Song model
-                    })
-                    .count();
-            newSongsData.add(songsCount);
+        for (LocalDate bucket = startDate; !bucket.isAfter(endDate); bucket = bucket.plus(1, unit)) {
+            Instant key = bucket.atStartOfDay(ZoneOffset.UTC).toInstant();
+            dateLabels.add(bucket.format(formatter));
+            newUsersData.add(counts.get("users").getOrDefault(key, 0L));
+            newSongsData.add(counts.get("songs").getOrDefault(key, 0L));
         }
 
+        Map<String, Object> response = new HashMap<>();
+        response.put("granularity", granularity);
         response.put("labels", dateLabels);
         response.put("newUsers", newUsersData);
         response.put("newSongs", newSongsData);
@@ -223,43 +212,38 @@ public class AdminController {
         return ResponseEntity.ok(response);
     }
 
+    // Monday of the week / first of the month, matching $dateTrunc in AdminStatsService
+    private static LocalDate bucketStart(LocalDate date, ChronoUnit unit) {
+        return switch (unit) {
+            case WEEKS -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTHS -> date.withDayOfMonth(1);
+            default -> date;
+        };
+    }
+
     @GetMapping("/stats/platform")
     public ResponseEntity<Map<String, Object>> getPlatformStats() {
         Map<String, Object> response = new HashMap<>();
 
-        // 1. Average Songs per Playlist
-        List<Playlist> allPlaylists = playlistRepository.findAll();
-        double avgSongsPerPlaylist = allPlaylists.stream()
-                .mapToInt(playlist -> playlist.getSongIds() != null ? playlist.getSongIds().size() : 0)
-                .average()
-                .orElse(0.0);
+        // 1. Average Songs per Playlist + 3. Most Active User, in one $facet
+        Map<String, Object> playlistStats = adminStatsService.getPlaylistStats();
+        double avgSongsPerPlaylist = (double) playlistStats.get("avgSongsPerPlaylist");
         response.put("avgSongsPerPlaylist", Math.round(avgSongsPerPlaylist * 100.0) / 100.0);
 
         // 2. Average Plays per Song
-        List<Song> allSongs = songRepository.findAll();
-        double avgPlaysPerSong = allSongs.stream()
-                .mapToLong(Song::getPlayCount)
-                .average()
-                .orElse(0.0);
+        double avgPlaysPerSong = adminStatsService.getAveragePlaysPerSong();
         response.put("avgPlaysPerSong", Math.round(avgPlaysPerSong * 100.0) / 100.0);
 
         // 3. Most Active User (most playlists created)
-        Map<String, Long> userPlaylistCount = allPlaylists.stream()
-                .filter(playlist -> playlist.getCreatedBy() != null)
-                .collect(Collectors.groupingBy(Playlist::getCreatedBy, Collectors.counting()));
-
-        Optional<Map.Entry<String, Long>> mostActiveUser = userPlaylistCount.entrySet().stream()
-                .max(Map.Entry.comparingByValue());
-
-        mostActiveUser.ifPresent(entry -> {
-            Optional<User> userOpt = userRepository.findById(entry.getKey());
-            userOpt.ifPresent(user -> {
-                response.put("mostActiveUser", Map.of(
-                        "username", user.getUsername(),
-                        "playlistCount", entry.getValue()
-                ));
-            });
-        });
+        String topCreatorId = (String) playlistStats.get("topCreatorId");
+        if (topCreatorId != null) {
+            userRepository.findById(topCreatorId).ifPresent(user ->
+                    response.put("mostActiveUser", Map.of(
+                            "username", user.getUsername(),
+                            "playlistCount", playlistStats.get("topCreatorPlaylistCount")
+                    ))
+            );
+        }
 
         return ResponseEntity.ok(response);
     }
@@ -327,34 +311,22 @@ public class AdminController {
             @PathVariable String id,
             @RequestBody Map<String, Object> updates) {
 
-        Optional<User> userOpt = userRepository.findById(id);
-        if (userOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
-
-        User user = userOpt.get();
-
-        // Update fields if present in request
-        if (updates.containsKey("username")) {
-            user.setUsername((String) updates.get("username"));
-        }
-        if (updates.containsKey("email")) {
-            user.setEmail((String) updates.get("email"));
-        }
-        if (updates.containsKey("displayName")) {
-            user.setDisplayName((String) updates.get("displayName"));
-        }
-        if (updates.containsKey("role")) {
-            user.setRole((String) updates.get("role"));
-        }
-        if (updates.containsKey("profilePicture")) {
-            user.setProfilePicture((String) updates.get("profilePicture"));
+        // Update fields if present in request; only those are written
+        Map<String, Object> fields = new HashMap<>();
+        for (String field : List.of("username", "email", "displayName", "role", "profilePicture")) {
+            if (updates.containsKey(field)) {
+                fields.put(field, (String) updates.get(field));
+            }
         }
         if (updates.containsKey("isActive")) {
             // You might want to add an isActive field to User model
         }
 
-        User updatedUser = userRepository.save(user);
+        // Also drops the cached principal, as role or email may have changed
+        User updatedUser = fields.isEmpty() ? userRepository.findById(id).orElse(null) : userService.setFields(id, fields);
+        if (updatedUser == null) {
+            return ResponseEntity.notFound().build();
+        }
         return ResponseEntity.ok(updatedUser);
     }
 
@@ -372,8 +344,7 @@ public class AdminController {
         // adminLogService.logAction("USER_BAN", "Banned user: " + user.getUsername(), reason);
 
         // Update user status (you might need to add a status field)
-        // user.setStatus("BANNED");
-        userRepository.save(user);
+        // userService.setFields(id, Map.of("status", "BANNED"));
 
         return ResponseEntity.ok(Map.of(
                 "message", "User banned successfully",
@@ -411,6 +382,14 @@ public class AdminController {
 
         Page<Playlist> playlistsPage = playlistRepository.findAll(PageRequest.of(page, size));
 
+        // Creator usernames for the whole page in one $in query
+        Set<String> creatorIds = playlistsPage.getContent().stream()
+                .map(Playlist::getCreatedBy)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, String> creatorNames = new HashMap<>();
+        userRepository.findAllById(creatorIds).forEach(user -> creatorNames.put(user.getId(), user.getUsername()));
+
         // Enrich playlists with creator info
         List<Map<String, Object>> enrichedPlaylists = playlistsPage.getContent().stream()
                 .map(playlist -> {
@@ -418,8 +397,10 @@ public class AdminController {
                     enriched.put("playlist", playlist);
 
                     // Add creator username
-                    userRepository.findById(playlist.getCreatedBy())
-                            .ifPresent(user -> enriched.put("creator", user.getUsername()));
+                    String creator = creatorNames.get(playlist.getCreatedBy());
+                    if (creator != null) {
+                        enriched.put("creator", creator);
+                    }
 
                     return enriched;
                 })
@@ -442,7 +423,8 @@ public class AdminController {
         }
 
         try {
-            songRepository.deleteById(id);
+            // Through the service so play counters and the catalog cache are cleaned up
+            songService.delete(id);
             // Log the action
             // adminLogService.logAction("SONG_DELETE", "Deleted song ID: " + id);
 
@@ -461,7 +443,7 @@ public class AdminController {
         }
 
         try {
-            playlistRepository.deleteById(id);
+            playlistService.deletePlaylist(id);
             // Log the action
             // adminLogService.logAction("PLAYLIST_DELETE", "Deleted playlist ID: " + id);
 
@@ -26,12 +26,19 @@ public class AlbumController {
     public ResponseEntity<?> getAllAlbums(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) String search
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal
     ) {
         if (page < 0) page = 0;
         if (size <= 0) size = 10;
         if (size > 100) size = 100;
 
+        // Cursor mode (?cursor= for the first page, then nextCursor); page/size stays the default
+        if (cursor != null) {
+            return ResponseEntity.ok(albumService.getByCursor(cursor, size, search, includeTotal));
+        }
+
         return ResponseEntity.ok(albumService.getPaginated(page, size, search));
     }
 
@@ -39,7 +46,7 @@ public class AlbumController {
     // ▶ Get album by ID
     @GetMapping("/{id}")
     public ResponseEntity<?> getAlbumById(@PathVariable String id) {
-        Optional<Album> album = albumRepository.findById(id);
+        Optional<Album> album = albumService.getById(id);
         return album.isPresent()
                 ? ResponseEntity.ok(album.get())
                 : ResponseEntity.status(404).body("Album not found");
@@ -58,7 +65,7 @@ public class AlbumController {
         if (album.getId() == null) {
             album.setId(new ObjectId().toHexString());
         }
-        return albumRepository.save(album);
+        return albumService.create(album);
     }
 
     // ▶ Update album
@@ -67,31 +74,21 @@ public class AlbumController {
             @PathVariable String id,
             @RequestBody Album payload) {
 
-        Optional<Album> existingOpt = albumRepository.findById(id);
+        // Goes through the service so the cached album is evicted
+        Album updated = albumService.update(id, payload);
 
-        if (existingOpt.isEmpty()) {
+        if (updated == null) {
             return ResponseEntity.status(404).body("Album not found");
         }
-
-        Album existing = existingOpt.get();
-
-        existing.setTitle(payload.getTitle());
-        existing.setArtist_id(payload.getArtist_id());
-        existing.setReleaseDate(payload.getReleaseDate());
-        existing.setCoverArt(payload.getCoverArt());
-        existing.setGenre(payload.getGenre());
-
-        albumRepository.save(existing);
-        return ResponseEntity.ok(existing);
+        return ResponseEntity.ok(updated);
     }
 
     // ▶ Delete album
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteAlbum(@PathVariable String id) {
-        if (!albumRepository.existsById(id)) {
+        if (!albumService.delete(id)) {
             return ResponseEntity.status(404).body("Album not found");
         }
-        albumRepository.deleteById(id);
         return ResponseEntity.ok("Album deleted");
     }
     // Add this method to debug
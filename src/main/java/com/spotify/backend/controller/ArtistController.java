@@ -26,12 +26,19 @@ public class ArtistController {
     public ResponseEntity<?> getAllArtists(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) String search
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal
     ) {
         if (page < 0) page = 0;
         if (size <= 0) size = 10;
         if (size > 100) size = 100;
 
+        // Cursor mode (?cursor= for the first page, then nextCursor); page/size stays the default
+        if (cursor != null) {
+            return ResponseEntity.ok(artistService.getByCursor(cursor, size, search, includeTotal));
+        }
+
         return ResponseEntity.ok(artistService.getPaginated(page, size, search));
     }
 
@@ -39,7 +46,7 @@ public class ArtistController {
     // ▶ Get artist by ID
     @GetMapping("/{id}")
     public ResponseEntity<?> getArtistById(@PathVariable String id) {
-        Optional<Artist> artist = artistRepository.findById(id);
+        Optional<Artist> artist = artistService.getById(id);
         return artist.isPresent()
                 ? ResponseEntity.ok(artist.get())
                 : ResponseEntity.status(404).body("Artist not found");
@@ -48,7 +55,7 @@ public class ArtistController {
     // ▶ Add new artist
     @PostMapping
     public Artist createArtist(@RequestBody Artist artist) {
-        return artistRepository.save(artist);
+        return artistService.create(artist);
     }
 
     // ▶ Update artist
@@ -57,30 +64,21 @@ public class ArtistController {
             @PathVariable String id,
             @RequestBody Artist payload) {
 
-        Optional<Artist> existingOpt = artistRepository.findById(id);
+        // Goes through the service so the cached artist is evicted
+        Artist updated = artistService.update(id, payload);
 
-        if (existingOpt.isEmpty()) {
+        if (updated == null) {
             return ResponseEntity.status(404).body("Artist not found");
         }
-
-        Artist existing = existingOpt.get();
-
-        existing.setName(payload.getName());
-        existing.setBio(payload.getBio());
-        existing.setGenre(payload.getGenre());
-        existing.setPicture(payload.getPicture());
-
-        artistRepository.save(existing);
-        return ResponseEntity.ok(existing);
+        return ResponseEntity.ok(updated);
     }
 
     // ▶ Delete artist
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteArtist(@PathVariable String id) {
-        if (!artistRepository.existsById(id)) {
+        if (!artistService.delete(id)) {
             return ResponseEntity.status(404).body("Artist not found");
         }
-        artistRepository.deleteById(id);
         return ResponseEntity.ok("Artist deleted");
     }
 }
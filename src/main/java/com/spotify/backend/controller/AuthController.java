@@ -137,7 +137,7 @@ public class AuthController {
             user.setDisplayName(registerRequest.getDisplayName() != null ?
                     registerRequest.getDisplayName().trim() : registerRequest.getUsername());
             user.setProfilePicture(registerRequest.getProfilePicture());
-            user.setJoinDate(Instant.now().toString());
+            user.setJoinDate(Instant.now());
             user.setRole(registerRequest.getRole() != null ? registerRequest.getRole() : "USER");
 
             User savedUser = userRepository.save(user);
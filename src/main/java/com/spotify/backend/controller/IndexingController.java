@@ -1,11 +1,14 @@
 package com.spotify.backend.controller;
 
 import com.mongodb.client.MongoCollection;
+import com.spotify.backend.config.IndexReconciler;
+import com.spotify.backend.config.RequestLog;
 import com.mongodb.client.model.Indexes;
 import com.mongodb.client.model.IndexOptions;
 import org.bson.Document;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -20,13 +23,37 @@ public class IndexingController {
     @Autowired
     private MongoTemplate mongoTemplate;
 
+    @Autowired
+    private RequestLog requestLog;
+
+    @Autowired
+    private IndexReconciler indexReconciler;
+
+    /**
+     * Declared (model annotations) vs existing indexes: missing, unused and undeclared
+     */
+    @GetMapping("/report")
+    public ResponseEntity<?> getIndexReport() {
+        return ResponseEntity.ok(indexReconciler.report());
+    }
+
+    /**
+     * Create any declared index that is missing (also runs at startup)
+     */
+    @PostMapping("/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> reconcileIndexes() {
+        requestLog.info("Reconciling declared indexes");
+        return ResponseEntity.ok(indexReconciler.reconcile());
+    }
+
     /**
      * DEMO: Create indexes using modern MongoDB driver
      */
     @PostMapping("/create-indexes")
     public ResponseEntity<?> createPerformanceIndexes() {
 
-        System.out.println("📈 CREATING INDEXES with modern MongoDB driver");
+        requestLog.info("Creating performance indexes");
 
         // Get collections
         MongoCollection<Document> songsCollection =
@@ -94,7 +121,7 @@ public class IndexingController {
                 partialOptions
         );
 
-        System.out.println("✅ Indexes created successfully");
+        requestLog.info("Performance indexes created");
 
         return ResponseEntity.ok(Map.of(
                 "message", "Indexes created using modern MongoDB driver",
@@ -155,7 +182,7 @@ public class IndexingController {
     @GetMapping("/query-performance")
     public ResponseEntity<?> compareQueryPerformance() {
 
-        System.out.println("⚡ Testing query performance...");
+        requestLog.debug("Running explain for query performance comparison");
 
         // Simulate query with explain()
         Document explainCommand = new Document("explain",
@@ -214,7 +241,7 @@ public class IndexingController {
 
         try {
             // Don't actually drop in demo, just show the command
-            System.out.println("Would drop index: " + indexName);
+            requestLog.info("Would drop index: {}", indexName);
             // mongoTemplate.getCollection("songs").dropIndex(indexName);
 
             return ResponseEntity.ok(Map.of(
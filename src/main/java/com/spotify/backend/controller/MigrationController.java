@@ -0,0 +1,68 @@
+package com.spotify.backend.controller;
+
+import com.spotify.backend.config.DateFieldMigration;
+import com.spotify.backend.config.PlaylistTrackChecker;
+import com.spotify.backend.config.PlaylistTrackMigration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/migrations")
+@PreAuthorize("hasRole('ADMIN')")
+public class MigrationController {
+
+    private final DateFieldMigration dateFieldMigration;
+    private final PlaylistTrackMigration playlistTrackMigration;
+    private final PlaylistTrackChecker playlistTrackChecker;
+
+    public MigrationController(DateFieldMigration dateFieldMigration,
+                               PlaylistTrackMigration playlistTrackMigration,
+                               PlaylistTrackChecker playlistTrackChecker) {
+        this.dateFieldMigration = dateFieldMigration;
+        this.playlistTrackMigration = playlistTrackMigration;
+        this.playlistTrackChecker = playlistTrackChecker;
+    }
+
+    @GetMapping("/date-fields")
+    public ResponseEntity<Map<String, Object>> getDateFieldStatus() {
+        return ResponseEntity.ok(dateFieldMigration.status());
+    }
+
+    // Resume or re-check the migration in the background (it also runs at startup)
+    @PostMapping("/date-fields")
+    public ResponseEntity<Map<String, Object>> runDateFieldMigration() {
+        Thread.ofVirtual().name("date-field-migration").start(dateFieldMigration::run);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("message", "Date field migration started"));
+    }
+
+    @GetMapping("/playlist-tracks")
+    public ResponseEntity<Map<String, Object>> getPlaylistTrackStatus() {
+        return ResponseEntity.ok(playlistTrackMigration.status());
+    }
+
+    @PostMapping("/playlist-tracks")
+    public ResponseEntity<Map<String, Object>> runPlaylistTrackMigration() {
+        Thread.ofVirtual().name("playlist-track-migration").start(playlistTrackMigration::run);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("message", "Playlist track migration started"));
+    }
+
+    // Report only; the scheduled check's last report is included as "previous"
+    @GetMapping("/playlist-tracks/consistency")
+    public ResponseEntity<Map<String, Object>> checkPlaylistTracks() {
+        Map<String, Object> previous = playlistTrackChecker.lastReport();
+        Map<String, Object> report = new LinkedHashMap<>(playlistTrackChecker.check(false));
+        report.put("previous", previous);
+        return ResponseEntity.ok(report);
+    }
+
+    // Check and repair what can be derived from the buckets (counts, empty buckets, duplicates)
+    @PostMapping("/playlist-tracks/consistency")
+    public ResponseEntity<Map<String, Object>> repairPlaylistTracks() {
+        return ResponseEntity.ok(playlistTrackChecker.check(true));
+    }
+}
@@ -3,6 +3,7 @@ package com.spotify.backend.controller;
 import com.spotify.backend.model.Playlist;
 import com.spotify.backend.repository.PlaylistRepository;
 import com.spotify.backend.service.PlaylistService;
+import com.spotify.backend.service.PlaylistTrackStore;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -92,6 +93,8 @@ public class PlaylistController {
 
             Playlist created = playlistService.createPlaylist(playlist);
             return ResponseEntity.ok(created);
+        } catch (PlaylistTrackStore.BusyException e) {
+            throw e;
         } catch (Exception e) {
             return errorResponse("Failed to create playlist: " + e.getMessage(), HttpStatus.BAD_REQUEST);
         }
@@ -113,12 +116,19 @@ public class PlaylistController {
     public ResponseEntity<?> getAllPlaylists(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) String search
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal
     ) {
         if (page < 0) page = 0;
         if (size <= 0) size = 10;
         if (size > 100) size = 100;
 
+        // Cursor mode (?cursor= for the first page, then nextCursor); page/size stays the default
+        if (cursor != null) {
+            return ResponseEntity.ok(playlistService.getByCursor(cursor, size, search, includeTotal));
+        }
+
         return ResponseEntity.ok(playlistService.getPaginated(page, size, search));
     }
 
@@ -137,6 +147,45 @@ public class PlaylistController {
         }
     }
 
+    // Page through a playlist's tracks (?cursor= from tracksCursor or the previous nextCursor)
+    @GetMapping("/{id}/tracks")
+    public ResponseEntity<?> getPlaylistTracks(
+            @PathVariable String id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        if (limit <= 0) limit = 50;
+        if (limit > 500) limit = 500;
+
+        Map<String, Object> tracks = playlistService.getTracks(id, cursor, limit);
+        if (tracks == null) {
+            return errorResponse("Playlist not found", HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.ok(tracks);
+    }
+
+    // Move a track: {"songId": ..., "afterSongId": ...} or {"songId": ..., "beforeSongId": ...}
+    @PostMapping("/{playlistId}/tracks/move")
+    public ResponseEntity<?> moveTrack(
+            @PathVariable String playlistId,
+            @RequestBody Map<String, String> request) {
+        String songId = request.get("songId");
+        String afterSongId = request.get("afterSongId");
+        String beforeSongId = request.get("beforeSongId");
+        if (songId == null || (afterSongId == null) == (beforeSongId == null)) {
+            return errorResponse("Provide songId and exactly one of afterSongId or beforeSongId", HttpStatus.BAD_REQUEST);
+        }
+        try {
+            if (!playlistService.moveTrack(playlistId, songId, afterSongId, beforeSongId)) {
+                return errorResponse("Song not in playlist", HttpStatus.NOT_FOUND);
+            }
+            return successResponse("Track moved");
+        } catch (PlaylistTrackStore.BusyException e) {
+            throw e;
+        } catch (Exception e) {
+            return errorResponse("Failed to move track: " + e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
     // Update playlist
     @PutMapping("/{id}")
     public ResponseEntity<?> updatePlaylist(
@@ -171,10 +220,13 @@ public class PlaylistController {
     @PostMapping("/{playlistId}/songs/{songId}")
     public ResponseEntity<?> addSongToPlaylist(
             @PathVariable String playlistId,
-            @PathVariable String songId) {
+            @PathVariable String songId,
+            @RequestParam(defaultValue = "false") boolean returnPlaylist) {
         try {
-            Playlist updated = playlistService.addSongToPlaylist(playlistId, songId);
-            return ResponseEntity.ok(updated);
+            Playlist updated = playlistService.addSongToPlaylist(playlistId, songId, returnPlaylist);
+            return updated != null ? ResponseEntity.ok(updated) : successResponse("Song added to playlist");
+        } catch (PlaylistTrackStore.BusyException e) {
+            throw e;
         } catch (Exception e) {
             return errorResponse("Failed to add song: " + e.getMessage(), HttpStatus.BAD_REQUEST);
         }
@@ -184,10 +236,13 @@ public class PlaylistController {
     @DeleteMapping("/{playlistId}/songs/{songId}")
     public ResponseEntity<?> removeSongFromPlaylist(
             @PathVariable String playlistId,
-            @PathVariable String songId) {
+            @PathVariable String songId,
+            @RequestParam(defaultValue = "false") boolean returnPlaylist) {
         try {
-            Playlist updated = playlistService.removeSongFromPlaylist(playlistId, songId);
-            return ResponseEntity.ok(updated);
+            Playlist updated = playlistService.removeSongFromPlaylist(playlistId, songId, returnPlaylist);
+            return updated != null ? ResponseEntity.ok(updated) : successResponse("Song removed from playlist");
+        } catch (PlaylistTrackStore.BusyException e) {
+            throw e;
         } catch (Exception e) {
             return errorResponse("Failed to remove song: " + e.getMessage(), HttpStatus.BAD_REQUEST);
         }
@@ -197,21 +252,25 @@ public class PlaylistController {
     @PostMapping("/{playlistId}/songs/batch")
     public ResponseEntity<?> addSongsToPlaylist(
             @PathVariable String playlistId,
-            @RequestBody Map<String, List<String>> request) {
+            @RequestBody Map<String, List<String>> request,
+            @RequestParam(defaultValue = "false") boolean returnPlaylist) {
         try {
             List<String> songIds = request.get("songIds");
             if (songIds == null || songIds.isEmpty()) {
                 return errorResponse("No songs provided", HttpStatus.BAD_REQUEST);
             }
 
-            Playlist updated = playlistService.addSongsToPlaylist(playlistId, songIds);
-            return ResponseEntity.ok(updated);
+            // Per-id accepted/rejected results; includes the playlist only when requested
+            return ResponseEntity.ok(playlistService.addSongsToPlaylist(playlistId, songIds, returnPlaylist));
+        } catch (PlaylistTrackStore.BusyException e) {
+            throw e;
         } catch (Exception e) {
             return errorResponse("Failed to add songs: " + e.getMessage(), HttpStatus.BAD_REQUEST);
         }
     }
 
-    // Helper methods for responses
+    // Helper methods for responses (a PlaylistTrackStore.BusyException is rethrown instead,
+    // so GlobalExceptionHandler answers 503 with Retry-After)
     private ResponseEntity<Map<String, String>> errorResponse(String message, HttpStatus status) {
         Map<String, String> response = new HashMap<>();
         response.put("error", message);
@@ -245,7 +304,8 @@ public class PlaylistController {
                             "id", p.getId(),
                             "name", p.getName(),
                             "createdBy", p.getCreatedBy(),
-                            "songCount", p.getSongIds() != null ? p.getSongIds().size() : 0
+                            "songCount", p.getTrackCount() != null ? p.getTrackCount()
+                                    : p.getSongIds() != null ? p.getSongIds().size() : 0
                     ))
                     .collect(Collectors.toList()));
             debugInfo.put("userPlaylists", userPlaylists);
@@ -7,7 +7,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,11 +27,12 @@ public class PlaylistSongController {
         PlaylistSong playlistSong = new PlaylistSong();
         playlistSong.setPlaylistId(playlistId);
         playlistSong.setSongId(request.getSongId());
-//        playlistSong..setAddedAt(Instant.now());
-//        playlistSong.setId();setAddedBy(request.getAddedBy());
-//        playlistSong.setPosition(request.getPosition());
+        playlistSong.setPosition(request.getPosition());
 
         PlaylistSong created = playlistSongService.create(playlistSong);
+        if (created == null) { // unknown playlist or song
+            return ResponseEntity.notFound().build();
+        }
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
@@ -114,11 +114,11 @@ public class PlaylistSongController {
     public static class AddSongRequest {
         private String songId;
         private String addedBy;
-        private int position;
+        private Integer position;
 
         public AddSongRequest() {}
 
-        public AddSongRequest(String songId, String addedBy, int position) {
+        public AddSongRequest(String songId, String addedBy, Integer position) {
             this.songId = songId;
             this.addedBy = addedBy;
             this.position = position;
@@ -130,7 +130,7 @@ public class PlaylistSongController {
         public String getAddedBy() { return addedBy; }
         public void setAddedBy(String addedBy) { this.addedBy = addedBy; }
 
-        public int getPosition() { return position; }
-        public void setPosition(int position) { this.position = position; }
+        public Integer getPosition() { return position; }
+        public void setPosition(Integer position) { this.position = position; }
     }
 }
\ No newline at end of file
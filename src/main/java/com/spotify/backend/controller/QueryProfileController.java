@@ -0,0 +1,39 @@
+package com.spotify.backend.controller;
+
+import com.spotify.backend.config.QueryShapeProfiler;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/admin/query-profile")
+@PreAuthorize("hasRole('ADMIN')")
+public class QueryProfileController {
+
+    private static final Set<String> SORTS = Set.of("total", "p99", "count", "docs");
+
+    private final QueryShapeProfiler profiler;
+
+    public QueryProfileController(QueryShapeProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    // Top query shapes by total time (default), p99 latency, call count or documents returned
+    @GetMapping
+    public ResponseEntity<?> getProfile(@RequestParam(defaultValue = "total") String sort,
+                                        @RequestParam(defaultValue = "50") int limit) {
+        if (!SORTS.contains(sort)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "sort must be one of " + SORTS));
+        }
+        return ResponseEntity.ok(profiler.snapshot(sort, Math.max(1, Math.min(limit, 500))));
+    }
+
+    @DeleteMapping
+    public ResponseEntity<?> reset() {
+        profiler.reset();
+        return ResponseEntity.ok(Map.of("message", "Query profile cleared"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.spotify.backend.controller;
+
+import com.spotify.backend.config.RequestLog;
+import org.slf4j.event.Level;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/request-log")
+@PreAuthorize("hasRole('ADMIN')")
+public class RequestLogController {
+
+    private final RequestLog requestLog;
+
+    public RequestLogController(RequestLog requestLog) {
+        this.requestLog = requestLog;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("sampleRate", requestLog.getSampleRate());
+        status.put("level", requestLog.getBaseLevel());
+        status.put("sampledLevel", requestLog.getSampledLevel());
+        status.put("tracedUsers", requestLog.getTracedUsers());
+        status.put("tracedPaths", requestLog.getTracedPaths());
+        status.put("buffered", requestLog.getBufferedCount());
+        status.put("dropped", requestLog.getDroppedCount());
+        return ResponseEntity.ok(status);
+    }
+
+    // Body: any of sampleRate, level, sampledLevel
+    @PutMapping
+    public ResponseEntity<?> updateSettings(@RequestBody Map<String, Object> settings) {
+        try {
+            if (settings.containsKey("sampleRate")) {
+                double rate = ((Number) settings.get("sampleRate")).doubleValue();
+                if (rate < 0 || rate > 1) {
+                    return ResponseEntity.badRequest().body(Map.of("error", "sampleRate must be between 0 and 1"));
+                }
+                requestLog.setSampleRate(rate);
+            }
+            if (settings.containsKey("level")) {
+                requestLog.setBaseLevel(Level.valueOf(settings.get("level").toString().toUpperCase()));
+            }
+            if (settings.containsKey("sampledLevel")) {
+                requestLog.setSampledLevel(Level.valueOf(settings.get("sampledLevel").toString().toUpperCase()));
+            }
+        } catch (IllegalArgumentException | ClassCastException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid setting: " + e.getMessage()));
+        }
+        return getStatus();
+    }
+
+    // Full traces for one user (JWT subject, i.e. email)
+    @PostMapping("/trace/users/{user}")
+    public ResponseEntity<Map<String, Object>> traceUser(@PathVariable String user) {
+        requestLog.traceUser(user);
+        return getStatus();
+    }
+
+    @DeleteMapping("/trace/users/{user}")
+    public ResponseEntity<Map<String, Object>> untraceUser(@PathVariable String user) {
+        requestLog.untraceUser(user);
+        return getStatus();
+    }
+
+    // Full traces for every request whose path starts with the given prefix
+    @PostMapping("/trace/paths")
+    public ResponseEntity<Map<String, Object>> tracePath(@RequestParam String prefix) {
+        requestLog.tracePath(prefix);
+        return getStatus();
+    }
+
+    @DeleteMapping("/trace/paths")
+    public ResponseEntity<Map<String, Object>> untracePath(@RequestParam String prefix) {
+        requestLog.untracePath(prefix);
+        return getStatus();
+    }
+
+    @DeleteMapping("/trace")
+    public ResponseEntity<Map<String, Object>> clearTraces() {
+        requestLog.clearTraces();
+        return getStatus();
+    }
+}
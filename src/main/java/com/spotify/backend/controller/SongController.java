@@ -1,7 +1,10 @@
 package com.spotify.backend.controller;
 
 import com.spotify.backend.model.Song;
+import com.spotify.backend.service.AudioStreamService;
 import com.spotify.backend.service.SongService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -10,11 +13,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -26,16 +25,26 @@ public class SongController {
     @Autowired
     private SongService songService;  // Use Service instead of Repository
 
+    @Autowired
+    private AudioStreamService audioStreamService;
+
     @GetMapping
     public ResponseEntity<?> getAllSongs(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) String search
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal
     ) {
         if (page < 0) page = 0;
         if (size <= 0) size = 10;
         if (size > 100) size = 100;
 
+        // Cursor mode (?cursor= for the first page, then nextCursor); page/size stays the default
+        if (cursor != null) {
+            return ResponseEntity.ok(songService.getByCursor(cursor, size, search, includeTotal));
+        }
+
         return ResponseEntity.ok(songService.getPaginated(page, size, search));
     }
 
@@ -56,32 +65,20 @@ public class SongController {
         return songService.getByGenre(genre);
     }
 
-    // Add to SongController.java
+    // Streams the audio file with Range/If-Range (206), ETag/Last-Modified and sendfile support
     @GetMapping("/{id}/stream")
-    public ResponseEntity<Resource> streamSong(@PathVariable String id) {
-        try {
-            // 1. Get song from database
-            Optional<Song> optionalSong = songService.getById(id);
-            if (!optionalSong.isPresent()) {
-                return ResponseEntity.notFound().build();
-            }
-
-            Song song = optionalSong.get();
-
-            // 2. Get file path (assuming song has 'filePath' field)
-            String filePath = song.getFileUrl(); // e.g., "songs/song1.mp3"
-            Path path = Paths.get(filePath);
-            Resource resource = new UrlResource(path.toUri());
-
-            // 3. Stream the file
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType("audio/mpeg"))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                    .body(resource);
-
-        } catch (Exception e) {
-            return ResponseEntity.status(500).build();
+    public void streamSong(@PathVariable String id, HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        // 1. Get song from database
+        Optional<Song> optionalSong = songService.getById(id);
+        if (optionalSong.isEmpty() || optionalSong.get().getFileUrl() == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+
+        // 2. Get file path (e.g., "songs/song1.mp3") and stream it
+        Path path = Paths.get(optionalSong.get().getFileUrl());
+        audioStreamService.stream(path, request, response);
     }
 
     // 4️⃣ Get songs by artist ID
@@ -0,0 +1,50 @@
+package com.spotify.backend.controller;
+
+import com.spotify.backend.config.VirtualThreadPinningMonitor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/threads")
+@PreAuthorize("hasRole('ADMIN')")
+public class ThreadingController {
+
+    private final Environment environment;
+    private final ObjectProvider<VirtualThreadPinningMonitor> pinningMonitor;
+
+    public ThreadingController(Environment environment, ObjectProvider<VirtualThreadPinningMonitor> pinningMonitor) {
+        this.environment = environment;
+        this.pinningMonitor = pinningMonitor;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("virtualThreads", Threading.VIRTUAL.isActive(environment));
+        status.put("currentThreadVirtual", Thread.currentThread().isVirtual());
+        status.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+
+        VirtualThreadPinningMonitor monitor = pinningMonitor.getIfAvailable();
+        if (monitor != null) {
+            status.put("pinning", monitor.snapshot());
+        }
+        return ResponseEntity.ok(status);
+    }
+
+    @DeleteMapping("/pinning")
+    public ResponseEntity<?> resetPinning() {
+        VirtualThreadPinningMonitor monitor = pinningMonitor.getIfAvailable();
+        if (monitor == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Virtual threads are not enabled"));
+        }
+        monitor.reset();
+        return ResponseEntity.ok(Map.of("message", "Pinning statistics cleared"));
+    }
+}
@@ -23,12 +23,19 @@ public class UserController {
     public ResponseEntity<?> getAllUsers(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) String search
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal
     ) {
         if (page < 0) page = 0;
         if (size <= 0) size = 10;
         if (size > 100) size = 100;
 
+        // Cursor mode (?cursor= for the first page, then nextCursor); page/size stays the default
+        if (cursor != null) {
+            return ResponseEntity.ok(userService.getByCursor(cursor, size, search, includeTotal));
+        }
+
         return ResponseEntity.ok(userService.getPaginated(page, size, search));
     }
 
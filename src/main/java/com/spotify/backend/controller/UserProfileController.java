@@ -2,12 +2,15 @@ package com.spotify.backend.controller;
 
 import com.spotify.backend.model.User;
 import com.spotify.backend.repository.UserRepository;
+import com.spotify.backend.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -17,6 +20,9 @@ public class UserProfileController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserService userService;
+
     // Get current user profile
     @GetMapping("/profile")
     public ResponseEntity<User> getCurrentUserProfile(@AuthenticationPrincipal UserDetails userDetails) {
@@ -36,13 +42,15 @@ public class UserProfileController {
         Optional<User> userOpt = userRepository.findByEmail(email);
 
         if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            user.setDisplayName(updatedUser.getDisplayName());
-            user.setProfilePicture(updatedUser.getProfilePicture());
             // Don't update email, username, or role from here
+            Map<String, Object> fields = new HashMap<>();
+            fields.put("displayName", updatedUser.getDisplayName());
+            fields.put("profilePicture", updatedUser.getProfilePicture());
 
-            User savedUser = userRepository.save(user);
-            return ResponseEntity.ok(savedUser);
+            User savedUser = userService.setFields(userOpt.get().getId(), fields);
+            if (savedUser != null) {
+                return ResponseEntity.ok(savedUser);
+            }
         }
 
         return ResponseEntity.notFound().build();
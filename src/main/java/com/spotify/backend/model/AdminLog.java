@@ -1,6 +1,7 @@
 package com.spotify.backend.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document("admin_logs")
@@ -9,6 +10,7 @@ public class AdminLog {
     @Id
     private String id;
 
+    @Indexed
     private String userId;
     private String action;
     private String details;
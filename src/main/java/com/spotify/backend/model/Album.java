@@ -1,6 +1,7 @@
 package com.spotify.backend.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 
@@ -10,6 +11,7 @@ public class Album {
     @Id
     private String id;
     private String title;
+    @Indexed
     private String artist_id;
     private String releaseDate; // Changed from Date to String
     private String coverArt;
@@ -0,0 +1,38 @@
+package com.spotify.backend.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Materialized per-genre catalog totals, one document per genre (id = genre name).
+ * Maintained by DashboardStatsService.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "dashboard_stats")
+public class DashboardStats {
+    @Id
+    private String id;
+    private long songCount;
+    private long totalPlays;
+    private long totalDuration;
+    // Songs and plays per artist id within the genre, for the top artist
+    private Map<String, ArtistTotals> artists = new HashMap<>();
+    private Date reconciledAt;
+    // Bumped by every incremental write, so reconciliation can skip genres written while it ran
+    private long writes;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ArtistTotals {
+        private long songs;
+        private long plays;
+    }
+}
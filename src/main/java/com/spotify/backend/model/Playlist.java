@@ -4,6 +4,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -20,16 +21,25 @@ public class Playlist {
 
     private String name;
     private String description;
+    @Indexed
     private String createdBy;  // User ID who created the playlist
     private Boolean isPublic = true;
     private String coverImage;
 
-    // List of song IDs (for quick access)
+    // List of song IDs. Stored inline only by playlists not yet moved to playlist_tracks
+    // buckets; in responses it holds the ids of the returned window
     private List<String> songIds = new ArrayList<>();
 
     // List of full song objects (for enriched responses)
     private List<Song> songs = new ArrayList<>();
 
+    // Number of tracks in playlist_tracks; null while the tracks are still inline in songIds
+    private Integer trackCount;
+
+    // Cursor for GET /api/playlists/{id}/tracks after the tracks in this response (null at the end)
+    @org.springframework.data.annotation.Transient
+    private String tracksCursor;
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
@@ -1,19 +1,21 @@
 package com.spotify.backend.model;
 
 import lombok.Data;
-import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
+/**
+ * One playlist membership as returned by /api/playlistsSong. Not stored on its own:
+ * membership lives in the playlist's track buckets (PlaylistTrackBucket), and the id is
+ * "playlistId:songId". The old playlist_songs collection is folded into the buckets by
+ * PlaylistTrackMigration.
+ */
 @Data
-@Document(collection = "playlist_songs")
 public class PlaylistSong {
-    @Id
     private String id;
     private String playlistId;
     private String songId;
     private LocalDateTime addedAt;
-    private Integer position; // Optional: for ordering
+    private Integer position; // Index in the playlist's track order (not set by reverse lookups)
 
     public PlaylistSong() {
         this.addedAt = LocalDateTime.now();
@@ -0,0 +1,47 @@
+package com.spotify.backend.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A chunk of a playlist's tracks. A playlist's track list is its buckets in seq order
+ * (seqs are spaced apart, not consecutive), and within a bucket its tracks in rank order
+ * (array order is irrelevant). Appends fill a bucket up to playlist-tracks.bucket-size;
+ * moves may take it past that until it is split in the background.
+ * Maintained by PlaylistTrackStore.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "playlist_tracks")
+@CompoundIndexes({
+        @CompoundIndex(name = "playlist_seq_idx", def = "{'playlistId': 1, 'seq': 1}", unique = true),
+        @CompoundIndex(name = "playlist_track_song_idx", def = "{'playlistId': 1, 'tracks.songId': 1}"),
+        // Reverse lookup: which playlists contain a song
+        @CompoundIndex(name = "track_song_idx", def = "{'tracks.songId': 1}")
+})
+public class PlaylistTrackBucket {
+    @Id
+    private String id;
+    private String playlistId;
+    private int seq;
+    private int count;
+    private List<Track> tracks = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Track {
+        private String songId;
+        private Instant addedAt;
+        // RankKeys key, ordering the track within its bucket
+        private String rank;
+    }
+}
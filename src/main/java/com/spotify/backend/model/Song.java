@@ -2,9 +2,11 @@ package com.spotify.backend.model;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.IndexDirection;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import java.util.Date;
+import java.time.Instant;
 import java.util.List;
 
 @Document(collection = "songs")
@@ -21,19 +23,23 @@ public class Song {
 
 
     private String title;
+    @Indexed
     private String artist_id;
+    @Indexed
     private String album_id;
     private int duration;
     private String fileUrl;
     private String genre;
+    @Indexed(direction = IndexDirection.DESCENDING)  // top-songs sort
     private long playCount;
-    private String createdAt;  // ADD THIS FIELD
-    private String updatedAt;  // ADD THIS FIELD
+    @Indexed
+    private Instant createdAt;
+    private Instant updatedAt;
 
     // Constructors
     public Song() {
         this.playCount = 0;
-        this.createdAt = new Date().toInstant().toString();
+        this.createdAt = Instant.now();
         this.updatedAt = this.createdAt;
     }
 
@@ -42,19 +48,19 @@ public class Song {
     @Transient
     private Album album;
 
-    public String getCreatedAt() {
+    public Instant getCreatedAt() {
         return createdAt;
     }
 
-    public void setCreatedAt(String createdAt) {
+    public void setCreatedAt(Instant createdAt) {
         this.createdAt = createdAt;
     }
 
-    public String getUpdatedAt() {
+    public Instant getUpdatedAt() {
         return updatedAt;
     }
 
-    public void setUpdatedAt(String updatedAt) {
+    public void setUpdatedAt(Instant updatedAt) {
         this.updatedAt = updatedAt;
     }
 
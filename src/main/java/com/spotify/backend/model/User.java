@@ -1,21 +1,26 @@
 package com.spotify.backend.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
-import java.util.Date;
+import java.time.Instant;
 
 @Document(collection = "users")
 public class User {
 
     @Id
     private String id;
+    @Indexed
     private String username;
+    @Indexed(unique = true)
     private String email;
     private String passwordHash;
     private String displayName;
     private String profilePicture;
-    private String joinDate;
-    private String lastActive;  // ADD THIS FIELD
+    @Indexed
+    private Instant joinDate;
+    @Indexed
+    private Instant lastActive;
     private String role;
     private boolean isActive = true;  // ADD THIS FIELD
 
@@ -23,7 +28,7 @@ public class User {
     public User() {
         this.role = "USER";
         this.isActive = true;
-        this.joinDate = new Date().toInstant().toString();
+        this.joinDate = Instant.now();
     }
 
     // Getters and setters
@@ -45,11 +50,11 @@ public class User {
     public String getProfilePicture() { return profilePicture; }
     public void setProfilePicture(String profilePicture) { this.profilePicture = profilePicture; }
 
-    public String getJoinDate() { return joinDate; }
-    public void setJoinDate(String joinDate) { this.joinDate = joinDate; }
+    public Instant getJoinDate() { return joinDate; }
+    public void setJoinDate(Instant joinDate) { this.joinDate = joinDate; }
 
-    public String getLastActive() { return lastActive; }  // ADD GETTER
-    public void setLastActive(String lastActive) { this.lastActive = lastActive; }  // ADD SETTER
+    public Instant getLastActive() { return lastActive; }
+    public void setLastActive(Instant lastActive) { this.lastActive = lastActive; }
 
     public String getRole() { return role; }
     public void setRole(String role) { this.role = role; }
@@ -3,12 +3,15 @@ package com.spotify.backend.model;
 import lombok.*;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "user_follows")
+@CompoundIndex(name = "follower_following_idx", def = "{'followerId': 1, 'followingId': 1}")
 public class UserFollow {
 
     @Id
@@ -19,6 +22,7 @@ public class UserFollow {
 
 
     private String followerId;
+    @Indexed
     private String followingId;
     private String followingType; // "artist"
 
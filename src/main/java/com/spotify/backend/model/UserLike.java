@@ -3,12 +3,15 @@ package com.spotify.backend.model;
 import lombok.*;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "user_likes")
+@CompoundIndex(name = "user_target_idx", def = "{'userId': 1, 'targetId': 1}")
 public class UserLike {
 
     @Id
@@ -22,6 +25,7 @@ public class UserLike {
 
 
     private String userId;
+    @Indexed
     private String targetId;
     private String targetType; // "song" or "playlist"
 }
@@ -5,6 +5,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
+
+import java.time.Instant;
 import java.util.List;
 
 public interface SongRepository extends MongoRepository<Song, String> {
@@ -24,6 +26,6 @@ public interface SongRepository extends MongoRepository<Song, String> {
     List<Song> findByOrderByPlayCountDesc();
     Page<Song> findByTitleContainingIgnoreCase(String title, Pageable pageable);
 
-    @Query("{'createdAt': {$gt: ?0}}")
-    Long countByCreatedAtAfter(String date);
+    @Query(value = "{'createdAt': {$gt: ?0}}", count = true)
+    Long countByCreatedAtAfter(Instant date);
 }
\ No newline at end of file
@@ -6,6 +6,8 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 
+import java.time.Instant;
+
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +23,6 @@ public interface UserRepository extends MongoRepository<User, String> {
     @Query("{'$or': [{'username': {$regex: ?0, $options: 'i'}}, {'email': {$regex: ?1, $options: 'i'}}]}")
     Page<User> findByUsernameContainingOrEmailContaining(String username, String email, Pageable pageable);
     Page<User> findByUsernameContainingIgnoreCase(String name, Pageable pageable);
-    Long countByJoinDateAfter(String date);
+    Long countByJoinDateAfter(Instant date);
 
 }
\ No newline at end of file
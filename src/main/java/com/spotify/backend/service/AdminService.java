@@ -1,21 +1,26 @@
 package com.spotify.backend.service;
 
 import com.spotify.backend.model.User;
-import com.spotify.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Service
 public class AdminService {
 
     @Autowired
-    private UserRepository userRepository;
+    private UserService userService;
 
     public User updateUserRole(String id, String role) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        user.setRole(role);
-        return userRepository.save(user);
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("role", role);
+        User saved = userService.setFields(id, fields);
+        if (saved == null) {
+            throw new RuntimeException("User not found");
+        }
+        return saved;
     }
 
     // Other business logic methods...
@@ -0,0 +1,348 @@
+package com.spotify.backend.service;
+
+import com.mongodb.client.model.EstimatedDocumentCountOptions;
+import com.spotify.backend.config.MongoRequestBudget;
+import com.spotify.backend.model.Playlist;
+import com.spotify.backend.model.Song;
+import com.spotify.backend.model.User;
+import com.spotify.backend.repository.ArtistRepository;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+/**
+ * Dashboard statistics computed server-side with $group/$facet pipelines,
+ * so only the grouped results travel over the wire instead of whole collections.
+ */
+@Service
+public class AdminStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminStatsService.class);
+
+    // Fan-out deadline (System.nanoTime) of the task running on this thread, if any
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private final MongoTemplate mongoTemplate;
+    private final ArtistRepository artistRepo;
+    private final MongoRequestBudget budget;
+    // Independent dashboard queries run side by side, one virtual thread each
+    private final ExecutorService queryExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public AdminStatsService(MongoTemplate mongoTemplate, ArtistRepository artistRepo, MongoRequestBudget budget) {
+        this.mongoTemplate = mongoTemplate;
+        this.artistRepo = artistRepo;
+        this.budget = budget;
+    }
+
+    /**
+     * Runs independent queries concurrently and waits at most {@code timeout} for all of them
+     * (one shared deadline, so the call takes about as long as the slowest query). Queries that
+     * fail or miss the deadline are cancelled and listed in {@link FanOut#unavailable()};
+     * the others are returned under their keys.
+     *
+     * Each task is charged to the caller's Mongo request budget, and the queries in this
+     * service send the time left to the deadline as maxTimeMS: cancelling a future only
+     * interrupts the waiting thread, the server would otherwise run the query to the end.
+     */
+    public FanOut fanOut(Map<String, Callable<?>> queries, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        MongoRequestBudget.Usage usage = budget.current();
+        Map<String, Future<?>> futures = new LinkedHashMap<>();
+        queries.forEach((key, query) -> futures.put(key, queryExecutor.submit(scoped(query, usage, deadline))));
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        List<String> unavailable = new ArrayList<>();
+        for (Map.Entry<String, Future<?>> entry : futures.entrySet()) {
+            Future<?> future = entry.getValue();
+            try {
+                results.put(entry.getKey(), future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                unavailable.add(entry.getKey());
+                logger.warn("Admin stats query {} timed out after {} ms", entry.getKey(), timeout.toMillis());
+            } catch (ExecutionException e) {
+                unavailable.add(entry.getKey());
+                logger.warn("Admin stats query {} failed: {}", entry.getKey(), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(f -> f.cancel(true));
+                futures.keySet().stream()
+                        .filter(key -> !results.containsKey(key) && !unavailable.contains(key))
+                        .forEach(unavailable::add);
+                break;
+            }
+        }
+        return new FanOut(results, unavailable);
+    }
+
+    private <T> Callable<T> scoped(Callable<T> query, MongoRequestBudget.Usage usage, long deadline) {
+        return () -> {
+            budget.bind(usage);
+            DEADLINE.set(deadline);
+            try {
+                return query.call();
+            } finally {
+                DEADLINE.remove();
+                budget.end();
+            }
+        };
+    }
+
+    // Time left to the fan-out deadline, at least 1 ms (maxTimeMS 0 means no limit); null outside a fan-out
+    private static Duration remaining() {
+        Long deadline = DEADLINE.get();
+        return deadline == null ? null : Duration.ofNanos(Math.max(1_000_000, deadline - System.nanoTime()));
+    }
+
+    private static Query bounded(Query query) {
+        Duration remaining = remaining();
+        return remaining == null ? query : query.maxTime(remaining);
+    }
+
+    private static Aggregation bounded(Aggregation aggregation) {
+        Duration remaining = remaining();
+        return remaining == null ? aggregation
+                : aggregation.withOptions(AggregationOptions.builder().maxTime(remaining).build());
+    }
+
+    public record FanOut(Map<String, Object> results, List<String> unavailable) {
+        public boolean isPartial() {
+            return !unavailable.isEmpty();
+        }
+    }
+
+    /**
+     * Collection size from collection metadata (no scan); exact counts go through count().
+     */
+    public long estimatedCount(Class<?> entityClass) {
+        Duration remaining = remaining();
+        if (remaining == null) {
+            return mongoTemplate.estimatedCount(entityClass);
+        }
+        EstimatedDocumentCountOptions options = new EstimatedDocumentCountOptions()
+                .maxTime(remaining.toMillis(), TimeUnit.MILLISECONDS);
+        return mongoTemplate.execute(entityClass, collection -> collection.estimatedDocumentCount(options));
+    }
+
+    public long exactCount(Class<?> entityClass) {
+        return mongoTemplate.count(bounded(new Query()), entityClass);
+    }
+
+    /**
+     * Documents whose {@code field} is after {@code since}, e.g. users by joinDate.
+     */
+    public long exactCount(Class<?> entityClass, String field, Instant since) {
+        return mongoTemplate.count(bounded(new Query(Criteria.where(field).gt(since))), entityClass);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queryExecutor.shutdownNow();
+    }
+
+    /**
+     * Active user count and role distribution in a single $facet over users.
+     */
+    public Map<String, Object> getUserActivity(Instant activeSince) {
+        Aggregation aggregation = newAggregation(
+                facet(
+                        match(Criteria.where("lastActive").gt(activeSince)),
+                        count().as("total")
+                ).as("active")
+                .and(
+                        project().and(ConditionalOperators.ifNull("role").then("USER")).as("role"),
+                        group("role").count().as("count")
+                ).as("roles")
+        );
+
+        Document result = mongoTemplate.aggregate(bounded(aggregation), User.class, Document.class)
+                .getUniqueMappedResult();
+
+        long activeUsers = 0;
+        Map<String, Long> roleDistribution = new HashMap<>();
+        if (result != null) {
+            List<Document> active = result.getList("active", Document.class);
+            if (!active.isEmpty()) {
+                activeUsers = toLong(active.get(0).get("total"));
+            }
+            for (Document role : result.getList("roles", Document.class)) {
+                roleDistribution.put(role.getString("_id"), toLong(role.get("count")));
+            }
+        }
+
+        Map<String, Object> activity = new HashMap<>();
+        activity.put("activeUsers", activeUsers);
+        activity.put("roleDistribution", roleDistribution);
+        return activity;
+    }
+
+    /**
+     * New users (joinDate) and new songs (createdAt) per day, week or month in [from, to),
+     * in one aggregation: an indexed range match on each collection, songs merged in with
+     * $unionWith, then a single $group on the $dateTrunc bucket (UTC, weeks start Monday).
+     * Returns "users" and "songs" maps keyed by bucket start; empty buckets are absent.
+     */
+    public Map<String, Map<Instant, Long>> getNewUsersAndSongs(Instant from, Instant to, String unit) {
+        Date start = Date.from(from);
+        Date end = Date.from(to);
+        Document songs = new Document("coll", "songs").append("pipeline", List.of(
+                new Document("$match", new Document("createdAt", new Document("$gte", start).append("$lt", end))),
+                new Document("$project", new Document("_id", 0).append("kind", new Document("$literal", "songs"))
+                        .append("at", "$createdAt"))
+        ));
+
+        Aggregation aggregation = newAggregation(
+                stage(new Document("$match", new Document("joinDate", new Document("$gte", start).append("$lt", end)))),
+                stage(new Document("$project", new Document("_id", 0).append("kind", new Document("$literal", "users"))
+                        .append("at", "$joinDate"))),
+                stage(new Document("$unionWith", songs)),
+                stage(new Document("$group", new Document("_id", new Document("kind", "$kind")
+                        .append("bucket", new Document("$dateTrunc", new Document("date", "$at")
+                                .append("unit", unit)
+                                .append("timezone", "UTC")
+                                .append("startOfWeek", "monday"))))
+                        .append("count", new Document("$sum", 1))))
+        );
+
+        Map<String, Map<Instant, Long>> counts = new HashMap<>();
+        counts.put("users", new HashMap<>());
+        counts.put("songs", new HashMap<>());
+        for (Document row : mongoTemplate.aggregate(aggregation, User.class, Document.class)) {
+            Document id = row.get("_id", Document.class);
+            if (id.get("bucket") instanceof Date bucket) {
+                counts.get(id.getString("kind")).put(bucket.toInstant(), toLong(row.get("count")));
+            }
+        }
+        return counts;
+    }
+
+    public Optional<Song> getMostPlayedSong() {
+        Query query = new Query().with(Sort.by(Sort.Direction.DESC, "playCount")).limit(1);
+        query.fields().include("title", "playCount", "artist_id");
+        return Optional.ofNullable(mongoTemplate.findOne(bounded(query), Song.class));
+    }
+
+    /**
+     * Count documents per non-empty value of a field, e.g. songs per genre.
+     */
+    public Map<String, Long> countByField(Class<?> entityClass, String field) {
+        Aggregation aggregation = newAggregation(
+                match(Criteria.where(field).nin(null, "")),
+                group(field).count().as("count")
+        );
+
+        Map<String, Long> counts = new HashMap<>();
+        for (Document doc : mongoTemplate.aggregate(aggregation, entityClass, Document.class)) {
+            counts.put(doc.getString("_id"), toLong(doc.get("count")));
+        }
+        return counts;
+    }
+
+    /**
+     * Top artists by total plays, with their song count, resolved with one artist lookup.
+     */
+    public List<Map<String, Object>> getTopArtistsByPlays(int limit) {
+        Aggregation aggregation = newAggregation(
+                match(Criteria.where("artist_id").ne(null)),
+                group("artist_id")
+                        .count().as("songCount")
+                        .sum("playCount").as("totalPlays"),
+                sort(Sort.Direction.DESC, "totalPlays"),
+                limit(limit)
+        );
+
+        List<Document> rows = mongoTemplate.aggregate(aggregation, Song.class, Document.class)
+                .getMappedResults();
+
+        List<String> artistIds = rows.stream().map(row -> row.getString("_id")).toList();
+        Map<String, String> names = new HashMap<>();
+        artistRepo.findAllById(artistIds).forEach(artist -> names.put(artist.getId(), artist.getName()));
+
+        List<Map<String, Object>> topArtists = new ArrayList<>();
+        for (Document row : rows) {
+            String artistId = row.getString("_id");
+            Map<String, Object> artistData = new HashMap<>();
+            artistData.put("artistId", artistId);
+            artistData.put("name", names.getOrDefault(artistId, "Unknown Artist"));
+            artistData.put("totalPlays", toLong(row.get("totalPlays")));
+            artistData.put("songCount", toLong(row.get("songCount")));
+            topArtists.add(artistData);
+        }
+        return topArtists;
+    }
+
+    public double getAveragePlaysPerSong() {
+        Aggregation aggregation = newAggregation(
+                group().avg(ConditionalOperators.ifNull("playCount").then(0)).as("avg")
+        );
+        Document result = mongoTemplate.aggregate(aggregation, Song.class, Document.class)
+                .getUniqueMappedResult();
+        return result != null ? toDouble(result.get("avg")) : 0.0;
+    }
+
+    /**
+     * Average playlist length and the most prolific creator in a single $facet over playlists.
+     * The creator entry holds the user id and playlist count, or is absent when there are no playlists.
+     */
+    public Map<String, Object> getPlaylistStats() {
+        Aggregation aggregation = newAggregation(
+                facet(
+                        // trackCount once the tracks are in buckets, else the inline songIds length
+                        group().avg(ConditionalOperators.ifNull("trackCount").thenValueOf(
+                                ArrayOperators.Size.lengthOfArray(
+                                        ConditionalOperators.ifNull("songIds").then(Collections.emptyList())
+                                ))).as("avg")
+                ).as("avgSongs")
+                .and(
+                        match(Criteria.where("createdBy").ne(null)),
+                        group("createdBy").count().as("count"),
+                        sort(Sort.Direction.DESC, "count"),
+                        limit(1)
+                ).as("topCreator")
+        );
+
+        Document result = mongoTemplate.aggregate(aggregation, Playlist.class, Document.class)
+                .getUniqueMappedResult();
+
+        Map<String, Object> stats = new HashMap<>();
+        double avgSongs = 0.0;
+        if (result != null) {
+            List<Document> avg = result.getList("avgSongs", Document.class);
+            if (!avg.isEmpty()) {
+                avgSongs = toDouble(avg.get(0).get("avg"));
+            }
+            List<Document> top = result.getList("topCreator", Document.class);
+            if (!top.isEmpty()) {
+                stats.put("topCreatorId", top.get(0).getString("_id"));
+                stats.put("topCreatorPlaylistCount", toLong(top.get(0).get("count")));
+            }
+        }
+        stats.put("avgSongsPerPlaylist", avgSongs);
+        return stats;
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number n ? n.longValue() : 0L;
+    }
+
+    private static double toDouble(Object value) {
+        return value instanceof Number n ? n.doubleValue() : 0.0;
+    }
+}
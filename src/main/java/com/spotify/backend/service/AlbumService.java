@@ -8,6 +8,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -18,9 +19,13 @@ public class AlbumService {
 
     @Autowired
     private final AlbumRepository albumRepo;
+    private final KeysetPaginator keysetPaginator;
+    private final CatalogCache catalogCache;
 
-    public AlbumService(AlbumRepository albumRepo) {
+    public AlbumService(AlbumRepository albumRepo, KeysetPaginator keysetPaginator, CatalogCache catalogCache) {
         this.albumRepo = albumRepo;
+        this.keysetPaginator = keysetPaginator;
+        this.catalogCache = catalogCache;
     }
 
     public List<Album> getAll() {
@@ -28,7 +33,12 @@ public class AlbumService {
     }
 
     public Optional<Album> getById(String id) {
-        return albumRepo.findById(id);
+        return catalogCache.get(CatalogCache.ALBUMS, id, Album.class, () -> albumRepo.findById(id));
+    }
+
+    // Cached batch lookup keyed by id; unknown ids are left out
+    public Map<String, Album> getByIds(Collection<String> ids) {
+        return catalogCache.getAll(CatalogCache.ALBUMS, ids, Album.class, albumRepo::findAllById, Album::getId);
     }
 
     public Map<String, Object> getPaginated(int page, int size, String search) {
@@ -53,6 +63,12 @@ public class AlbumService {
         return response;
     }
 
+    // Cursor (keyset) mode: pass the previous page's nextCursor; the total is only counted on request
+    public Map<String, Object> getByCursor(String cursor, int size, String search, boolean includeTotal) {
+        return keysetPaginator.page(Album.class, KeysetPaginator.containsIgnoreCase("title", search),
+                cursor, size, includeTotal, Album::getId, page -> page);
+    }
+
     public Album create(Album a) {
         return albumRepo.save(a);
     }
@@ -64,13 +80,16 @@ public class AlbumService {
             existing.setGenre(a.getGenre());
             existing.setCoverArt(a.getCoverArt());
             existing.setReleaseDate(a.getReleaseDate());
-            return albumRepo.save(existing);
+            Album saved = albumRepo.save(existing);
+            catalogCache.evict(CatalogCache.ALBUMS, id);
+            return saved;
         }).orElse(null);
     }
 
     public boolean delete(String id) {
         if (!albumRepo.existsById(id)) return false;
         albumRepo.deleteById(id);
+        catalogCache.evict(CatalogCache.ALBUMS, id);
         return true;
     }
 }
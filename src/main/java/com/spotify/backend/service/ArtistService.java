@@ -8,6 +8,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,9 +18,13 @@ import java.util.Optional;
 public class ArtistService {
 @Autowired
     private final ArtistRepository artistRepo;
+    private final KeysetPaginator keysetPaginator;
+    private final CatalogCache catalogCache;
 
-    public ArtistService(ArtistRepository artistRepo) {
+    public ArtistService(ArtistRepository artistRepo, KeysetPaginator keysetPaginator, CatalogCache catalogCache) {
         this.artistRepo = artistRepo;
+        this.keysetPaginator = keysetPaginator;
+        this.catalogCache = catalogCache;
     }
 
     public List<Artist> getAll() {
@@ -27,7 +32,12 @@ public class ArtistService {
     }
 
     public Optional<Artist> getById(String id) {
-        return artistRepo.findById(id);
+        return catalogCache.get(CatalogCache.ARTISTS, id, Artist.class, () -> artistRepo.findById(id));
+    }
+
+    // Cached batch lookup keyed by id; unknown ids are left out
+    public Map<String, Artist> getByIds(Collection<String> ids) {
+        return catalogCache.getAll(CatalogCache.ARTISTS, ids, Artist.class, artistRepo::findAllById, Artist::getId);
     }
 
     public Artist create(Artist a) {
@@ -56,19 +66,28 @@ public class ArtistService {
         return response;
     }
 
+    // Cursor (keyset) mode: pass the previous page's nextCursor; the total is only counted on request
+    public Map<String, Object> getByCursor(String cursor, int size, String search, boolean includeTotal) {
+        return keysetPaginator.page(Artist.class, KeysetPaginator.containsIgnoreCase("name", search),
+                cursor, size, includeTotal, Artist::getId, page -> page);
+    }
+
     public Artist update(String id, Artist a) {
         return artistRepo.findById(id).map(existing -> {
             existing.setName(a.getName());
             existing.setBio(a.getBio());
             existing.setGenre(a.getGenre());
             existing.setPicture(a.getPicture());
-            return artistRepo.save(existing);
+            Artist saved = artistRepo.save(existing);
+            catalogCache.evict(CatalogCache.ARTISTS, id);
+            return saved;
         }).orElse(null);
     }
 
     public boolean delete(String id) {
         if (!artistRepo.existsById(id)) return false;
         artistRepo.deleteById(id);
+        catalogCache.evict(CatalogCache.ARTISTS, id);
         return true;
     }
 }
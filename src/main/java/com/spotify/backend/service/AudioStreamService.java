@@ -0,0 +1,240 @@
+package com.spotify.backend.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Serves audio files with HTTP Range / If-Range support (206, multipart/byteranges, 416),
+ * ETag/Last-Modified validation and long-lived caching. Single ranges and full files go
+ * through Tomcat's sendfile when the connector supports it, otherwise FileChannel.transferTo.
+ */
+@Service
+public class AudioStreamService {
+
+    // Tomcat request attributes for zero-copy sendfile
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final int MAX_RANGES = 16;
+    private static final String CACHE_CONTROL = "public, max-age=31536000";
+
+    public void stream(Path path, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!Files.isRegularFile(path) || !Files.isReadable(path)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+        MediaType contentType = MediaTypeFactory.getMediaType(path.getFileName().toString())
+                .orElse(MediaType.parseMediaType("audio/mpeg"));
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + path.getFileName() + "\"");
+
+        // Handles If-None-Match / If-Modified-Since (304) and sets ETag / Last-Modified
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+        List<HttpRange> ranges = requestedRanges(request, etag, lastModified);
+
+        if (ranges == null) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType.toString());
+            response.setContentLengthLong(length);
+            if (!head) {
+                send(path, 0, length, request, response);
+            }
+            return;
+        }
+
+        long[][] bounds;
+        try {
+            bounds = resolve(ranges, length);
+        } catch (IllegalArgumentException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+        if (bounds.length == 1) {
+            long start = bounds[0][0];
+            long end = bounds[0][1];
+            response.setContentType(contentType.toString());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if (!head) {
+                send(path, start, end + 1, request, response);
+            }
+            return;
+        }
+
+        // Multiple ranges: multipart/byteranges, each part copied straight from the file channel
+        String boundary = UUID.randomUUID().toString();
+        byte[][] partHeaders = new byte[bounds.length][];
+        long total = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            String partHeader = "\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + bounds[i][0] + "-" + bounds[i][1] + "/" + length
+                    + "\r\n\r\n";
+            partHeaders[i] = partHeader.getBytes(StandardCharsets.US_ASCII);
+            total += partHeaders[i].length + (bounds[i][1] - bounds[i][0] + 1);
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        total += closing.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(total);
+        if (head) return;
+
+        OutputStream out = response.getOutputStream();
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            for (int i = 0; i < bounds.length; i++) {
+                out.write(partHeaders[i]);
+                transfer(file, bounds[i][0], bounds[i][1] + 1, target);
+            }
+        }
+        out.write(closing);
+        out.flush();
+    }
+
+    /**
+     * Ranges to serve, or null for the full file: no Range header, an If-Range that
+     * no longer matches, or more ranges than we are willing to assemble.
+     */
+    private List<HttpRange> requestedRanges(HttpServletRequest request, String etag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) return null;
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRangeMatches(ifRange, request, etag, lastModified)) {
+            return null;
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // Malformed Range headers are ignored (RFC 9110 14.2)
+            return null;
+        }
+        if (ranges.isEmpty() || ranges.size() > MAX_RANGES) return null;
+        return ranges;
+    }
+
+    /**
+     * Inclusive [start, end] offsets of the satisfiable ranges, sorted, with overlapping or
+     * adjacent ranges merged. Ranges that start past the end of the file are dropped
+     * (RFC 9110 14.1.2); only a request with none left is unsatisfiable. Like
+     * HttpRange.toResourceRegions, a request whose ranges add up to more than the file is
+     * refused, so many overlapping ranges can't multiply the response.
+     */
+    static long[][] resolve(List<HttpRange> ranges, long length) {
+        List<long[]> bounds = new ArrayList<>(ranges.size());
+        long requested = 0;
+        for (HttpRange range : ranges) {
+            long start;
+            long end;
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                // First byte at or past the end of the file
+                continue;
+            }
+            if (start > end) continue;
+            requested += end - start + 1;
+            bounds.add(new long[]{start, end});
+        }
+        if (bounds.isEmpty()) {
+            throw new IllegalArgumentException("No satisfiable range");
+        }
+        if (bounds.size() > 1 && requested > length) {
+            throw new IllegalArgumentException("Ranges exceed the file length");
+        }
+
+        bounds.sort(Comparator.comparingLong(b -> b[0]));
+        List<long[]> merged = new ArrayList<>(bounds.size());
+        for (long[] b : bounds) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && b[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], b[1]);
+            } else {
+                merged.add(b);
+            }
+        }
+        return merged.toArray(new long[0][]);
+    }
+
+    private boolean ifRangeMatches(String ifRange, HttpServletRequest request, String etag, long lastModified) {
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(etag);
+        }
+        if (ifRange.startsWith("W/")) {
+            // Weak validators never match If-Range
+            return false;
+        }
+        try {
+            long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return date >= 0 && date / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Copy [start, end) of the file to the response
+    private void send(Path path, long start, long end, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            transfer(file, start, end, Channels.newChannel(out));
+            out.flush();
+        }
+    }
+
+    private void transfer(FileChannel file, long start, long end, WritableByteChannel target) throws IOException {
+        long position = start;
+        while (position < end) {
+            long sent = file.transferTo(position, end - position, target);
+            if (sent <= 0) break;
+            position += sent;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.spotify.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Two-tier read-through cache for catalog entities (songs, artists, albums, genres,
+ * playlists). Tier one is a small in-process Caffeine cache with a short TTL, tier two
+ * is the shared {@link CatalogCacheStore} (Redis in production).
+ *
+ * Both tiers hold JSON rather than live objects, so callers always get their own copy
+ * and can enrich or mutate it freely. Writers call {@link #evict} after the Mongo write:
+ * the key is dropped from the near cache, replaced by a tombstone in the store, and the
+ * eviction is broadcast so other nodes drop their near-cache copy too.
+ *
+ * Read-through fills only land if the store key still holds what the reader saw before
+ * loading, so a load that overlaps an eviction can't put the pre-write document back.
+ * Each tombstone is unique, so a reader that saw an older tombstone loses to a newer one.
+ *
+ * Entries hold the plain documents (no @Transient enrichment), so each entity is
+ * invalidated only by writes to that entity.
+ */
+@Component
+public class CatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogCache.class);
+
+    public static final String SONGS = "songs";
+    public static final String ARTISTS = "artists";
+    public static final String ALBUMS = "albums";
+    public static final String GENRES = "genres";
+    public static final String PLAYLISTS = "playlists";
+
+    private static final String KEY_PREFIX = "catalog:";
+    private static final String EVICTION_CHANNEL = "catalog:evictions";
+    private static final String TOMBSTONE = "!evicted:";
+
+    private final CatalogCacheStore store;
+    private final JsonMapper jsonMapper;
+    private final Cache<String, String> nearCache;
+    private final Duration ttl;
+    // Bumped on every local or broadcast eviction; a near-cache put that overlaps one is undone
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CatalogCache(CatalogCacheStore store,
+                        JsonMapper jsonMapper,
+                        @Value("${catalog-cache.near.max-size:20000}") long nearMaxSize,
+                        @Value("${catalog-cache.near.ttl-seconds:30}") long nearTtlSeconds,
+                        @Value("${catalog-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.store = store;
+        this.jsonMapper = jsonMapper;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.nearCache = Caffeine.newBuilder()
+                .maximumSize(nearMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(nearTtlSeconds))
+                .build();
+
+        // Evictions from any node (including this one) drop the local copy
+        store.subscribe(EVICTION_CHANNEL, message -> {
+            evictions.incrementAndGet();
+            nearCache.invalidateAll(List.of(message.split("\n")));
+        });
+    }
+
+    public <T> Optional<T> get(String region, String id, Class<T> type, Supplier<Optional<T>> loader) {
+        String key = key(region, id);
+        long generation = evictions.get();
+
+        String json = nearCache.getIfPresent(key);
+        String seen = null;
+        if (json == null) {
+            json = seen = store.get(key);
+            if (isEntry(json)) {
+                putNear(Map.of(key, json), generation);
+            }
+        }
+
+        if (isEntry(json)) {
+            T cached = read(key, json, type);
+            if (cached != null) return Optional.of(cached);
+        }
+
+        Map<String, String> seenByKey = seen != null ? Map.of(key, seen) : Map.of();
+        Optional<T> loaded = loader.get();
+        loaded.ifPresent(value -> {
+            String written = write(value);
+            if (written != null && !store.multiSetIfUnchanged(Map.of(key, written), seenByKey, ttl).isEmpty()) {
+                putNear(Map.of(key, written), generation);
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Batch lookup: near cache first, then one multi-get against the store, then a
+     * single loader call for whatever is still missing. Ids that don't exist are
+     * simply absent from the result.
+     */
+    public <T> Map<String, T> getAll(String region, Collection<String> ids, Class<T> type,
+                                     Function<Set<String>, Iterable<T>> loader, Function<T, String> idOf) {
+        Map<String, T> result = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        long generation = evictions.get();
+
+        for (String id : new LinkedHashSet<>(ids)) {
+            String key = key(region, id);
+            String json = nearCache.getIfPresent(key);
+            T cached = json != null ? read(key, json, type) : null;
+            if (cached != null) {
+                result.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) return result;
+
+        List<String> keys = new ArrayList<>(missing.size());
+        missing.forEach(id -> keys.add(key(region, id)));
+        List<String> values = store.multiGet(keys);
+
+        Set<String> toLoad = new LinkedHashSet<>();
+        Map<String, String> found = new HashMap<>();
+        Map<String, String> seen = new HashMap<>();
+        int i = 0;
+        for (String id : missing) {
+            String key = keys.get(i);
+            String json = values.get(i++);
+            T cached = isEntry(json) ? read(key, json, type) : null;
+            if (cached != null) {
+                found.put(key, json);
+                result.put(id, cached);
+            } else {
+                toLoad.add(id);
+                if (json != null) {
+                    seen.put(key, json);
+                }
+            }
+        }
+        putNear(found, generation);
+        if (toLoad.isEmpty()) return result;
+
+        Map<String, String> written = new LinkedHashMap<>();
+        for (T value : loader.apply(toLoad)) {
+            String id = idOf.apply(value);
+            String json = write(value);
+            if (json != null) {
+                written.put(key(region, id), json);
+            }
+            result.put(id, value);
+        }
+        written.keySet().retainAll(store.multiSetIfUnchanged(written, seen, ttl));
+        putNear(written, generation);
+        return result;
+    }
+
+    public void evict(String region, String id) {
+        evictAll(region, List.of(id));
+    }
+
+    public void evictAll(String region, Collection<String> ids) {
+        if (ids.isEmpty()) return;
+
+        List<String> keys = new ArrayList<>(ids.size());
+        ids.forEach(id -> keys.add(key(region, id)));
+
+        String tombstone = TOMBSTONE + UUID.randomUUID();
+        Map<String, String> tombstones = new HashMap<>();
+        keys.forEach(key -> tombstones.put(key, tombstone));
+
+        evictions.incrementAndGet();
+        nearCache.invalidateAll(keys);
+        store.multiSet(tombstones, ttl);
+        store.publish(EVICTION_CHANNEL, String.join("\n", keys));
+    }
+
+    private static boolean isEntry(String json) {
+        return json != null && !json.startsWith(TOMBSTONE);
+    }
+
+    // Puts entries read or loaded since the given eviction generation, undoing them if an eviction came in meanwhile
+    private void putNear(Map<String, String> entries, long generation) {
+        if (entries.isEmpty()) return;
+        nearCache.putAll(entries);
+        if (evictions.get() != generation) {
+            entries.forEach(nearCache.asMap()::remove);
+        }
+    }
+
+    private static String key(String region, String id) {
+        return KEY_PREFIX + region + ":" + id;
+    }
+
+    private <T> T read(String key, String json, Class<T> type) {
+        try {
+            return jsonMapper.readValue(json, type);
+        } catch (JacksonException e) {
+            // Unreadable entry (e.g. written by an older model version): treat as a miss
+            logger.debug("Dropping unreadable cache entry {}: {}", key, e.getMessage());
+            nearCache.invalidate(key);
+            return null;
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return jsonMapper.writeValueAsString(value);
+        } catch (JacksonException e) {
+            logger.warn("Could not serialize {} for the catalog cache: {}", value.getClass().getSimpleName(), e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.spotify.backend.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Shared (second-tier) store behind {@link CatalogCache}: string values with a TTL
+ * plus a broadcast channel used to tell other nodes to drop near-cache entries.
+ *
+ * Implementations should treat an unreachable backend as a miss rather than failing
+ * the read, since Mongo remains the source of truth.
+ */
+public interface CatalogCacheStore {
+
+    String get(String key);
+
+    // Values in the same order as keys, null for misses
+    List<String> multiGet(List<String> keys);
+
+    // Unconditional write, attempted even while the backend is backing off (used for eviction tombstones)
+    void multiSet(Map<String, String> values, Duration ttl);
+
+    /**
+     * Writes each value only if its key still holds what was read before the value was
+     * loaded ({@code seen}, a missing entry meaning the key was absent), so a fill racing
+     * an eviction can't overwrite the eviction's tombstone. Returns the keys written.
+     */
+    Set<String> multiSetIfUnchanged(Map<String, String> values, Map<String, String> seen, Duration ttl);
+
+    void publish(String channel, String message);
+
+    void subscribe(String channel, Consumer<String> listener);
+}
@@ -0,0 +1,281 @@
+package com.spotify.backend.service;
+
+import com.spotify.backend.model.Artist;
+import com.spotify.backend.model.DashboardStats;
+import com.spotify.backend.model.Song;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+/**
+ * Per-genre dashboard totals materialized in dashboard_stats (song count, plays,
+ * duration and per-artist songs/plays for the top artist).
+ *
+ * SongService applies each create/update/delete as an upserted $inc on the genre's
+ * document, and PlayCountAccumulator reports every flushed batch of plays. A failed
+ * incremental write is only logged: the periodic reconciliation rebuilds all documents
+ * from one $group over songs, which also corrects drift from writes that bypass the
+ * service. The dashboard then reads one small document per genre.
+ *
+ * Every incremental write also bumps the document's {@code writes} counter. Reconciliation
+ * notes the counters before aggregating and only replaces or removes documents whose
+ * counter is unchanged, so increments that land mid-rebuild are never overwritten; a genre
+ * written meanwhile keeps its incremental totals until the next run.
+ */
+@Service
+public class DashboardStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardStatsService.class);
+
+    // Songs without a genre are counted under this key
+    public static final String UNKNOWN_GENRE = "Unknown";
+    private static final String UNKNOWN_ARTIST = "unknown";
+
+    private final MongoTemplate mongoTemplate;
+    private final ArtistService artistService;
+
+    public DashboardStatsService(MongoTemplate mongoTemplate, ArtistService artistService) {
+        this.mongoTemplate = mongoTemplate;
+        this.artistService = artistService;
+    }
+
+    // ==================== INCREMENTAL UPDATES ====================
+
+    public void songAdded(Song song) {
+        apply(song, 1);
+    }
+
+    public void songRemoved(Song song) {
+        apply(song, -1);
+    }
+
+    public void songChanged(Song before, Song after) {
+        apply(before, -1);
+        apply(after, 1);
+    }
+
+    private void apply(Song song, int sign) {
+        String artist = artistKey(song.getArtist_id());
+        Update update = new Update()
+                .inc("writes", 1)
+                .inc("songCount", sign)
+                .inc("totalPlays", sign * song.getPlayCount())
+                .inc("totalDuration", (long) sign * song.getDuration())
+                .inc("artists." + artist + ".songs", sign)
+                .inc("artists." + artist + ".plays", sign * song.getPlayCount());
+        try {
+            mongoTemplate.upsert(Query.query(Criteria.where("_id").is(genreKey(song.getGenre()))), update, DashboardStats.class);
+        } catch (RuntimeException e) {
+            logger.warn("Dashboard stats update failed for song {}, left to reconciliation: {}", song.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Adds flushed plays to their genres: one projected lookup for the songs' genre and
+     * artist, then one upsert per genre in a single bulk write.
+     */
+    public void recordPlays(Map<String, Long> playsBySong) {
+        if (playsBySong.isEmpty()) return;
+        try {
+            Query query = Query.query(Criteria.where("_id").in(playsBySong.keySet()));
+            query.fields().include("genre", "artist_id");
+
+            Map<String, Update> byGenre = new HashMap<>();
+            Map<String, Map<String, Long>> artistPlays = new HashMap<>();
+            Map<String, Long> genrePlays = new HashMap<>();
+            for (Song song : mongoTemplate.find(query, Song.class)) {
+                long plays = playsBySong.getOrDefault(song.getId(), 0L);
+                String genre = genreKey(song.getGenre());
+                genrePlays.merge(genre, plays, Long::sum);
+                artistPlays.computeIfAbsent(genre, g -> new HashMap<>())
+                        .merge(artistKey(song.getArtist_id()), plays, Long::sum);
+            }
+            genrePlays.forEach((genre, plays) -> {
+                Update update = new Update().inc("writes", 1).inc("totalPlays", plays);
+                artistPlays.get(genre).forEach((artist, count) -> update.inc("artists." + artist + ".plays", count));
+                byGenre.put(genre, update);
+            });
+            if (byGenre.isEmpty()) return;
+
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DashboardStats.class);
+            byGenre.forEach((genre, update) -> bulk.upsert(Query.query(Criteria.where("_id").is(genre)), update));
+            bulk.execute();
+        } catch (RuntimeException e) {
+            logger.warn("Dashboard play totals update failed, left to reconciliation: {}", e.getMessage());
+        }
+    }
+
+    // ==================== RECONCILIATION ====================
+
+    @Scheduled(fixedDelayString = "${dashboard-stats.reconcile-interval-ms:3600000}",
+            initialDelayString = "${dashboard-stats.reconcile-initial-delay-ms:60000}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            logger.warn("Dashboard stats reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds every genre document from the songs collection and removes genres that
+     * no longer have songs, skipping genres written since the rebuild started.
+     * Returns the number of genres written.
+     */
+    public int reconcile() {
+        // Write counters before the aggregation: a genre whose counter moves may hold increments the $group missed
+        Query seenQuery = new Query();
+        seenQuery.fields().include("writes");
+        Map<String, Long> seen = new HashMap<>();
+        for (DashboardStats stats : mongoTemplate.find(seenQuery, DashboardStats.class)) {
+            seen.put(stats.getId(), stats.getWrites());
+        }
+
+        Aggregation aggregation = newAggregation(
+                group("genre", "artist_id")
+                        .count().as("songs")
+                        .sum("playCount").as("plays")
+                        .sum("duration").as("duration")
+        );
+
+        Date now = new Date();
+        Map<String, DashboardStats> byGenre = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, Song.class, Document.class)) {
+            Document id = row.get("_id", Document.class);
+            String genre = genreKey(id != null ? id.getString("genre") : null);
+            String artist = artistKey(id != null ? id.getString("artist_id") : null);
+            long songs = toLong(row.get("songs"));
+            long plays = toLong(row.get("plays"));
+
+            DashboardStats stats = byGenre.computeIfAbsent(genre, g -> {
+                DashboardStats created = new DashboardStats();
+                created.setId(g);
+                created.setReconciledAt(now);
+                return created;
+            });
+            stats.setSongCount(stats.getSongCount() + songs);
+            stats.setTotalPlays(stats.getTotalPlays() + plays);
+            stats.setTotalDuration(stats.getTotalDuration() + toLong(row.get("duration")));
+            stats.getArtists().merge(artist, new DashboardStats.ArtistTotals(songs, plays),
+                    (a, b) -> new DashboardStats.ArtistTotals(a.getSongs() + b.getSongs(), a.getPlays() + b.getPlays()));
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DashboardStats.class);
+        for (DashboardStats stats : byGenre.values()) {
+            Long writes = seen.get(stats.getId());
+            if (writes != null) {
+                stats.setWrites(writes);
+                bulk.replaceOne(unchanged(stats.getId(), writes), stats);
+            } else {
+                // Absent before the aggregation: only insert, a document created meanwhile wins
+                Document fields = new Document();
+                mongoTemplate.getConverter().write(stats, fields);
+                Update insert = new Update();
+                fields.forEach((field, value) -> {
+                    if (!"_id".equals(field)) insert.setOnInsert(field, value);
+                });
+                bulk.upsert(Query.query(Criteria.where("_id").is(stats.getId())), insert);
+            }
+        }
+        seen.forEach((genre, writes) -> {
+            if (!byGenre.containsKey(genre)) bulk.remove(unchanged(genre, writes));
+        });
+        if (!byGenre.isEmpty() || !seen.isEmpty()) {
+            bulk.execute();
+        }
+
+        logger.info("Dashboard stats reconciled: {} genres", byGenre.size());
+        return byGenre.size();
+    }
+
+    // The genre's document, as long as no incremental write landed since its counter was read
+    private static Query unchanged(String genre, long writes) {
+        // Documents written before the counter existed have no writes field
+        Criteria criteria = Criteria.where("_id").is(genre).and("writes");
+        return Query.query(writes == 0 ? criteria.in(0L, null) : criteria.is(writes));
+    }
+
+    // ==================== READS ====================
+
+    /**
+     * Genres by total plays with song count, total plays, average duration and top artist.
+     */
+    public List<Map<String, Object>> getDashboard() {
+        List<DashboardStats> genres = mongoTemplate.find(
+                new Query(Criteria.where("songCount").gt(0)).with(Sort.by(Sort.Direction.DESC, "totalPlays")),
+                DashboardStats.class);
+
+        Map<String, String> topArtistIds = new HashMap<>();
+        for (DashboardStats stats : genres) {
+            topArtist(stats).ifPresent(artistId -> topArtistIds.put(stats.getId(), artistId));
+        }
+        Map<String, Artist> artists = artistService.getByIds(topArtistIds.values());
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (DashboardStats stats : genres) {
+            String artistId = topArtistIds.get(stats.getId());
+            Artist artist = artistId != null ? artists.get(artistId) : null;
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("genre", stats.getId());
+            row.put("totalSongs", stats.getSongCount());
+            row.put("totalPlays", stats.getTotalPlays());
+            row.put("avgDuration", (double) stats.getTotalDuration() / stats.getSongCount());
+            row.put("topArtistId", artistId);
+            row.put("topArtist", artist != null ? artist.getName() : null);
+            row.put("reconciledAt", stats.getReconciledAt());
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // Song count per genre, without songs that have no genre
+    public Map<String, Long> getSongCountsByGenre() {
+        Query query = new Query(Criteria.where("songCount").gt(0).and("_id").ne(UNKNOWN_GENRE));
+        query.fields().include("songCount");
+        Map<String, Long> counts = new HashMap<>();
+        for (DashboardStats stats : mongoTemplate.find(query, DashboardStats.class)) {
+            counts.put(stats.getId(), stats.getSongCount());
+        }
+        return counts;
+    }
+
+    // Most plays, then most songs; artists whose songs all left the genre are skipped
+    private static Optional<String> topArtist(DashboardStats stats) {
+        if (stats.getArtists() == null) return Optional.empty();
+        return stats.getArtists().entrySet().stream()
+                .filter(e -> e.getValue().getSongs() > 0 && !UNKNOWN_ARTIST.equals(e.getKey()))
+                .max(Comparator.<Map.Entry<String, DashboardStats.ArtistTotals>>comparingLong(e -> e.getValue().getPlays())
+                        .thenComparingLong(e -> e.getValue().getSongs()))
+                .map(Map.Entry::getKey);
+    }
+
+    private static String genreKey(String genre) {
+        return genre == null || genre.isBlank() ? UNKNOWN_GENRE : genre;
+    }
+
+    // Artist ids become field names under "artists"; anything that can't be one is folded into "unknown"
+    private static String artistKey(String artistId) {
+        if (artistId == null || artistId.isEmpty() || artistId.contains(".") || artistId.startsWith("$")) {
+            return UNKNOWN_ARTIST;
+        }
+        return artistId;
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number n ? n.longValue() : 0L;
+    }
+}
@@ -4,20 +4,29 @@ import com.spotify.backend.model.Genre;
 import com.spotify.backend.repository.GenreRepository;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class GenreService {
 
+    // The whole (small) genre list is cached as one entry
+    private static final String ALL = "all";
+
     private final GenreRepository genreRepo;
+    private final CatalogCache catalogCache;
 
-    public GenreService(GenreRepository genreRepo) {
+    public GenreService(GenreRepository genreRepo, CatalogCache catalogCache) {
         this.genreRepo = genreRepo;
+        this.catalogCache = catalogCache;
     }
 
     public List<Genre> getAll() {
-        return genreRepo.findAll();
+        return catalogCache.get(CatalogCache.GENRES, ALL, Genre[].class,
+                        () -> Optional.of(genreRepo.findAll().toArray(new Genre[0])))
+                .map(genres -> new ArrayList<>(List.of(genres)))
+                .orElseGet(ArrayList::new);
     }
 
     public Optional<Genre> getById(String id) {
@@ -25,20 +34,25 @@ public class GenreService {
     }
 
     public Genre create(Genre g) {
-        return genreRepo.save(g);
+        Genre saved = genreRepo.save(g);
+        catalogCache.evict(CatalogCache.GENRES, ALL);
+        return saved;
     }
 
     public Genre update(String id, Genre g) {
         return genreRepo.findById(id).map(existing -> {
             existing.setName(g.getName());
             existing.setDescription(g.getDescription());
-            return genreRepo.save(existing);
+            Genre saved = genreRepo.save(existing);
+            catalogCache.evict(CatalogCache.GENRES, ALL);
+            return saved;
         }).orElse(null);
     }
 
     public boolean delete(String id) {
         if (!genreRepo.existsById(id)) return false;
         genreRepo.deleteById(id);
+        catalogCache.evict(CatalogCache.GENRES, ALL);
         return true;
     }
 }
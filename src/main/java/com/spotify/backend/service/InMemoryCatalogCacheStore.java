@@ -0,0 +1,76 @@
+package com.spotify.backend.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Single-process stand-in for Redis (tests and local runs without a Redis server).
+ * Expired entries are dropped lazily on read; published messages are delivered
+ * synchronously to the listeners of this process.
+ */
+public class InMemoryCatalogCacheStore implements CatalogCacheStore {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+
+    @Override
+    public String get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        if (entry.expiresAt < System.nanoTime()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public List<String> multiGet(List<String> keys) {
+        List<String> values = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            values.add(get(key));
+        }
+        return values;
+    }
+
+    @Override
+    public void multiSet(Map<String, String> values, Duration ttl) {
+        long expiresAt = System.nanoTime() + ttl.toNanos();
+        values.forEach((key, value) -> entries.put(key, new Entry(value, expiresAt)));
+    }
+
+    @Override
+    public Set<String> multiSetIfUnchanged(Map<String, String> values, Map<String, String> seen, Duration ttl) {
+        long expiresAt = System.nanoTime() + ttl.toNanos();
+        Set<String> written = new HashSet<>();
+        values.forEach((key, value) -> entries.compute(key, (k, current) -> {
+            String currentValue = current == null || current.expiresAt < System.nanoTime() ? null : current.value;
+            if (!Objects.equals(currentValue, seen.get(key))) return current;
+            written.add(key);
+            return new Entry(value, expiresAt);
+        }));
+        return written;
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        for (Consumer<String> listener : listeners.getOrDefault(channel, List.of())) {
+            listener.accept(message);
+        }
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        listeners.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    private record Entry(String value, long expiresAt) {}
+}
@@ -0,0 +1,103 @@
+package com.spotify.backend.service;
+
+import org.bson.Document;
+import org.bson.json.JsonParseException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Cursor (keyset) pagination: each page is "_id > last seen _id" sorted by _id and
+ * limited to size + 1, so deep pages cost the same as the first one and no count
+ * runs unless the caller asks for the total.
+ *
+ * The cursor is an opaque, URL-safe token wrapping a small BSON document with the
+ * last _id, so it round-trips ObjectId and String ids unchanged.
+ */
+@Component
+public class KeysetPaginator {
+
+    private static final int CURSOR_VERSION = 1;
+
+    private final MongoTemplate mongoTemplate;
+
+    public KeysetPaginator(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public static class InvalidCursorException extends IllegalArgumentException {
+        public InvalidCursorException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Case-insensitive "contains" filter on one field, or no filter for a blank search.
+     */
+    public static Criteria containsIgnoreCase(String field, String search) {
+        if (search == null || search.isEmpty()) return new Criteria();
+        return Criteria.where(field).regex(Pattern.quote(search), "i");
+    }
+
+    /**
+     * Fetch the page after {@code cursor} (null or empty for the first page).
+     * The page transform runs on the fetched documents, e.g. to enrich them in bulk.
+     */
+    public <T> Map<String, Object> page(Class<T> entityClass, Criteria filter, String cursor, int size,
+                                        boolean includeTotal, Function<T, String> idOf,
+                                        Function<List<T>, List<T>> transform) {
+
+        Query query = new Query(filter);
+        if (cursor != null && !cursor.isEmpty()) {
+            query.addCriteria(Criteria.where("_id").gt(decode(cursor)));
+        }
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(size + 1);
+
+        List<T> results = new ArrayList<>(mongoTemplate.find(query, entityClass));
+        boolean hasMore = results.size() > size;
+        if (hasMore) {
+            results = new ArrayList<>(results.subList(0, size));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("size", size);
+        response.put("hasMore", hasMore);
+        response.put("nextCursor", hasMore ? encode(idOf.apply(results.get(results.size() - 1))) : null);
+        if (includeTotal) {
+            response.put("totalElements", mongoTemplate.count(new Query(filter), entityClass));
+        }
+        response.put("data", transform.apply(results));
+        return response;
+    }
+
+    private static String encode(Object lastId) {
+        String json = new Document("v", CURSOR_VERSION).append("id", lastId).toJson();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object decode(String cursor) {
+        try {
+            String json = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            Document doc = Document.parse(json);
+            if (!Integer.valueOf(CURSOR_VERSION).equals(doc.get("v")) || doc.get("id") == null) {
+                throw new InvalidCursorException("Unsupported cursor");
+            }
+            return doc.get("id");
+        } catch (InvalidCursorException e) {
+            throw e;
+        } catch (IllegalArgumentException | JsonParseException e) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.spotify.backend.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.spotify.backend.model.Song;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind play counter. Plays are accumulated in memory in one LongAdder per
+ * song and flushed periodically as a single unordered bulkWrite of $inc updates,
+ * plus a final flush on shutdown.
+ *
+ * Counters are drained with sumThenReset but never removed while the song exists,
+ * so a play can't land on a counter the flusher has already dropped. The map is
+ * bounded by the number of distinct songs played since startup. Flushed songs are
+ * evicted from the catalog cache so cached play counts don't fall behind, and the
+ * applied increments are added to the per-genre dashboard totals.
+ */
+@Component
+public class PlayCountAccumulator {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlayCountAccumulator.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final CatalogCache catalogCache;
+    private final DashboardStatsService dashboardStats;
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    public PlayCountAccumulator(MongoTemplate mongoTemplate, CatalogCache catalogCache,
+                                DashboardStatsService dashboardStats) {
+        this.mongoTemplate = mongoTemplate;
+        this.catalogCache = catalogCache;
+        this.dashboardStats = dashboardStats;
+    }
+
+    public void record(String songId) {
+        counters.computeIfAbsent(songId, id -> new LongAdder()).increment();
+    }
+
+    // True once a play for this song has been accepted, so callers can skip the existence check
+    public boolean isTracked(String songId) {
+        return counters.containsKey(songId);
+    }
+
+    // Plays accepted but not yet written to Mongo
+    public long pending(String songId) {
+        LongAdder adder = counters.get(songId);
+        return adder != null ? adder.sum() : 0L;
+    }
+
+    // Drop the counter of a deleted song; unflushed plays for it are discarded
+    public void discard(String songId) {
+        counters.remove(songId);
+    }
+
+    @Scheduled(fixedDelayString = "${playcount.flush-interval-ms:5000}")
+    public void flush() {
+        List<String> songIds = new ArrayList<>();
+        List<Long> increments = new ArrayList<>();
+
+        counters.forEach((songId, adder) -> {
+            long count = adder.sumThenReset();
+            if (count > 0) {
+                songIds.add(songId);
+                increments.add(count);
+            }
+        });
+
+        if (songIds.isEmpty()) return;
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Song.class);
+        for (int i = 0; i < songIds.size(); i++) {
+            bulk.updateOne(
+                    Query.query(Criteria.where("_id").is(songIds.get(i))),
+                    new Update().inc("playCount", increments.get(i))
+            );
+        }
+
+        try {
+            bulk.execute();
+            catalogCache.evictAll(CatalogCache.SONGS, songIds);
+            dashboardStats.recordPlays(applied(songIds, increments, Set.of()));
+        } catch (BulkOperationException e) {
+            // Unordered: everything except the reported failures was applied
+            Set<Integer> failed = new HashSet<>();
+            for (BulkWriteError error : e.getErrors()) {
+                failed.add(error.getIndex());
+                requeue(songIds.get(error.getIndex()), increments.get(error.getIndex()));
+            }
+            logger.warn("Play count flush: {} of {} updates failed, re-queued", e.getErrors().size(), songIds.size());
+            catalogCache.evictAll(CatalogCache.SONGS, songIds);
+            dashboardStats.recordPlays(applied(songIds, increments, failed));
+        } catch (RuntimeException e) {
+            for (int i = 0; i < songIds.size(); i++) {
+                requeue(songIds.get(i), increments.get(i));
+            }
+            logger.warn("Play count flush failed, re-queued {} songs: {}", songIds.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private static Map<String, Long> applied(List<String> songIds, List<Long> increments, Set<Integer> failed) {
+        Map<String, Long> applied = new HashMap<>();
+        for (int i = 0; i < songIds.size(); i++) {
+            if (!failed.contains(i)) {
+                applied.put(songIds.get(i), increments.get(i));
+            }
+        }
+        return applied;
+    }
+
+    private void requeue(String songId, long count) {
+        counters.computeIfAbsent(songId, id -> new LongAdder()).add(count);
+    }
+}
@@ -1,15 +1,21 @@
 package com.spotify.backend.service;
 
+import com.spotify.backend.config.RequestLog;
 import com.spotify.backend.model.*;
 import com.spotify.backend.repository.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -17,8 +23,12 @@ public class PlaylistService {
 
     private final PlaylistRepository playlistRepo;
     private final SongRepository songRepo;
-    private final ArtistRepository artistRepo;
-    private final AlbumRepository albumRepo;
+    private final SongService songService;
+    private final RequestLog requestLog;
+    private final KeysetPaginator keysetPaginator;
+    private final CatalogCache catalogCache;
+    private final MongoTemplate mongoTemplate;
+    private final PlaylistTrackStore trackStore;
 
     // REMOVED: PlaylistSongRepository - not needed for MongoDB
 
@@ -28,107 +38,256 @@ public class PlaylistService {
     public Playlist enrichPlaylist(Playlist playlist) {
         if (playlist == null) return null;
 
-        System.out.println("🎵 Enriching playlist: " + playlist.getName() + " ID: " + playlist.getId());
-        System.out.println("📋 Current song IDs in playlist: " + playlist.getSongIds());
+        requestLog.trace("Enriching playlist {} ({}) with {} song IDs", playlist.getName(), playlist.getId(),
+                playlist.getSongIds() != null ? playlist.getSongIds().size() : 0);
 
-        List<Song> enrichedSongs = new ArrayList<>();
+        enrichPlaylists(List.of(playlist));
 
-        for (String songId : playlist.getSongIds()) {
-            Optional<Song> songOpt = songRepo.findById(songId);
-            if (songOpt.isPresent()) {
-                Song song = songOpt.get();
-                System.out.println("✅ Found song: " + song.getTitle() + " for playlist");
+        requestLog.debug("Enriched playlist {} - songs: {}", playlist.getId(), playlist.getSongs().size());
+        return playlist;
+    }
 
-                // Enrich song with artist/album
-                if (song.getArtist_id() != null) {
-                    Optional<Artist> artistOpt = artistRepo.findById(song.getArtist_id());
-                    artistOpt.ifPresent(song::setArtist);
-                }
-                if (song.getAlbum_id() != null) {
-                    Optional<Album> albumOpt = albumRepo.findById(song.getAlbum_id());
-                    albumOpt.ifPresent(song::setAlbum);
+    /**
+     * Hydrate a batch of playlists together. Each playlist gets only its first window of
+     * tracks (playlist-tracks.preview-size; the rest via GET /api/playlists/{id}/tracks,
+     * starting at tracksCursor), read from the leading track buckets of every playlist in
+     * one aggregation. songIds is replaced by that window's ids, not the whole playlist.
+     * Then one catalog-cache lookup for every song in those windows (an $in for the
+     * misses), then one each for artists and albums. Each playlist keeps its track order;
+     * missing songs are skipped.
+     */
+    public List<Playlist> enrichPlaylists(List<Playlist> playlists) {
+        Map<String, PlaylistTrackStore.TrackWindow> previews = trackStore.previews(playlists);
+
+        Set<String> allSongIds = new LinkedHashSet<>();
+        for (PlaylistTrackStore.TrackWindow window : previews.values()) {
+            window.tracks().forEach(track -> allSongIds.add(track.getSongId()));
+        }
+        Map<String, Song> songsById = hydrate(allSongIds);
+
+        for (Playlist playlist : playlists) {
+            PlaylistTrackStore.TrackWindow window = previews.get(playlist.getId());
+            List<String> songIds = new ArrayList<>();
+            List<Song> enrichedSongs = new ArrayList<>();
+            if (window != null) {
+                for (PlaylistTrackBucket.Track track : window.tracks()) {
+                    songIds.add(track.getSongId());
+                    Song song = songsById.get(track.getSongId());
+                    if (song != null) {
+                        enrichedSongs.add(song);
+                    } else {
+                        requestLog.debug("Song not found with ID: {} (playlist {})", track.getSongId(), playlist.getId());
+                    }
                 }
+                playlist.setTracksCursor(window.nextCursor());
+            }
+            playlist.setSongIds(songIds);
+            playlist.setSongs(enrichedSongs);
+        }
 
-                enrichedSongs.add(song);
-            } else {
-                System.out.println("❌ Song not found with ID: " + songId);
+        return playlists;
+    }
+
+    /**
+     * One window of a playlist's tracks with their songs, starting at {@code cursor}
+     * (null or empty for the first). Only the buckets the window spans are read and only
+     * its songs are hydrated. Returns null if the playlist doesn't exist.
+     */
+    public Map<String, Object> getTracks(String playlistId, String cursor, int limit) {
+        Playlist playlist = loadPlaylist(playlistId);
+        if (playlist == null) return null;
+
+        PlaylistTrackStore.TrackWindow window = trackStore.window(playlist, cursor, limit);
+        Set<String> songIds = new LinkedHashSet<>();
+        window.tracks().forEach(track -> songIds.add(track.getSongId()));
+        Map<String, Song> songsById = hydrate(songIds);
+
+        List<Map<String, Object>> tracks = new ArrayList<>();
+        for (PlaylistTrackBucket.Track track : window.tracks()) {
+            Song song = songsById.get(track.getSongId());
+            if (song == null) {
+                requestLog.debug("Song not found with ID: {} (playlist {})", track.getSongId(), playlistId);
+                continue;
             }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("songId", track.getSongId());
+            entry.put("addedAt", track.getAddedAt());
+            entry.put("song", song);
+            tracks.add(entry);
         }
 
-        playlist.setSongs(enrichedSongs);
-        System.out.println("🎉 Final enriched playlist - Songs: " + enrichedSongs.size());
+        Map<String, Object> response = new HashMap<>();
+        response.put("playlistId", playlistId);
+        response.put("trackCount", playlist.getTrackCount() != null ? playlist.getTrackCount()
+                : playlist.getSongIds() != null ? playlist.getSongIds().size() : 0);
+        response.put("size", limit);
+        response.put("hasMore", window.nextCursor() != null);
+        response.put("nextCursor", window.nextCursor());
+        response.put("data", tracks);
+        return response;
+    }
 
-        return playlist;
+    // The plain playlist document (no tracks), from the catalog cache; null if missing
+    Playlist loadPlaylist(String playlistId) {
+        return catalogCache.get(CatalogCache.PLAYLISTS, playlistId, Playlist.class,
+                () -> playlistRepo.findById(playlistId)).orElse(null);
+    }
+
+    // Songs by id with artists and albums attached
+    private Map<String, Song> hydrate(Set<String> songIds) {
+        if (songIds.isEmpty()) return new HashMap<>();
+        Map<String, Song> songsById = songService.getByIds(songIds);
+        songService.enrichAll(new ArrayList<>(songsById.values()));
+        return songsById;
     }
 
     // Get all playlists for user
     public List<Playlist> getUserPlaylists(String userId) {
         List<Playlist> playlists = playlistRepo.findByCreatedBy(userId);
-        System.out.println("🔍 Found " + playlists.size() + " playlists for user: " + userId);
-        return playlists.stream()
-                .map(this::enrichPlaylist)
-                .toList();
+        requestLog.debug("Found {} playlists for user: {}", playlists.size(), userId);
+        return enrichPlaylists(playlists);
     }
 
-    // Get playlist by ID
+    // Get playlist by ID (the playlist document and its songs come from the catalog cache)
     public Playlist getPlaylistById(String id) {
-        return playlistRepo.findById(id)
+        return catalogCache.get(CatalogCache.PLAYLISTS, id, Playlist.class, () -> playlistRepo.findById(id))
                 .map(this::enrichPlaylist)
                 .orElse(null);
     }
 
-    // Create playlist
+    // Create playlist; songIds sent with it go into track buckets like any later add
     public Playlist createPlaylist(Playlist playlist) {
         playlist.prePersist(); // Initialize timestamps and lists
-        return playlistRepo.save(playlist);
+        List<String> songIds = playlist.getSongIds();
+        playlist.setSongIds(new ArrayList<>());
+        playlist.setSongs(new ArrayList<>());
+        playlist.setTrackCount(0);
+        Playlist created = playlistRepo.save(playlist);
+        if (!songIds.isEmpty()) {
+            trackStore.append(created.getId(), songIds);
+            return getPlaylistById(created.getId());
+        }
+        return created;
     }
 
-    // Update playlist basic info
+    // Update playlist basic info ($set of those fields only, so track changes aren't overwritten)
     public Playlist updatePlaylist(String id, Playlist playlist) {
-        return playlistRepo.findById(id).map(existing -> {
-            existing.setName(playlist.getName());
-            existing.setDescription(playlist.getDescription());
-            existing.setCoverImage(playlist.getCoverImage());
-            existing.setIsPublic(playlist.getIsPublic());
-            existing.setUpdatedAt(java.time.LocalDateTime.now());
-            return playlistRepo.save(existing);
-        }).orElse(null);
+        Update update = new Update()
+                .set("name", playlist.getName())
+                .set("description", playlist.getDescription())
+                .set("coverImage", playlist.getCoverImage())
+                .set("isPublic", playlist.getIsPublic())
+                .set("updatedAt", LocalDateTime.now());
+        Playlist saved = mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(id)), update,
+                FindAndModifyOptions.options().returnNew(true), Playlist.class);
+        if (saved != null) {
+            catalogCache.evict(CatalogCache.PLAYLISTS, id);
+        }
+        return saved;
     }
 
     // Delete playlist
     public boolean deletePlaylist(String id) {
         if (!playlistRepo.existsById(id)) return false;
         playlistRepo.deleteById(id);
+        trackStore.deleteAll(id);
+        catalogCache.evict(CatalogCache.PLAYLISTS, id);
         return true;
     }
 
-    // Add song to playlist - SIMPLIFIED for MongoDB
-    public Playlist addSongToPlaylist(String playlistId, String songId) {
-        return playlistRepo.findById(playlistId).map(playlist -> {
-            // Check if song exists
-            if (!songRepo.existsById(songId)) {
-                throw new RuntimeException("Song not found: " + songId);
-            }
+    /*
+     * Membership changes go through PlaylistTrackStore: one conditional update on the
+     * playlist's tail bucket (or the bucket holding the song) plus an $inc of trackCount,
+     * never a rewrite of the whole track list. With returnNew the playlist is returned
+     * with its first window of tracks; otherwise nothing is returned (null). A missing
+     * playlist throws as before.
+     */
 
-            // Add to songIds list if not already present
-            if (!playlist.getSongIds().contains(songId)) {
-                playlist.getSongIds().add(songId);
-                playlist.setUpdatedAt(java.time.LocalDateTime.now());
-                return playlistRepo.save(playlist);
-            }
-            return playlist; // Already in playlist
-        }).orElseThrow(() -> new RuntimeException("Playlist not found: " + playlistId));
+    // Add song to playlist; a song already in the playlist leaves it untouched
+    public Playlist addSongToPlaylist(String playlistId, String songId, boolean returnNew) {
+        if (!songRepo.existsById(songId)) {
+            throw new RuntimeException("Song not found: " + songId);
+        }
+        if (!trackStore.append(playlistId, List.of(songId)).isEmpty()) {
+            catalogCache.evict(CatalogCache.PLAYLISTS, playlistId);
+        }
+        return returnNew ? getPlaylistById(playlistId) : null;
     }
 
-    // Remove song from playlist - SIMPLIFIED for MongoDB
-    public Playlist removeSongFromPlaylist(String playlistId, String songId) {
-        return playlistRepo.findById(playlistId).map(playlist -> {
-            playlist.getSongIds().remove(songId);
-            playlist.setUpdatedAt(java.time.LocalDateTime.now());
-            return playlistRepo.save(playlist);
-        }).orElseThrow(() -> new RuntimeException("Playlist not found: " + playlistId));
+    // Remove song from playlist; a song not in the playlist leaves it untouched
+    public Playlist removeSongFromPlaylist(String playlistId, String songId, boolean returnNew) {
+        removeTrack(playlistId, songId);
+        return returnNew ? getPlaylistById(playlistId) : null;
     }
 
+    // Remove a song; false if it wasn't in the playlist
+    public boolean removeTrack(String playlistId, String songId) {
+        boolean removed = trackStore.remove(playlistId, songId);
+        if (removed) {
+            catalogCache.evict(CatalogCache.PLAYLISTS, playlistId);
+        }
+        return removed;
+    }
+
+    /**
+     * Move a track right after {@code afterSongId}, or right before {@code beforeSongId}
+     * when no after is given. Only the moved track's rank changes. Returns false if the
+     * song or the anchor isn't in the playlist.
+     */
+    public boolean moveTrack(String playlistId, String songId, String afterSongId, String beforeSongId) {
+        boolean placeAfter = afterSongId != null;
+        boolean moved = trackStore.move(playlistId, songId, placeAfter ? afterSongId : beforeSongId, placeAfter);
+        if (moved) {
+            catalogCache.evict(CatalogCache.PLAYLISTS, playlistId);
+        }
+        return moved;
+    }
+
+    /**
+     * Move a track so it ends up at {@code position} (0-based, past the end = last) among
+     * the playlist's tracks: placed before the track now at that index, reading only the
+     * buckets up to it. Returns false if the song isn't in the playlist.
+     */
+    public boolean moveTrackToPosition(String playlistId, String songId, int position) {
+        Playlist playlist = loadPlaylist(playlistId);
+        if (playlist == null) {
+            throw new RuntimeException("Playlist not found: " + playlistId);
+        }
+        int index = Math.max(0, position);
+        List<PlaylistTrackBucket.Track> window = trackStore.window(playlist, null, index + 2).tracks();
+        List<PlaylistTrackBucket.Track> others = new ArrayList<>(window);
+        others.removeIf(track -> songId.equals(track.getSongId()));
+        if (others.isEmpty()) {
+            // Empty playlist, or the song is its only track
+            return !window.isEmpty();
+        }
+        if (index < others.size()) {
+            return moveTrack(playlistId, songId, null, others.get(index).getSongId());
+        }
+        // The window reached the end of the playlist: after the last track
+        return moveTrack(playlistId, songId, others.get(others.size() - 1).getSongId(), null);
+    }
+
+    // Remove every track, keeping the playlist
+    public boolean clearTracks(String playlistId) {
+        boolean cleared = trackStore.clear(playlistId);
+        catalogCache.evict(CatalogCache.PLAYLISTS, playlistId);
+        return cleared;
+    }
+
+    private Playlist currentState(String playlistId, boolean returnNew) {
+        if (!returnNew) {
+            if (!playlistRepo.existsById(playlistId)) {
+                throw new RuntimeException("Playlist not found: " + playlistId);
+            }
+            return null;
+        }
+        Playlist playlist = getPlaylistById(playlistId);
+        if (playlist == null) {
+            throw new RuntimeException("Playlist not found: " + playlistId);
+        }
+        return playlist;
+    }
 
     public Map<String, Object> getPaginated(int page, int size, String search) {
 
@@ -142,10 +301,8 @@ public class PlaylistService {
             playlistPage = playlistRepo.findAll(pageable);
         }
 
-        List<Playlist> enriched = playlistPage.getContent()
-                .stream()
-                .map(this::enrichPlaylist) // you already have this method
-                .collect(Collectors.toList());
+        // Hydrate the whole page with one query per collection
+        List<Playlist> enriched = enrichPlaylists(new ArrayList<>(playlistPage.getContent()));
 
         Map<String, Object> response = new HashMap<>();
         response.put("page", page);
@@ -157,24 +314,84 @@ public class PlaylistService {
         return response;
     }
 
+    // Cursor (keyset) mode: pass the previous page's nextCursor; the total is only counted on request
+    public Map<String, Object> getByCursor(String cursor, int size, String search, boolean includeTotal) {
+        return keysetPaginator.page(Playlist.class, KeysetPaginator.containsIgnoreCase("name", search),
+                cursor, size, includeTotal, Playlist::getId, this::enrichPlaylists);
+    }
+
+
+    /**
+     * Add multiple songs, appended in bucket-sized $push/$each chunks; ids already in the
+     * playlist are skipped. The whole batch is validated with a single _id-only $in query. The result
+     * lists the accepted ids, those actually appended (in request order), and each rejected id
+     * with its reason ("blank", "duplicate" within the request, "not_found", "already_present"
+     * in the playlist), plus the playlist when requested.
+     */
+    public Map<String, Object> addSongsToPlaylist(String playlistId, List<String> songIds, boolean returnNew) {
+        List<String> candidates = new ArrayList<>();
+        List<Map<String, String>> rejected = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (String songId : songIds) {
+            if (songId == null || songId.isBlank()) {
+                rejected.add(Map.of("songId", String.valueOf(songId), "reason", "blank"));
+            } else if (!seen.add(songId)) {
+                rejected.add(Map.of("songId", songId, "reason", "duplicate"));
+            } else {
+                candidates.add(songId);
+            }
+        }
+
+        Set<String> found = existingSongIds(candidates);
+        List<String> existing = new ArrayList<>();
+        for (String songId : candidates) {
+            if (found.contains(songId)) {
+                existing.add(songId);
+            } else {
+                rejected.add(Map.of("songId", songId, "reason", "not_found"));
+            }
+        }
 
-    // Add multiple songs to playlist - SIMPLIFIED for MongoDB
-    public Playlist addSongsToPlaylist(String playlistId, List<String> songIds) {
-        return playlistRepo.findById(playlistId).map(playlist -> {
-            int addedCount = 0;
-            for (String songId : songIds) {
-                // Check if song exists and not already in playlist
-                if (songRepo.existsById(songId) && !playlist.getSongIds().contains(songId)) {
-                    playlist.getSongIds().add(songId);
-                    addedCount++;
+        List<String> accepted = new ArrayList<>();
+        Playlist updated;
+        if (existing.isEmpty()) {
+            updated = currentState(playlistId, returnNew);
+        } else {
+            Set<String> appended = new HashSet<>(trackStore.append(playlistId, existing));
+            for (String songId : existing) {
+                if (appended.contains(songId)) {
+                    accepted.add(songId);
+                } else {
+                    rejected.add(Map.of("songId", songId, "reason", "already_present"));
                 }
             }
-            if (addedCount > 0) {
-                playlist.setUpdatedAt(java.time.LocalDateTime.now());
-                playlistRepo.save(playlist);
-                System.out.println("✅ Added " + addedCount + " songs to playlist " + playlistId);
+            if (!appended.isEmpty()) {
+                catalogCache.evict(CatalogCache.PLAYLISTS, playlistId);
             }
-            return playlist;
-        }).orElseThrow(() -> new RuntimeException("Playlist not found: " + playlistId));
+            updated = returnNew ? getPlaylistById(playlistId) : null;
+            requestLog.debug("Added {} songs to playlist {} ({} rejected)", appended.size(), playlistId,
+                    rejected.size());
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("playlistId", playlistId);
+        result.put("accepted", accepted);
+        result.put("rejected", rejected);
+        if (updated != null) {
+            result.put("playlist", updated);
+        }
+        return result;
+    }
+
+    // Which of the ids exist, in one query that returns only _id
+    private Set<String> existingSongIds(Collection<String> ids) {
+        if (ids.isEmpty()) return Set.of();
+        Query query = Query.query(Criteria.where("_id").in(ids));
+        query.fields().include("_id");
+        Set<String> found = new HashSet<>();
+        for (Song song : mongoTemplate.find(query, Song.class)) {
+            found.add(song.getId());
+        }
+        return found;
     }
 }
\ No newline at end of file
@@ -1,84 +1,162 @@
 package com.spotify.backend.service;
 
+import com.spotify.backend.config.PlaylistTrackMigration;
+import com.spotify.backend.model.Playlist;
 import com.spotify.backend.model.PlaylistSong;
-import com.spotify.backend.repository.PlaylistSongRepository;
+import com.spotify.backend.model.PlaylistTrackBucket;
+import com.spotify.backend.repository.SongRepository;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+/**
+ * The /api/playlistsSong membership API as a view over the playlist's track buckets.
+ * There is no separate playlist_songs store any more: writes go through PlaylistService
+ * (the same path as /api/playlists), and reads come from PlaylistTrackStore, so both APIs
+ * always agree. Membership ids are "playlistId:songId".
+ */
 @Service
 public class PlaylistSongService {
 
-    private final PlaylistSongRepository playlistSongRepository;
+    private static final String ID_SEPARATOR = ":";
 
-    public PlaylistSongService(PlaylistSongRepository playlistSongRepository) {
-        this.playlistSongRepository = playlistSongRepository;
+    private final PlaylistService playlistService;
+    private final PlaylistTrackStore trackStore;
+    private final PlaylistTrackMigration migration;
+    private final SongRepository songRepo;
+
+    public PlaylistSongService(PlaylistService playlistService, PlaylistTrackStore trackStore,
+                               PlaylistTrackMigration migration, SongRepository songRepo) {
+        this.playlistService = playlistService;
+        this.trackStore = trackStore;
+        this.migration = migration;
+        this.songRepo = songRepo;
     }
 
-    // Create
+    // Create (appended, or moved to position when one is given); null if the playlist or the song doesn't exist
     public PlaylistSong create(PlaylistSong playlistSong) {
-        return playlistSongRepository.save(playlistSong);
+        String playlistId = playlistSong.getPlaylistId();
+        if (playlistService.loadPlaylist(playlistId) == null) return null;
+        if (playlistSong.getSongId() == null || !songRepo.existsById(playlistSong.getSongId())) return null;
+        playlistService.addSongToPlaylist(playlistId, playlistSong.getSongId(), false);
+        if (playlistSong.getPosition() != null) {
+            playlistService.moveTrackToPosition(playlistId, playlistSong.getSongId(), playlistSong.getPosition());
+        }
+        return getById(id(playlistId, playlistSong.getSongId())).orElse(null);
     }
 
     // Read
     public List<PlaylistSong> getAll() {
-        return playlistSongRepository.findAll();
+        List<PlaylistSong> all = new ArrayList<>();
+        trackStore.tracksOf(null, !migration.isInlineDone())
+                .forEach((playlistId, tracks) -> all.addAll(views(playlistId, tracks)));
+        return all;
     }
 
     public Optional<PlaylistSong> getById(String id) {
-        return playlistSongRepository.findById(id);
+        int separator = id.indexOf(ID_SEPARATOR);
+        if (separator < 0) return Optional.empty();
+        String playlistId = id.substring(0, separator);
+        String songId = id.substring(separator + 1);
+        Playlist playlist = playlistService.loadPlaylist(playlistId);
+        if (playlist == null) return Optional.empty();
+        return Optional.ofNullable(trackStore.locate(playlist, songId))
+                .map(located -> view(playlistId, located.track(), located.position()));
     }
 
     public List<PlaylistSong> getByPlaylistId(String playlistId) {
-        return playlistSongRepository.findByPlaylistId(playlistId);
+        Playlist playlist = playlistService.loadPlaylist(playlistId);
+        return playlist != null ? views(playlistId, trackStore.allTracks(playlist)) : List.of();
     }
 
+    // Reverse lookup through the tracks.songId index; positions aren't computed here
     public List<PlaylistSong> getBySongId(String songId) {
-        return playlistSongRepository.findBySongId(songId);
+        List<PlaylistSong> views = new ArrayList<>();
+        for (PlaylistTrackBucket bucket : trackStore.bucketsContaining(songId, !migration.isInlineDone())) {
+            for (PlaylistTrackBucket.Track track : bucket.getTracks()) {
+                views.add(view(bucket.getPlaylistId(), track, null));
+            }
+        }
+        return views;
     }
 
     public long getCountByPlaylistId(String playlistId) {
-        return playlistSongRepository.countByPlaylistId(playlistId);
+        Playlist playlist = playlistService.loadPlaylist(playlistId);
+        if (playlist == null) return 0;
+        if (playlist.getTrackCount() != null) return playlist.getTrackCount();
+        return playlist.getSongIds() != null ? playlist.getSongIds().size() : 0;
     }
 
+    // Every playlist's buckets in one query, in the order the ids are given
     public List<PlaylistSong> getByPlaylistIds(List<String> playlistIds) {
-        return playlistSongRepository.findByPlaylistIdIn(playlistIds);
+        Map<String, List<PlaylistTrackBucket.Track>> tracks =
+                trackStore.tracksOf(new LinkedHashSet<>(playlistIds), !migration.isInlineDone());
+        List<PlaylistSong> views = new ArrayList<>();
+        for (String playlistId : new LinkedHashSet<>(playlistIds)) {
+            views.addAll(views(playlistId, tracks.getOrDefault(playlistId, List.of())));
+        }
+        return views;
     }
 
-    // Update
+    // Update: only the position can change (a move); null if the membership doesn't exist
     public PlaylistSong update(String id, PlaylistSong playlistSong) {
-        if (playlistSongRepository.existsById(id)) {
-            playlistSong.setId(id);
-            return playlistSongRepository.save(playlistSong);
+        Optional<PlaylistSong> existing = getById(id);
+        if (existing.isEmpty()) return null;
+        if (playlistSong.getPosition() != null) {
+            playlistService.moveTrackToPosition(existing.get().getPlaylistId(), existing.get().getSongId(),
+                    playlistSong.getPosition());
+            return getById(id).orElse(null);
         }
-        return null;
+        return existing.get();
     }
 
     // Delete
     public boolean delete(String id) {
-        if (playlistSongRepository.existsById(id)) {
-            playlistSongRepository.deleteById(id);
-            return true;
-        }
-        return false;
+        return getById(id)
+                .map(view -> deleteByPlaylistIdAndSongId(view.getPlaylistId(), view.getSongId()))
+                .orElse(false);
     }
 
     public boolean deleteByPlaylistIdAndSongId(String playlistId, String songId) {
-        Optional<PlaylistSong> relation = playlistSongRepository.findByPlaylistIdAndSongId(playlistId, songId);
-        if (relation.isPresent()) {
-            playlistSongRepository.delete(relation.get());
-            return true;
-        }
-        return false;
+        if (playlistService.loadPlaylist(playlistId) == null) return false;
+        return playlistService.removeTrack(playlistId, songId);
     }
 
     public boolean deleteAllByPlaylistId(String playlistId) {
-        List<PlaylistSong> relations = playlistSongRepository.findByPlaylistId(playlistId);
-        if (!relations.isEmpty()) {
-            playlistSongRepository.deleteAll(relations);
-            return true;
+        if (playlistService.loadPlaylist(playlistId) == null) return false;
+        return playlistService.clearTracks(playlistId);
+    }
+
+    // ==================== HELPERS ====================
+
+    private static List<PlaylistSong> views(String playlistId, List<PlaylistTrackBucket.Track> tracks) {
+        List<PlaylistSong> views = new ArrayList<>();
+        for (int i = 0; i < tracks.size(); i++) {
+            views.add(view(playlistId, tracks.get(i), i));
         }
-        return false;
+        return views;
+    }
+
+    private static PlaylistSong view(String playlistId, PlaylistTrackBucket.Track track, Integer position) {
+        PlaylistSong view = new PlaylistSong(playlistId, track.getSongId());
+        view.setId(id(playlistId, track.getSongId()));
+        view.setAddedAt(toLocal(track.getAddedAt()));
+        view.setPosition(position);
+        return view;
+    }
+
+    private static String id(String playlistId, String songId) {
+        return playlistId + ID_SEPARATOR + songId;
+    }
+
+    private static LocalDateTime toLocal(Instant instant) {
+        return instant != null ? LocalDateTime.ofInstant(instant, ZoneId.systemDefault()) : null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,986 @@
+package com.spotify.backend.service;
+
+import com.spotify.backend.model.Playlist;
+import com.spotify.backend.model.PlaylistTrackBucket;
+import com.spotify.backend.model.PlaylistTrackBucket.Track;
+import org.bson.Document;
+import org.bson.json.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+/**
+ * Playlist tracks stored as fixed-size buckets in playlist_tracks (see
+ * {@link PlaylistTrackBucket}) instead of one unbounded songIds array on the playlist.
+ *
+ * Track writes take no lock: each one is a single-document update guarded on the bucket
+ * state it read, retried when another writer got there first. Appends go to the last
+ * bucket while it has room, then open the next seq. Two appends of the same song can
+ * still land in different buckets (each checked before the other wrote), so after
+ * writing, an append withdraws its copies that have another copy in an earlier bucket.
+ * Removals filter the song out of the buckets holding it, recount them from the array
+ * and drop buckets that become empty. The playlist document keeps only trackCount,
+ * adjusted by what each write actually changed.
+ *
+ * Order within a bucket comes from each track's {@link RankKeys} rank, so a move gives
+ * the track one new key between its new neighbours: a single guarded $set inside the
+ * bucket, or a $push plus a $pull when it crosses into another bucket. A move may take
+ * its target past playlist-tracks.bucket-size; such a bucket is queued and split in the
+ * background into itself and a new bucket at a free seq after it (seqs are spaced
+ * SEQ_STEP apart for that, and respaced when a gap runs out). Keys grow when the same
+ * gap is split repeatedly; a bucket whose new key passes playlist-tracks.max-rank-length
+ * is queued and re-keyed in the background too. Tracks written before ranks existed
+ * have none and sort first, in array order; their bucket is keyed before its first move.
+ *
+ * A repair (PlaylistTrackChecker) holds off a playlist's track writes with a lease on the
+ * playlist document, see {@link #underRepairLease}. Writes check it in the read they make
+ * anyway and answer BusyException while it is held.
+ *
+ * Playlists written before buckets existed keep their tracks inline in songIds
+ * (trackCount absent). They are read from there as-is and moved into buckets on their
+ * first write, so every write path sees buckets only.
+ *
+ * Reads return windows: a window starts at a cursor (bucket seq plus the rank of the
+ * first track) and loads only the buckets it spans. Re-keying a bucket while a cursor
+ * into it is open can shift that cursor's next window.
+ */
+@Service
+public class PlaylistTrackStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlaylistTrackStore.class);
+    private static final int CURSOR_VERSION = 1;
+    // Lost races for the tail bucket before an append gives up
+    private static final int MAX_APPEND_CONFLICTS = 10;
+    private static final int MAX_MOVE_ATTEMPTS = 10;
+    // Distance between the seqs of consecutive buckets as written, leaving room for splits
+    static final int SEQ_STEP = 1024;
+    // Repair lease on the playlist document: {token, until}
+    private static final String REPAIR_LEASE = "trackRepair";
+    private static final long REPAIR_LEASE_MS = 30_000;
+    // Time given to writes that passed their lease check just before a repair took it
+    private static final long REPAIR_GRACE_MS = 1_000;
+    private static final Comparator<Track> BY_RANK =
+            Comparator.comparing(Track::getRank, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final MongoTemplate mongoTemplate;
+    private final int bucketSize;
+    private final int previewSize;
+    private final int maxRankLength;
+
+    // Buckets whose keys got too long or that grew past bucketSize, fixed by rebalancePending
+    private final Set<String> rebalanceQueue = ConcurrentHashMap.newKeySet();
+
+    public PlaylistTrackStore(MongoTemplate mongoTemplate,
+                              @Value("${playlist-tracks.bucket-size:200}") int bucketSize,
+                              @Value("${playlist-tracks.preview-size:100}") int previewSize,
+                              @Value("${playlist-tracks.max-rank-length:12}") int maxRankLength) {
+        this.mongoTemplate = mongoTemplate;
+        this.bucketSize = bucketSize;
+        this.previewSize = previewSize;
+        this.maxRankLength = maxRankLength;
+    }
+
+    /**
+     * A write that kept losing races on the playlist's buckets, or that found them under
+     * repair; safe to retry shortly.
+     */
+    public static class BusyException extends RuntimeException {
+        public BusyException(String playlistId) {
+            super("Playlist " + playlistId + " is too busy, try again");
+        }
+    }
+
+    public record TrackWindow(List<Track> tracks, String nextCursor) {}
+
+    public record Located(Track track, int position) {}
+
+    // Where a window starts: bucket seq, then the first track's rank (or its index when it has none)
+    record Position(int seq, String rank, int index) {}
+
+    // Where a moved track goes: between low and high in the bucket's rank order (null = the bucket's edge)
+    private record Gap(PlaylistTrackBucket bucket, Track low, Track high) {}
+
+    // ==================== WRITES ====================
+
+    /**
+     * Appends the songs not already in the playlist, in the given order. Returns the ids
+     * actually appended. Throws if the playlist doesn't exist.
+     */
+    public List<String> append(String playlistId, List<String> songIds) {
+        return append(playlistId, songIds, Map.of());
+    }
+
+    // Same, keeping the given addedAt per song (migrated memberships); others get now
+    public List<String> append(String playlistId, List<String> songIds, Map<String, Instant> addedAt) {
+        ensureBucketed(playlistId);
+        List<String> pending = new ArrayList<>(new LinkedHashSet<>(songIds));
+        // Bucket each appended song went into
+        Map<String, PlaylistTrackBucket> writtenTo = new LinkedHashMap<>();
+        boolean check = true;
+        int conflicts = 0;
+        while (!pending.isEmpty()) {
+            if (check) {
+                // Again after every lost race: the other writer may have added the same songs
+                pending.removeAll(containedSongIds(playlistId, pending));
+                check = false;
+                if (pending.isEmpty()) break;
+            }
+            PlaylistTrackBucket last = lastBucket(playlistId);
+            int room = last != null ? bucketSize - last.getCount() : 0;
+            PlaylistTrackBucket written;
+            List<String> chunk;
+            if (room > 0) {
+                chunk = pending.subList(0, Math.min(room, pending.size()));
+                List<Track> tracks = tracksAfter(maxRank(last), chunk, addedAt);
+                // Only if the bucket is unchanged since it was read (a concurrent append may have
+                // filled it or taken the same keys) and none of the songs got into it meanwhile
+                Query query = Query.query(Criteria.where("_id").is(last.getId()).and("count").is(last.getCount())
+                        .and("tracks.songId").nin(new ArrayList<>(chunk)));
+                Update update = new Update().push("tracks").each(tracks.toArray()).inc("count", chunk.size());
+                written = mongoTemplate.updateFirst(query, update, PlaylistTrackBucket.class).getModifiedCount() > 0
+                        ? last : null;
+                if (written != null && tracks.get(tracks.size() - 1).getRank().length() > maxRankLength) {
+                    rebalanceQueue.add(last.getId());
+                }
+            } else {
+                chunk = pending.subList(0, Math.min(bucketSize, pending.size()));
+                written = insertBucket(playlistId, last != null ? last.getSeq() + SEQ_STEP : 0, chunk, addedAt);
+            }
+            if (written != null) {
+                chunk.forEach(songId -> writtenTo.put(songId, written));
+                chunk.clear();
+            } else if (++conflicts > MAX_APPEND_CONFLICTS) {
+                throw new BusyException(playlistId);
+            } else {
+                check = true;
+            }
+        }
+
+        List<String> appended = withdrawDuplicates(playlistId, writtenTo);
+        if (!appended.isEmpty()) {
+            adjustTrackCount(playlistId, appended.size());
+        }
+        return appended;
+    }
+
+    /*
+     * A concurrent append of the same song, checked before this one wrote, can have put it
+     * into another bucket. The copy in the earliest bucket stays: this append pulls its own
+     * copies that have one before them (the other append, seeing this copy after its own,
+     * keeps its). Returns the songs whose copy stayed.
+     */
+    private List<String> withdrawDuplicates(String playlistId, Map<String, PlaylistTrackBucket> writtenTo) {
+        if (writtenTo.isEmpty()) return List.of();
+        Query query = Query.query(Criteria.where("playlistId").is(playlistId).and("tracks.songId").in(writtenTo.keySet()));
+        query.fields().include("seq", "tracks.songId");
+        Map<String, Integer> firstSeq = new HashMap<>();
+        for (PlaylistTrackBucket bucket : mongoTemplate.find(query, PlaylistTrackBucket.class)) {
+            for (Track track : bucket.getTracks()) {
+                if (writtenTo.containsKey(track.getSongId())) {
+                    firstSeq.merge(track.getSongId(), bucket.getSeq(), Math::min);
+                }
+            }
+        }
+
+        List<String> kept = new ArrayList<>();
+        Set<String> pulledFrom = new HashSet<>();
+        writtenTo.forEach((songId, bucket) -> {
+            if (firstSeq.getOrDefault(songId, bucket.getSeq()) >= bucket.getSeq()) {
+                kept.add(songId);
+            } else if (pullTrack(Criteria.where("_id").is(bucket.getId()), songId) != null) {
+                pulledFrom.add(bucket.getId());
+            }
+        });
+        if (!pulledFrom.isEmpty()) {
+            logger.debug("Withdrew {} tracks of playlist {} appended concurrently elsewhere",
+                    writtenTo.size() - kept.size(), playlistId);
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(pulledFrom).and("count").lte(0)),
+                    PlaylistTrackBucket.class);
+        }
+        return kept;
+    }
+
+    /**
+     * Removes the song from the playlist, every copy of it should a race have left more
+     * than one. Returns false if it wasn't there; throws if the playlist doesn't exist.
+     */
+    public boolean remove(String playlistId, String songId) {
+        ensureBucketed(playlistId);
+        // One bucket at a time; each one's previous state says how many copies it lost, so
+        // concurrent removes of the same song each count only what they pulled
+        int removed = 0;
+        PlaylistTrackBucket before;
+        while ((before = pullTrack(Criteria.where("playlistId").is(playlistId), songId)) != null) {
+            removed += (int) before.getTracks().stream().filter(track -> songId.equals(track.getSongId())).count();
+        }
+        if (removed == 0) return false;
+
+        mongoTemplate.remove(Query.query(Criteria.where("playlistId").is(playlistId).and("count").lte(0)),
+                PlaylistTrackBucket.class);
+        adjustTrackCount(playlistId, -removed);
+        return true;
+    }
+
+    /**
+     * Moves a track right after (or before) another track of the same playlist by giving
+     * it a rank between its new neighbours. Returns false if either song isn't in the
+     * playlist; throws if the playlist doesn't exist.
+     */
+    public boolean move(String playlistId, String songId, String anchorSongId, boolean placeAfter) {
+        ensureBucketed(playlistId);
+        for (int attempt = 0; attempt < MAX_MOVE_ATTEMPTS; attempt++) {
+            Boolean moved = tryMove(playlistId, songId, anchorSongId, placeAfter);
+            if (moved != null) return moved;
+        }
+        throw new BusyException(playlistId);
+    }
+
+    /*
+     * One move attempt from a fresh read: one guarded update within a bucket, or a push
+     * into the target plus a pull from the source. Null when it has to be retried: a
+     * guarded write found its bucket changed, or the target first had to be re-keyed.
+     */
+    private Boolean tryMove(String playlistId, String songId, String anchorSongId, boolean placeAfter) {
+        PlaylistTrackBucket source = bucketOf(playlistId, songId);
+        PlaylistTrackBucket anchorBucket = bucketOf(playlistId, anchorSongId);
+        if (source == null || anchorBucket == null) return false;
+        if (songId.equals(anchorSongId)) return true;
+
+        Gap gap = gapAt(anchorBucket, songId, anchorSongId, placeAfter);
+        PlaylistTrackBucket target = gap.bucket();
+        if (needsRekey(target, gap)) {
+            // Unkeyed or tied ranks leave no gap to split
+            rebalance(target);
+            return null;
+        }
+        String rank = RankKeys.between(rankOf(gap.low()), rankOf(gap.high()));
+
+        if (target.getId().equals(source.getId())) {
+            Query query = guarded(target, target.getCount(), gap.low(), gap.high());
+            query.addCriteria(Criteria.where("tracks.songId").is(songId));
+            Update update = new Update().set("tracks.$[moved].rank", rank)
+                    .filterArray(Criteria.where("moved.songId").is(songId));
+            if (mongoTemplate.updateFirst(query, update, PlaylistTrackBucket.class).getModifiedCount() == 0) return null;
+            if (rank.length() > maxRankLength) rebalanceQueue.add(target.getId());
+            return true;
+        }
+        Track moved = source.getTracks().stream().filter(track -> songId.equals(track.getSongId())).findFirst()
+                .orElseThrow();
+        return transfer(source, moved, target, rank, gap) ? true : null;
+    }
+
+    /*
+     * Moves one track between buckets, adding before removing so an interruption leaves a
+     * duplicate rather than a lost track. The push only applies while `to` has the count
+     * and neighbours it was read with; the pull only if the track is still in `from`, and
+     * otherwise (removed or moved meanwhile) the push is undone. False if either bucket
+     * had changed. A target pushed past bucketSize is left for rebalancePending to split.
+     * The pushed copy isn't counted in trackCount; if a concurrent remove took it before
+     * the undo could, that remove counted it, so it is given back.
+     */
+    private boolean transfer(PlaylistTrackBucket from, Track track, PlaylistTrackBucket to, String rank, Gap gap) {
+        Query query = guarded(to, to.getCount(), gap.low(), gap.high());
+        query.addCriteria(Criteria.where("tracks.songId").ne(track.getSongId()));
+        Update push = new Update().push("tracks", new Track(track.getSongId(), track.getAddedAt(), rank)).inc("count", 1);
+        if (mongoTemplate.updateFirst(query, push, PlaylistTrackBucket.class).getModifiedCount() == 0) return false;
+
+        if (pullTrack(Criteria.where("_id").is(from.getId()), track.getSongId()) == null) {
+            if (pullTrack(Criteria.where("_id").is(to.getId()), track.getSongId()) == null) {
+                adjustTrackCount(to.getPlaylistId(), 1);
+            }
+            return false;
+        }
+        if (from.getCount() <= 1) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(from.getId()).and("count").lte(0)),
+                    PlaylistTrackBucket.class);
+        }
+        if (rank.length() > maxRankLength || to.getCount() + 1 > bucketSize) {
+            rebalanceQueue.add(to.getId());
+        }
+        return true;
+    }
+
+    public void deleteAll(String playlistId) {
+        mongoTemplate.remove(Query.query(Criteria.where("playlistId").is(playlistId)), PlaylistTrackBucket.class);
+    }
+
+    // Empties the playlist but keeps it. Returns false if it had no tracks
+    public boolean clear(String playlistId) {
+        ensureBucketed(playlistId);
+        // Bucket by bucket, subtracting what each held when it went, so a concurrent append's
+        // tracks are either removed and subtracted here or kept and counted by the append
+        Query query = Query.query(Criteria.where("playlistId").is(playlistId));
+        query.fields().include("count");
+        int removed = 0;
+        boolean any = false;
+        PlaylistTrackBucket bucket;
+        while ((bucket = mongoTemplate.findAndRemove(query, PlaylistTrackBucket.class)) != null) {
+            removed += bucket.getCount();
+            any = true;
+        }
+        adjustTrackCount(playlistId, -removed);
+        return any;
+    }
+
+    /**
+     * Moves a playlist's inline songIds into buckets, once. Buckets are inserted before the
+     * inline array is unset, and a bucket that already exists is left alone, so a crashed or
+     * concurrent conversion is simply repeated. Every track write starts here, so this is
+     * also where a repair lease turns writes away (BusyException). Throws if the playlist
+     * doesn't exist.
+     */
+    public void ensureBucketed(String playlistId) {
+        Query query = Query.query(Criteria.where("_id").is(playlistId));
+        query.fields().include("trackCount", "songIds", REPAIR_LEASE);
+        Document playlist = mongoTemplate.findOne(query, Document.class, mongoTemplate.getCollectionName(Playlist.class));
+        if (playlist == null) {
+            throw new RuntimeException("Playlist not found: " + playlistId);
+        }
+        if (leased(playlist)) {
+            throw new BusyException(playlistId);
+        }
+        if (playlist.get("trackCount") != null) return;
+
+        List<String> inline = playlist.getList("songIds", String.class);
+        List<String> songIds = inline != null ? new ArrayList<>(new LinkedHashSet<>(inline)) : List.of();
+        if (!songIds.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PlaylistTrackBucket.class);
+            for (int i = 0; i * bucketSize < songIds.size(); i++) {
+                List<String> chunk = songIds.subList(i * bucketSize, Math.min((i + 1) * bucketSize, songIds.size()));
+                bulk.insert(bucket(playlistId, i * SEQ_STEP, chunk, Map.of()));
+            }
+            try {
+                bulk.execute();
+            } catch (BulkOperationException e) {
+                if (e.getErrors().stream().anyMatch(error -> error.getCode() != 11000)) throw e;
+            }
+        }
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(playlistId).and("trackCount").exists(false)),
+                new Update().set("trackCount", songIds.size()).unset("songIds"), Playlist.class);
+        logger.info("Moved {} inline tracks of playlist {} into buckets", songIds.size(), playlistId);
+    }
+
+    // ==================== REPAIR LEASE ====================
+
+    /**
+     * Runs a repair of the playlist's buckets with its track writes held off, then sets
+     * trackCount from the buckets. The lease is a {token, until} on the playlist document,
+     * taken only while no unexpired one is set; writes refuse while it is held, and after
+     * taking it the repair waits REPAIR_GRACE_MS for writes already past their check. The
+     * token guards the release, and a crashed repair holds writes off for at most
+     * REPAIR_LEASE_MS. Returns false, without running the repair, if the playlist doesn't
+     * exist or another repair holds it.
+     */
+    public boolean underRepairLease(String playlistId, Runnable repair) {
+        String token = UUID.randomUUID().toString();
+        Date now = new Date();
+        Query query = Query.query(Criteria.where("_id").is(playlistId).orOperator(
+                Criteria.where(REPAIR_LEASE).exists(false), Criteria.where(REPAIR_LEASE + ".until").lt(now)));
+        Update update = new Update().set(REPAIR_LEASE,
+                new Document("token", token).append("until", new Date(now.getTime() + REPAIR_LEASE_MS)));
+        if (mongoTemplate.updateFirst(query, update, Playlist.class).getModifiedCount() == 0) return false;
+        try {
+            Thread.sleep(REPAIR_GRACE_MS);
+            repair.run();
+            recount(playlistId);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted repairing playlist " + playlistId);
+        } finally {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(playlistId).and(REPAIR_LEASE + ".token").is(token)),
+                    new Update().unset(REPAIR_LEASE), Playlist.class);
+        }
+    }
+
+    // trackCount := tracks across the playlist's buckets (playlists already bucketed only)
+    private void recount(String playlistId) {
+        Query query = Query.query(Criteria.where("playlistId").is(playlistId));
+        query.fields().include("count");
+        long tracks = 0;
+        for (PlaylistTrackBucket bucket : mongoTemplate.find(query, PlaylistTrackBucket.class)) {
+            tracks += bucket.getCount();
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(playlistId).and("trackCount").exists(true)),
+                new Update().set("trackCount", tracks), Playlist.class);
+    }
+
+    // Whether a repair holds the playlist; split checks this too, as its copies would look like duplicates
+    private boolean repairing(String playlistId) {
+        Query query = Query.query(Criteria.where("_id").is(playlistId));
+        query.fields().include(REPAIR_LEASE);
+        Document playlist = mongoTemplate.findOne(query, Document.class, mongoTemplate.getCollectionName(Playlist.class));
+        return playlist != null && leased(playlist);
+    }
+
+    private static boolean leased(Document playlist) {
+        Document lease = playlist.get(REPAIR_LEASE, Document.class);
+        return lease != null && lease.getDate("until") != null && lease.getDate("until").after(new Date());
+    }
+
+    // ==================== REBALANCING ====================
+
+    @Scheduled(fixedDelayString = "${playlist-tracks.rebalance-interval-ms:10000}")
+    public void rebalancePending() {
+        for (String bucketId : List.copyOf(rebalanceQueue)) {
+            rebalanceQueue.remove(bucketId);
+            try {
+                PlaylistTrackBucket bucket = mongoTemplate.findById(bucketId, PlaylistTrackBucket.class);
+                if (bucket != null && !(bucket.getCount() > bucketSize ? split(bucket) : rebalance(bucket))) {
+                    // Changed while we were fixing it, or a seq gap had to be opened first; next round
+                    rebalanceQueue.add(bucketId);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Rebalancing track bucket {} failed: {}", bucketId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Splits an oversized bucket in two, each re-keyed: the first half stays, the second
+     * goes to a new bucket at a free seq before the next bucket. The new bucket is inserted
+     * before the old one is cut, so an interruption leaves duplicates rather than lost
+     * tracks; if the old bucket changed meanwhile, the copies are taken back out of the
+     * new one (and those a concurrent remove took and counted are given back to
+     * trackCount). Returns false when it has to be retried.
+     */
+    private boolean split(PlaylistTrackBucket bucket) {
+        if (repairing(bucket.getPlaylistId())) return false;
+        PlaylistTrackBucket next = neighbour(bucket, true);
+        if (next != null && next.getSeq() - bucket.getSeq() < 2) {
+            respaceAfter(bucket);
+            return false;
+        }
+        int seq = next != null ? bucket.getSeq() + (next.getSeq() - bucket.getSeq()) / 2 : bucket.getSeq() + SEQ_STEP;
+
+        List<Track> ordered = ordered(bucket);
+        List<Track> lower = rekeyed(ordered.subList(0, ordered.size() / 2));
+        List<Track> upper = rekeyed(ordered.subList(ordered.size() / 2, ordered.size()));
+        PlaylistTrackBucket second = new PlaylistTrackBucket(null, bucket.getPlaylistId(), seq, upper.size(), upper);
+        try {
+            second = mongoTemplate.insert(second);
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+
+        boolean applied = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(bucket.getId()).and("tracks").is(bucket.getTracks())),
+                new Update().set("tracks", lower).set("count", lower.size()), PlaylistTrackBucket.class)
+                .getModifiedCount() > 0;
+        if (!applied) {
+            List<String> copies = upper.stream().map(Track::getSongId).toList();
+            PlaylistTrackBucket left = mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(second.getId())),
+                    AggregationUpdate.from(List.of(
+                            stage(new Document("$set", new Document("tracks", new Document("$filter", new Document("input", "$tracks")
+                                    .append("cond", new Document("$not", List.of(new Document("$in", List.of("$$this.songId", copies))))))))),
+                            stage(new Document("$set", new Document("count", new Document("$size", "$tracks")))))),
+                    FindAndModifyOptions.options().returnNew(false), PlaylistTrackBucket.class);
+            // Copies already gone were taken, and counted, by a concurrent remove
+            Set<String> present = new HashSet<>();
+            if (left != null) left.getTracks().forEach(track -> present.add(track.getSongId()));
+            int taken = (int) copies.stream().filter(songId -> !present.contains(songId)).count();
+            if (taken > 0) adjustTrackCount(bucket.getPlaylistId(), taken);
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(second.getId()).and("count").lte(0)),
+                    PlaylistTrackBucket.class);
+            return false;
+        }
+        // A bucket grown past twice the size leaves halves that need splitting again
+        if (lower.size() > bucketSize) rebalanceQueue.add(bucket.getId());
+        if (upper.size() > bucketSize) rebalanceQueue.add(second.getId());
+        logger.debug("Split bucket {} of playlist {} at {} tracks", bucket.getSeq(), bucket.getPlaylistId(),
+                ordered.size());
+        return true;
+    }
+
+    /*
+     * Gives the buckets after this one seqs at least SEQ_STEP apart (buckets written before
+     * seqs were spaced, or a gap used up by splits). Each bucket moves up, last first, so
+     * the order holds and no two share a seq at any point. Cursors into the moved buckets
+     * may repeat tracks on their next window.
+     */
+    private void respaceAfter(PlaylistTrackBucket bucket) {
+        Query query = Query.query(Criteria.where("playlistId").is(bucket.getPlaylistId()).and("seq").gt(bucket.getSeq()))
+                .with(Sort.by("seq"));
+        query.fields().include("seq");
+        List<PlaylistTrackBucket> later = mongoTemplate.find(query, PlaylistTrackBucket.class);
+        int[] targets = new int[later.size()];
+        int previous = bucket.getSeq();
+        for (int i = 0; i < later.size(); i++) {
+            targets[i] = Math.max(later.get(i).getSeq(), previous + SEQ_STEP);
+            previous = targets[i];
+        }
+        for (int i = later.size() - 1; i >= 0; i--) {
+            PlaylistTrackBucket moved = later.get(i);
+            if (targets[i] != moved.getSeq()) {
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(moved.getId()).and("seq").is(moved.getSeq())),
+                        new Update().set("seq", targets[i]), PlaylistTrackBucket.class);
+            }
+        }
+        logger.debug("Respaced {} buckets of playlist {} after seq {}", later.size(), bucket.getPlaylistId(),
+                bucket.getSeq());
+    }
+
+    /**
+     * Replaces the bucket's ranks with short evenly spaced keys in the current order. Only
+     * applies if the bucket's tracks are exactly as read; returns false otherwise.
+     */
+    private boolean rebalance(PlaylistTrackBucket bucket) {
+        List<Track> rekeyed = rekeyed(ordered(bucket));
+        boolean applied = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(bucket.getId()).and("tracks").is(bucket.getTracks())),
+                new Update().set("tracks", rekeyed), PlaylistTrackBucket.class).getModifiedCount() > 0;
+        if (applied) {
+            logger.debug("Re-keyed {} tracks in bucket {} of playlist {}", rekeyed.size(), bucket.getSeq(),
+                    bucket.getPlaylistId());
+        }
+        return applied;
+    }
+
+    // The tracks in the given order with fresh, evenly spaced ranks
+    private List<Track> rekeyed(List<Track> ordered) {
+        List<String> ranks = RankKeys.evenlySpaced(ordered.size(), Math.max(ordered.size(), bucketSize));
+        List<Track> rekeyed = new ArrayList<>(ordered.size());
+        for (int i = 0; i < ordered.size(); i++) {
+            rekeyed.add(new Track(ordered.get(i).getSongId(), ordered.get(i).getAddedAt(), ranks.get(i)));
+        }
+        return rekeyed;
+    }
+
+    // ==================== READS ====================
+
+    // The first previewSize tracks of the playlist's leading buckets, in order
+    private TrackWindow preview(List<PlaylistTrackBucket> buckets, int trackCount) {
+        List<Track> tracks = new ArrayList<>(previewSize);
+        for (PlaylistTrackBucket bucket : buckets) {
+            List<Track> ordered = ordered(bucket);
+            for (int i = 0; i < ordered.size(); i++) {
+                if (tracks.size() == previewSize) {
+                    return new TrackWindow(tracks, encode(bucket.getSeq(), ordered.get(i), i));
+                }
+                tracks.add(ordered.get(i));
+            }
+        }
+        // Ended on a bucket boundary; the next window starts after the last bucket read
+        int lastSeq = buckets.get(buckets.size() - 1).getSeq();
+        return new TrackWindow(tracks, tracks.size() < trackCount ? encode(new Position(lastSeq + 1, null, 0)) : null);
+    }
+
+    /**
+     * Up to {@code limit} tracks starting at {@code cursor} (null or empty for the start),
+     * reading only the buckets the window spans.
+     */
+    public TrackWindow window(Playlist playlist, String cursor, int limit) {
+        Position start = decode(cursor);
+        if (playlist.getTrackCount() == null) {
+            return inlineWindow(playlist, start.seq() / SEQ_STEP * bucketSize + start.index(), limit);
+        }
+
+        Query query = Query.query(Criteria.where("playlistId").is(playlist.getId()).and("seq").gte(start.seq()))
+                .with(Sort.by("seq"));
+        // Buckets arrive a few at a time so a small window doesn't pull the whole playlist
+        query.cursorBatchSize(Math.max(2, limit / bucketSize + 2));
+
+        List<Track> tracks = new ArrayList<>();
+        try (Stream<PlaylistTrackBucket> buckets = mongoTemplate.stream(query, PlaylistTrackBucket.class)) {
+            Iterator<PlaylistTrackBucket> it = buckets.iterator();
+            while (it.hasNext()) {
+                PlaylistTrackBucket bucket = it.next();
+                List<Track> ordered = ordered(bucket);
+                for (int i = 0; i < ordered.size(); i++) {
+                    Track track = ordered.get(i);
+                    if (bucket.getSeq() == start.seq() && before(track, i, start)) continue;
+                    if (tracks.size() == limit) {
+                        return new TrackWindow(tracks, encode(bucket.getSeq(), track, i));
+                    }
+                    tracks.add(track);
+                }
+            }
+        }
+        return new TrackWindow(tracks, null);
+    }
+
+    /**
+     * The first tracks (up to playlist-tracks.preview-size) of each playlist, for list and
+     * detail responses: one aggregation over each playlist's leading buckets, up to the one
+     * holding its preview-size-th track.
+     */
+    public Map<String, TrackWindow> previews(List<Playlist> playlists) {
+        Map<String, TrackWindow> previews = new HashMap<>();
+        Map<String, Playlist> bucketed = new HashMap<>();
+        for (Playlist playlist : playlists) {
+            if (playlist.getTrackCount() == null) {
+                previews.put(playlist.getId(), inlineWindow(playlist, 0, previewSize));
+            } else if (playlist.getTrackCount() > 0) {
+                bucketed.put(playlist.getId(), playlist);
+            } else {
+                previews.put(playlist.getId(), new TrackWindow(List.of(), null));
+            }
+        }
+        if (bucketed.isEmpty()) return previews;
+
+        // Each playlist's buckets up to the one holding its previewSize-th track: the count
+        // of the buckets before each one, per playlist, keeps only those that start inside
+        Aggregation aggregation = newAggregation(
+                match(Criteria.where("playlistId").in(bucketed.keySet())),
+                stage(new Document("$setWindowFields", new Document("partitionBy", "$playlistId")
+                        .append("sortBy", new Document("seq", 1))
+                        .append("output", new Document("before", new Document("$sum", "$count")
+                                .append("window", new Document("documents", List.of("unbounded", -1))))))),
+                stage(new Document("$match", new Document("$expr",
+                        new Document("$lt", List.of(new Document("$ifNull", List.of("$before", 0)), previewSize))))),
+                sort(Sort.Direction.ASC, "playlistId", "seq"),
+                project("playlistId", "seq", "count", "tracks")
+        );
+        Map<String, List<PlaylistTrackBucket>> leading = new LinkedHashMap<>();
+        for (PlaylistTrackBucket bucket : mongoTemplate.aggregate(aggregation, PlaylistTrackBucket.class,
+                PlaylistTrackBucket.class)) {
+            leading.computeIfAbsent(bucket.getPlaylistId(), id -> new ArrayList<>()).add(bucket);
+        }
+        leading.forEach((playlistId, buckets) ->
+                previews.put(playlistId, preview(buckets, bucketed.get(playlistId).getTrackCount())));
+        return previews;
+    }
+
+    // Every track of the playlist in order; for small playlists and admin views, use windows otherwise
+    public List<Track> allTracks(Playlist playlist) {
+        if (playlist.getTrackCount() == null) {
+            return inlineWindow(playlist, 0, Integer.MAX_VALUE).tracks();
+        }
+        Query query = Query.query(Criteria.where("playlistId").is(playlist.getId())).with(Sort.by("seq"));
+        List<Track> tracks = new ArrayList<>();
+        try (Stream<PlaylistTrackBucket> buckets = mongoTemplate.stream(query, PlaylistTrackBucket.class)) {
+            buckets.forEach(bucket -> tracks.addAll(ordered(bucket)));
+        }
+        return tracks;
+    }
+
+    /**
+     * Every track of the given playlists (null for all of them), by playlist id in track
+     * order: their buckets in one (playlistId, seq) query, plus one query for the
+     * playlists still holding tracks inline when {@code includeInline}. Playlists without
+     * tracks are absent.
+     */
+    public Map<String, List<Track>> tracksOf(Collection<String> playlistIds, boolean includeInline) {
+        Map<String, List<Track>> byPlaylist = new LinkedHashMap<>();
+        Query query = (playlistIds != null ? Query.query(Criteria.where("playlistId").in(playlistIds)) : new Query())
+                .with(Sort.by("playlistId", "seq"));
+        try (Stream<PlaylistTrackBucket> buckets = mongoTemplate.stream(query, PlaylistTrackBucket.class)) {
+            buckets.forEach(bucket -> byPlaylist.computeIfAbsent(bucket.getPlaylistId(), id -> new ArrayList<>())
+                    .addAll(ordered(bucket)));
+        }
+        if (includeInline) {
+            Criteria criteria = Criteria.where("trackCount").exists(false);
+            if (playlistIds != null) {
+                criteria.and("_id").in(playlistIds);
+            }
+            Query inline = new Query(criteria);
+            inline.fields().include("songIds");
+            for (Playlist playlist : mongoTemplate.find(inline, Playlist.class)) {
+                byPlaylist.put(playlist.getId(), inlineWindow(playlist, 0, Integer.MAX_VALUE).tracks());
+            }
+        }
+        return byPlaylist;
+    }
+
+    /**
+     * The song's track and its 0-based position in the playlist, or null if it isn't in
+     * it. Reads the one matching track (positional projection on the playlist/tracks.songId
+     * index) and one sum over the buckets up to it, not the whole playlist.
+     */
+    public Located locate(Playlist playlist, String songId) {
+        if (playlist.getTrackCount() == null) {
+            int index = playlist.getSongIds() != null ? playlist.getSongIds().indexOf(songId) : -1;
+            return index >= 0 ? new Located(new Track(songId, null, null), index) : null;
+        }
+        Query query = Query.query(Criteria.where("playlistId").is(playlist.getId()).and("tracks.songId").is(songId));
+        query.fields().include("seq").position("tracks", 1);
+        PlaylistTrackBucket bucket = mongoTemplate.findOne(query, PlaylistTrackBucket.class);
+        if (bucket == null || bucket.getTracks() == null || bucket.getTracks().isEmpty()) return null;
+        Track track = bucket.getTracks().get(0);
+
+        if (track.getRank() == null) {
+            // Unkeyed tracks are ordered by array position, which only the whole bucket shows
+            PlaylistTrackBucket whole = mongoTemplate.findById(bucket.getId(), PlaylistTrackBucket.class);
+            if (whole == null) return null;
+            List<Track> ordered = ordered(whole);
+            int index = 0;
+            while (index < ordered.size() && !songId.equals(ordered.get(index).getSongId())) index++;
+            return new Located(track, tracksBefore(playlist.getId(), bucket.getSeq(), null) + index);
+        }
+        return new Located(track, tracksBefore(playlist.getId(), bucket.getSeq(), track.getRank()));
+    }
+
+    // Tracks in the buckets before seq, plus (given a rank) the lower-ranked ones in bucket seq
+    private int tracksBefore(String playlistId, int seq, String rank) {
+        Object inBucket = rank != null
+                ? new Document("$size", new Document("$filter", new Document("input", "$tracks")
+                        .append("cond", new Document("$lt", List.of("$$this.rank", rank)))))
+                : 0;
+        Aggregation aggregation = newAggregation(
+                match(Criteria.where("playlistId").is(playlistId).and("seq").lte(seq)),
+                stage(new Document("$group", new Document("_id", null).append("before", new Document("$sum",
+                        new Document("$cond", List.of(new Document("$lt", List.of("$seq", seq)), "$count", inBucket))))))
+        );
+        Document result = mongoTemplate.aggregate(aggregation, PlaylistTrackBucket.class, Document.class)
+                .getUniqueMappedResult();
+        return result != null && result.get("before") instanceof Number before ? before.intValue() : 0;
+    }
+
+    /**
+     * Which playlists contain the song, through the tracks.songId index: each returned
+     * bucket holds only the matching track. Playlists still holding their tracks inline
+     * are only found with {@code includeInline}, which scans playlists.songIds.
+     */
+    public List<PlaylistTrackBucket> bucketsContaining(String songId, boolean includeInline) {
+        Query query = Query.query(Criteria.where("tracks.songId").is(songId));
+        query.fields().include("playlistId", "seq").position("tracks", 1);
+        List<PlaylistTrackBucket> buckets = new ArrayList<>(mongoTemplate.find(query, PlaylistTrackBucket.class));
+
+        if (includeInline) {
+            Query inline = Query.query(Criteria.where("songIds").is(songId).and("trackCount").exists(false));
+            inline.fields().include("_id");
+            for (Playlist playlist : mongoTemplate.find(inline, Playlist.class)) {
+                PlaylistTrackBucket bucket = new PlaylistTrackBucket();
+                bucket.setPlaylistId(playlist.getId());
+                bucket.setTracks(List.of(new Track(songId, null, null)));
+                buckets.add(bucket);
+            }
+        }
+        return buckets;
+    }
+
+    // ==================== HELPERS ====================
+
+    // Inline positions use the bucket layout the conversion will produce, so a cursor
+    // stays valid if the playlist is moved into buckets between two pages
+    private TrackWindow inlineWindow(Playlist playlist, int from, int limit) {
+        List<String> songIds = playlist.getSongIds() != null ? playlist.getSongIds() : List.of();
+        int start = Math.min(from, songIds.size());
+        int end = Math.min(start + limit, songIds.size());
+        List<Track> tracks = new ArrayList<>();
+        for (String songId : songIds.subList(start, end)) {
+            tracks.add(new Track(songId, null, null));
+        }
+        return new TrackWindow(tracks,
+                end < songIds.size() ? encode(new Position(end / bucketSize * SEQ_STEP, null, end % bucketSize)) : null);
+    }
+
+    private static List<Track> ordered(PlaylistTrackBucket bucket) {
+        List<Track> ordered = bucket.getTracks() != null ? new ArrayList<>(bucket.getTracks()) : new ArrayList<>();
+        ordered.sort(BY_RANK);
+        return ordered;
+    }
+
+    // Whether the track (at index i of its ordered bucket) comes before the cursor position
+    private static boolean before(Track track, int i, Position start) {
+        if (start.rank() != null) {
+            return track.getRank() == null || track.getRank().compareTo(start.rank()) < 0;
+        }
+        return i < start.index();
+    }
+
+    // Where songId goes right after/before the anchor among the bucket's other tracks
+    private static Gap gapAt(PlaylistTrackBucket bucket, String songId, String anchorSongId, boolean placeAfter) {
+        List<Track> others = others(bucket, songId);
+        int anchor = 0;
+        while (!anchorSongId.equals(others.get(anchor).getSongId())) anchor++;
+        return placeAfter
+                ? new Gap(bucket, others.get(anchor), anchor + 1 < others.size() ? others.get(anchor + 1) : null)
+                : new Gap(bucket, anchor > 0 ? others.get(anchor - 1) : null, others.get(anchor));
+    }
+
+    // The bucket's tracks in order, without songId
+    private static List<Track> others(PlaylistTrackBucket bucket, String songId) {
+        List<Track> others = ordered(bucket);
+        others.removeIf(track -> songId.equals(track.getSongId()));
+        return others;
+    }
+
+    private static boolean hasUnranked(PlaylistTrackBucket bucket) {
+        return bucket.getTracks().stream().anyMatch(track -> track.getRank() == null);
+    }
+
+    // Unkeyed or tied ranks leave no key to put between them
+    private static boolean needsRekey(PlaylistTrackBucket bucket, Gap gap) {
+        return hasUnranked(bucket) || (gap.low() != null && gap.high() != null
+                && gap.low().getRank().compareTo(gap.high().getRank()) >= 0);
+    }
+
+    private static String rankOf(Track track) {
+        return track != null ? track.getRank() : null;
+    }
+
+    // The bucket as read: same count, and the given neighbours still there with the same ranks
+    private static Query guarded(PlaylistTrackBucket bucket, int count, Track... neighbours) {
+        Criteria criteria = Criteria.where("_id").is(bucket.getId()).and("count").is(count);
+        List<Document> unchanged = new ArrayList<>();
+        for (Track neighbour : neighbours) {
+            if (neighbour != null) {
+                unchanged.add(new Document("$elemMatch",
+                        new Document("songId", neighbour.getSongId()).append("rank", neighbour.getRank())));
+            }
+        }
+        if (!unchanged.isEmpty()) {
+            criteria.and("tracks").all(unchanged);
+        }
+        return new Query(criteria);
+    }
+
+    // The next (or previous) bucket of the same playlist
+    private PlaylistTrackBucket neighbour(PlaylistTrackBucket bucket, boolean next) {
+        Criteria criteria = Criteria.where("playlistId").is(bucket.getPlaylistId());
+        criteria = next ? criteria.and("seq").gt(bucket.getSeq()) : criteria.and("seq").lt(bucket.getSeq());
+        return mongoTemplate.findOne(new Query(criteria)
+                .with(Sort.by(next ? Sort.Direction.ASC : Sort.Direction.DESC, "seq")), PlaylistTrackBucket.class);
+    }
+
+    /*
+     * Removes every copy of the song from the first bucket matching the criteria, in one
+     * pipeline update that also recomputes count from the array. Returns that bucket as it
+     * was before (songIds only), or null if none matched.
+     */
+    private PlaylistTrackBucket pullTrack(Criteria bucket, String songId) {
+        Query query = new Query(bucket.and("tracks.songId").is(songId));
+        query.fields().include("playlistId", "seq", "tracks.songId");
+        AggregationUpdate update = AggregationUpdate.from(List.of(
+                stage(new Document("$set", new Document("tracks", new Document("$filter",
+                        new Document("input", "$tracks").append("cond", new Document("$ne", List.of("$$this.songId", songId))))))),
+                stage(new Document("$set", new Document("count", new Document("$size", "$tracks"))))));
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(false),
+                PlaylistTrackBucket.class);
+    }
+
+    private PlaylistTrackBucket bucketOf(String playlistId, String songId) {
+        return mongoTemplate.findOne(Query.query(Criteria.where("playlistId").is(playlistId).and("tracks.songId").is(songId)),
+                PlaylistTrackBucket.class);
+    }
+
+    // Which of the songs are already in the playlist
+    private Set<String> containedSongIds(String playlistId, Collection<String> songIds) {
+        Query query = Query.query(Criteria.where("playlistId").is(playlistId).and("tracks.songId").in(songIds));
+        query.fields().include("tracks.songId");
+        Set<String> wanted = new HashSet<>(songIds);
+        Set<String> present = new HashSet<>();
+        for (PlaylistTrackBucket bucket : mongoTemplate.find(query, PlaylistTrackBucket.class)) {
+            for (Track track : bucket.getTracks()) {
+                if (wanted.contains(track.getSongId())) present.add(track.getSongId());
+            }
+        }
+        return present;
+    }
+
+    private PlaylistTrackBucket lastBucket(String playlistId) {
+        Query query = Query.query(Criteria.where("playlistId").is(playlistId))
+                .with(Sort.by(Sort.Direction.DESC, "seq")).limit(1);
+        query.fields().include("seq", "count", "tracks.rank");
+        return mongoTemplate.findOne(query, PlaylistTrackBucket.class);
+    }
+
+    private static String maxRank(PlaylistTrackBucket bucket) {
+        String max = null;
+        for (Track track : bucket.getTracks()) {
+            if (track.getRank() != null && (max == null || track.getRank().compareTo(max) > 0)) {
+                max = track.getRank();
+            }
+        }
+        return max;
+    }
+
+    // The inserted bucket, or null when another writer opened this seq first
+    private PlaylistTrackBucket insertBucket(String playlistId, int seq, List<String> songIds,
+                                             Map<String, Instant> addedAt) {
+        try {
+            return mongoTemplate.insert(bucket(playlistId, seq, songIds, addedAt));
+        } catch (DuplicateKeyException e) {
+            return null;
+        }
+    }
+
+    // Also bumps updatedAt, so delta 0 just marks the playlist changed
+    private void adjustTrackCount(String playlistId, int delta) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(playlistId)),
+                new Update().inc("trackCount", delta).set("updatedAt", LocalDateTime.now()), Playlist.class);
+    }
+
+    private PlaylistTrackBucket bucket(String playlistId, int seq, List<String> songIds, Map<String, Instant> addedAt) {
+        Instant now = Instant.now();
+        List<String> ranks = RankKeys.evenlySpaced(songIds.size(), bucketSize);
+        List<Track> tracks = new ArrayList<>();
+        for (int i = 0; i < songIds.size(); i++) {
+            tracks.add(new Track(songIds.get(i), addedAt.getOrDefault(songIds.get(i), now), ranks.get(i)));
+        }
+        PlaylistTrackBucket bucket = new PlaylistTrackBucket();
+        bucket.setPlaylistId(playlistId);
+        bucket.setSeq(seq);
+        bucket.setCount(songIds.size());
+        bucket.setTracks(tracks);
+        return bucket;
+    }
+
+    private static List<Track> tracksAfter(String rank, List<String> songIds, Map<String, Instant> addedAt) {
+        Instant now = Instant.now();
+        List<Track> tracks = new ArrayList<>();
+        for (String songId : songIds) {
+            rank = RankKeys.after(rank);
+            tracks.add(new Track(songId, addedAt.getOrDefault(songId, now), rank));
+        }
+        return tracks;
+    }
+
+    // Opaque URL-safe cursor, same scheme as KeysetPaginator
+    private static String encode(int seq, Track track, int index) {
+        return encode(new Position(seq, track.getRank(), track.getRank() == null ? index : 0));
+    }
+
+    static String encode(Position position) {
+        Document doc = new Document("v", CURSOR_VERSION).append("s", position.seq());
+        if (position.rank() != null) {
+            doc.append("r", position.rank());
+        } else {
+            doc.append("i", position.index());
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(doc.toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Position decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) return new Position(0, null, 0);
+        try {
+            Document doc = Document.parse(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            Object index = doc.containsKey("i") ? doc.get("i") : 0;
+            if (!Integer.valueOf(CURSOR_VERSION).equals(doc.get("v"))
+                    || !(doc.get("s") instanceof Integer seq) || seq < 0
+                    || !(index instanceof Integer i) || i < 0
+                    || (doc.containsKey("r") && !(doc.get("r") instanceof String))) {
+                throw new KeysetPaginator.InvalidCursorException("Unsupported cursor");
+            }
+            return new Position(seq, doc.getString("r"), i);
+        } catch (KeysetPaginator.InvalidCursorException e) {
+            throw e;
+        } catch (IllegalArgumentException | JsonParseException e) {
+            throw new KeysetPaginator.InvalidCursorException("Malformed cursor");
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.spotify.backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lexicographic rank keys for ordering tracks: base-62 digit strings read as fractions
+ * (0.d1d2...), compared with plain String ordering. There is always a key between two
+ * others, so an item moves by getting one new key instead of renumbering its neighbours.
+ * Keys never end in the zero digit, which keeps that true at the edges.
+ *
+ * Repeated inserts into the same gap make keys longer; {@link #evenlySpaced} produces
+ * short replacement keys for rebalancing.
+ */
+public final class RankKeys {
+
+    // ASCII order, so String.compareTo and MongoDB's binary string order agree
+    private static final String DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final int BASE = DIGITS.length();
+
+    private RankKeys() {
+    }
+
+    /**
+     * A key strictly between {@code before} and {@code after}; null means the start or the end.
+     */
+    public static String between(String before, String after) {
+        String a = before != null ? before : "";
+        if (after != null && a.compareTo(after) >= 0) {
+            throw new IllegalArgumentException("Rank keys out of order: " + before + " >= " + after);
+        }
+        return midpoint(a, after);
+    }
+
+    // The shortest key after a, for appends: bumps the first digit that isn't the last digit
+    public static String after(String before) {
+        if (before == null || before.isEmpty()) return String.valueOf(DIGITS.charAt(BASE / 2));
+        int digit = digit(before.charAt(0));
+        if (digit < BASE - 1) return String.valueOf(DIGITS.charAt(digit + 1));
+        return DIGITS.charAt(BASE - 1) + after(before.substring(1));
+    }
+
+    /**
+     * {@code count} ascending keys spread over the whole range as if there were
+     * {@code slots} of them (slots >= count), so later appends and moves find room.
+     */
+    public static List<String> evenlySpaced(int count, int slots) {
+        int width = 1;
+        long range = BASE;
+        while (range <= slots) {
+            width++;
+            range *= BASE;
+        }
+        List<String> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long value = (i + 1) * range / (slots + 1);
+            keys.add(stripZeros(encode(value, width)));
+        }
+        return keys;
+    }
+
+    // a < b, b null for the end of the range; neither ends in the zero digit
+    private static String midpoint(String a, String b) {
+        if (b != null) {
+            // Shared prefix (a padded with zero digits) stays as it is
+            int n = 0;
+            while (n < b.length() && (n < a.length() ? a.charAt(n) : DIGITS.charAt(0)) == b.charAt(n)) {
+                n++;
+            }
+            if (n > 0) {
+                return b.substring(0, n) + midpoint(n < a.length() ? a.substring(n) : "", b.substring(n));
+            }
+        }
+        int digitA = a.isEmpty() ? 0 : digit(a.charAt(0));
+        int digitB = b != null ? digit(b.charAt(0)) : BASE;
+        if (digitB - digitA > 1) {
+            return String.valueOf(DIGITS.charAt((digitA + digitB) / 2));
+        }
+        // Adjacent first digits: b's first digit alone already sorts between them
+        if (b != null && b.length() > 1) {
+            return b.substring(0, 1);
+        }
+        return DIGITS.charAt(digitA) + midpoint(a.isEmpty() ? "" : a.substring(1), null);
+    }
+
+    private static int digit(char c) {
+        int digit = DIGITS.indexOf(c);
+        if (digit < 0) throw new IllegalArgumentException("Invalid rank key character: " + c);
+        return digit;
+    }
+
+    private static String encode(long value, int width) {
+        char[] chars = new char[width];
+        for (int i = width - 1; i >= 0; i--) {
+            chars[i] = DIGITS.charAt((int) (value % BASE));
+            value /= BASE;
+        }
+        return new String(chars);
+    }
+
+    private static String stripZeros(String key) {
+        int end = key.length();
+        while (end > 1 && key.charAt(end - 1) == DIGITS.charAt(0)) end--;
+        return key.substring(0, end);
+    }
+}
@@ -0,0 +1,183 @@
+package com.spotify.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Redis-backed {@link CatalogCacheStore}. Multi-key reads use MGET and multi-key writes
+ * are pipelined (SET, or a compare-and-set script for read-through fills), so hydrating
+ * a page costs one round trip each way.
+ *
+ * When a command fails (Redis down, timeout) the store backs off for a few seconds and
+ * answers every read as a miss in the meantime, so callers fall through to Mongo
+ * instead of waiting on a dead connection for each request. Eviction tombstones and
+ * broadcasts are always attempted, even while backing off.
+ *
+ * The eviction subscription is started in the background and retried until Redis is
+ * reachable, so the application starts without Redis; once subscribed, the listener
+ * container handles reconnects itself.
+ */
+public class RedisCatalogCacheStore implements CatalogCacheStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisCatalogCacheStore.class);
+    private static final long BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(5);
+    // SET PX only if the key still holds ARGV[1] ('' for absent); one round trip, so nothing lands in between
+    private static final byte[] SET_IF_UNCHANGED = bytes("""
+            if (redis.call('GET', KEYS[1]) or '') == ARGV[1] then
+                redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+                return 1
+            end
+            return 0
+            """);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ScheduledExecutorService subscriber = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-cache-subscriber");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile long unavailableUntil;
+    private volatile boolean available = true;
+
+    public RedisCatalogCacheStore(StringRedisTemplate redisTemplate, RedisConnectionFactory connectionFactory) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = new RedisMessageListenerContainer();
+        this.listenerContainer.setConnectionFactory(connectionFactory);
+        this.listenerContainer.afterPropertiesSet();
+    }
+
+    @Override
+    public String get(String key) {
+        return call(() -> redisTemplate.opsForValue().get(key), null);
+    }
+
+    @Override
+    public List<String> multiGet(List<String> keys) {
+        List<String> values = call(() -> redisTemplate.opsForValue().multiGet(keys), null);
+        if (values == null) {
+            values = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) values.add(null);
+        }
+        return values;
+    }
+
+    @Override
+    public void multiSet(Map<String, String> values, Duration ttl) {
+        if (values.isEmpty()) return;
+        call(() -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            values.forEach((key, value) -> connection.stringCommands().set(
+                    bytes(key),
+                    bytes(value),
+                    Expiration.from(ttl),
+                    RedisStringCommands.SetOption.upsert()));
+            return null;
+        }), null, true);
+    }
+
+    @Override
+    public Set<String> multiSetIfUnchanged(Map<String, String> values, Map<String, String> seen, Duration ttl) {
+        if (values.isEmpty()) return Set.of();
+        List<String> keys = new ArrayList<>(values.keySet());
+        byte[] ttlMillis = bytes(Long.toString(ttl.toMillis()));
+        List<Object> results = call(() -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.scriptingCommands().eval(SET_IF_UNCHANGED, ReturnType.INTEGER, 1,
+                        bytes(key), bytes(seen.getOrDefault(key, "")), bytes(values.get(key)), ttlMillis);
+            }
+            return null;
+        }), null);
+
+        Set<String> written = new HashSet<>();
+        for (int i = 0; results != null && i < keys.size(); i++) {
+            if (Long.valueOf(1).equals(results.get(i))) {
+                written.add(keys.get(i));
+            }
+        }
+        return written;
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        call(() -> redisTemplate.convertAndSend(channel, message), null, true);
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        listenerContainer.addMessageListener(
+                (message, pattern) -> listener.accept(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(channel));
+        subscriber.execute(() -> startListening(true));
+    }
+
+    private void startListening(boolean firstAttempt) {
+        if (listenerContainer.isRunning()) return;
+        try {
+            listenerContainer.start();
+        } catch (RuntimeException e) {
+            if (firstAttempt) {
+                logger.warn("Could not subscribe to catalog cache evictions, retrying: {}", e.getMessage());
+            }
+            listenerContainer.stop();
+            subscriber.schedule(() -> startListening(false), BACKOFF_NANOS, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        subscriber.shutdownNow();
+        listenerContainer.destroy();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private <T> T call(Supplier<T> command, T fallback) {
+        return call(command, fallback, false);
+    }
+
+    private <T> T call(Supplier<T> command, T fallback, boolean evenWhenUnavailable) {
+        if (!available && !evenWhenUnavailable && System.nanoTime() - unavailableUntil < 0) {
+            return fallback;
+        }
+        try {
+            T result = command.get();
+            if (!available) {
+                available = true;
+                logger.info("Redis reachable again, catalog cache resumed");
+            }
+            return result;
+        } catch (RuntimeException e) {
+            if (available) {
+                available = false;
+                logger.warn("Redis unavailable, catalog cache falling back to Mongo: {}", e.getMessage());
+            }
+            unavailableUntil = System.nanoTime() + BACKOFF_NANOS;
+            return fallback;
+        }
+    }
+}
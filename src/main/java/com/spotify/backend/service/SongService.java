@@ -3,38 +3,57 @@ package com.spotify.backend.service;
 import com.spotify.backend.model.Album;
 import com.spotify.backend.model.Artist;
 import com.spotify.backend.model.Song;
-import com.spotify.backend.repository.AlbumRepository;
-import com.spotify.backend.repository.ArtistRepository;
 import com.spotify.backend.repository.SongRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
 public class SongService {
 
     private final SongRepository songRepo;
-    private final ArtistRepository artistRepo;
-    private final AlbumRepository albumRepo;
-
-    public SongService(SongRepository songRepo, ArtistRepository artistRepo, AlbumRepository albumRepo) {
+    private final MongoTemplate mongoTemplate;
+    private final ArtistService artistService;
+    private final AlbumService albumService;
+    private final PlayCountAccumulator playCounter;
+    private final KeysetPaginator keysetPaginator;
+    private final CatalogCache catalogCache;
+    private final DashboardStatsService dashboardStats;
+
+    public SongService(SongRepository songRepo, MongoTemplate mongoTemplate, ArtistService artistService,
+                       AlbumService albumService, PlayCountAccumulator playCounter, KeysetPaginator keysetPaginator,
+                       CatalogCache catalogCache, DashboardStatsService dashboardStats) {
         this.songRepo = songRepo;
-        this.artistRepo = artistRepo;
-        this.albumRepo = albumRepo;
+        this.mongoTemplate = mongoTemplate;
+        this.artistService = artistService;
+        this.albumService = albumService;
+        this.playCounter = playCounter;
+        this.keysetPaginator = keysetPaginator;
+        this.catalogCache = catalogCache;
+        this.dashboardStats = dashboardStats;
     }
 
-    private Song enrich(Song s) {
+    // Artist and album come from the catalog cache, so a cached song never embeds a stale artist
+    public Song enrich(Song s) {
         if (s == null) return null;
 
-        Artist artist = artistRepo.findById(s.getArtist_id()).orElse(null);
-        Album album = albumRepo.findById(s.getAlbum_id()).orElse(null);
+        Artist artist = s.getArtist_id() != null ? artistService.getById(s.getArtist_id()).orElse(null) : null;
+        Album album = s.getAlbum_id() != null ? albumService.getById(s.getAlbum_id()).orElse(null) : null;
 
         s.setArtist(artist);
         s.setAlbum(album);
@@ -42,56 +61,97 @@ public class SongService {
         return s;
     }
 
+    /**
+     * Enrich a batch of songs with one artist lookup and one album lookup
+     * (cache first, then an $in on the missing ids) instead of two per song.
+     */
+    public List<Song> enrichAll(List<Song> songs) {
+        if (songs == null || songs.isEmpty()) return songs;
+
+        Set<String> artistIds = new HashSet<>();
+        Set<String> albumIds = new HashSet<>();
+        for (Song s : songs) {
+            if (s.getArtist_id() != null) artistIds.add(s.getArtist_id());
+            if (s.getAlbum_id() != null) albumIds.add(s.getAlbum_id());
+        }
+
+        Map<String, Artist> artists = artistIds.isEmpty() ? Map.of() : artistService.getByIds(artistIds);
+        Map<String, Album> albums = albumIds.isEmpty() ? Map.of() : albumService.getByIds(albumIds);
+
+        for (Song s : songs) {
+            s.setArtist(s.getArtist_id() != null ? artists.get(s.getArtist_id()) : null);
+            s.setAlbum(s.getAlbum_id() != null ? albums.get(s.getAlbum_id()) : null);
+        }
+        return songs;
+    }
+
     public List<Song> getAll() {
-        return songRepo.findAll()
-                .stream()
-                .map(this::enrich)
-                .toList();
+        return enrichAll(songRepo.findAll());
     }
 
     public Optional<Song> getById(String id) {
-        return songRepo.findById(id)
-                .map(this::enrich);
+        return catalogCache.get(CatalogCache.SONGS, id, Song.class, () -> songRepo.findById(id))
+                .map(this::enrich)
+                .map(s -> {
+                    // Include plays that haven't been flushed yet
+                    s.setPlayCount(s.getPlayCount() + playCounter.pending(id));
+                    return s;
+                });
+    }
+
+    // Cached batch lookup keyed by id, not enriched; unknown ids are left out
+    public Map<String, Song> getByIds(Collection<String> ids) {
+        return catalogCache.getAll(CatalogCache.SONGS, ids, Song.class, songRepo::findAllById, Song::getId);
     }
 
     public Song create(Song s) {
-        return songRepo.save(s);
+        Song saved = songRepo.save(s);
+        dashboardStats.songAdded(saved);
+        return saved;
     }
 
+    /*
+     * Sets only the editable fields, so timestamps the read couldn't convert (MongoConfig
+     * reads an unparseable legacy string as null) are left as stored, not written back null.
+     * The returned song is the stored one with the update applied.
+     */
     public Song update(String id, Song s) {
-        return songRepo.findById(id).map(existing -> {
-            existing.setTitle(s.getTitle());
-            existing.setArtist_id(s.getArtist_id());
-            existing.setAlbum_id(s.getAlbum_id());
-            existing.setGenre(s.getGenre());
-            existing.setDuration(s.getDuration());
-            existing.setFileUrl(s.getFileUrl());
-            existing.setPlayCount(s.getPlayCount());
-            return songRepo.save(existing);
-        }).orElse(null);
+        Update update = new Update()
+                .set("title", s.getTitle())
+                .set("artist_id", s.getArtist_id())
+                .set("album_id", s.getAlbum_id())
+                .set("genre", s.getGenre())
+                .set("duration", s.getDuration())
+                .set("fileUrl", s.getFileUrl())
+                .set("playCount", s.getPlayCount());
+        Song saved = mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(id)), update,
+                FindAndModifyOptions.options().returnNew(false), Song.class);
+        if (saved == null) return null;
+        Song before = statsSnapshot(saved);
+        saved.setTitle(s.getTitle());
+        saved.setArtist_id(s.getArtist_id());
+        saved.setAlbum_id(s.getAlbum_id());
+        saved.setGenre(s.getGenre());
+        saved.setDuration(s.getDuration());
+        saved.setFileUrl(s.getFileUrl());
+        saved.setPlayCount(s.getPlayCount());
+        catalogCache.evict(CatalogCache.SONGS, id);
+        dashboardStats.songChanged(before, saved);
+        return saved;
     }
 
     // Add these methods to your existing SongService class
 
     public List<Song> getByGenre(String genre) {
-        return songRepo.findByGenreIgnoreCase(genre)
-                .stream()
-                .map(this::enrich)
-                .toList();
+        return enrichAll(songRepo.findByGenreIgnoreCase(genre));
     }
 
     public List<Song> getByArtistId(String artistId) {
-        return songRepo.findByArtistId(artistId)
-                .stream()
-                .map(this::enrich)
-                .toList();
+        return enrichAll(songRepo.findByArtistId(artistId));
     }
 
     public List<Song> getByAlbumId(String albumId) {
-        return songRepo.findByAlbumId(albumId)
-                .stream()
-                .map(this::enrich)
-                .toList();
+        return enrichAll(songRepo.findByAlbumId(albumId));
     }
 
     public Map<String, Object> getPaginated(int page, int size, String search) {
@@ -106,11 +166,8 @@ public class SongService {
             songPage = songRepo.findAll(pageable);
         }
 
-        // Enrich each song
-        List<Song> enriched = songPage.getContent()
-                .stream()
-                .map(this::enrich)
-                .collect(Collectors.toList());
+        // Enrich the whole page in one pass
+        List<Song> enriched = enrichAll(new ArrayList<>(songPage.getContent()));
 
         // Build response
         Map<String, Object> response = new HashMap<>();
@@ -123,21 +180,40 @@ public class SongService {
         return response;
     }
 
+    // Cursor (keyset) mode: pass the previous page's nextCursor; the total is only counted on request
+    public Map<String, Object> getByCursor(String cursor, int size, String search, boolean includeTotal) {
+        return keysetPaginator.page(Song.class, KeysetPaginator.containsIgnoreCase("title", search),
+                cursor, size, includeTotal, Song::getId, this::enrichAll);
+    }
+
 
+    // Plays are accumulated in memory and written as batched $inc updates by PlayCountAccumulator
     public boolean incrementPlayCount(String songId) {
-        Optional<Song> optionalSong = songRepo.findById(songId);
-        if (optionalSong.isPresent()) {
-            Song song = optionalSong.get();
-            song.setPlayCount(song.getPlayCount() + 1);
-            songRepo.save(song);
-            return true;
+        if (!playCounter.isTracked(songId) && !songRepo.existsById(songId)) {
+            return false;
         }
-        return false;
+        playCounter.record(songId);
+        return true;
     }
 
     public boolean delete(String id) {
-        if (!songRepo.existsById(id)) return false;
+        Optional<Song> existing = songRepo.findById(id);
+        if (existing.isEmpty()) return false;
         songRepo.deleteById(id);
+        playCounter.discard(id);
+        catalogCache.evict(CatalogCache.SONGS, id);
+        dashboardStats.songRemoved(existing.get());
         return true;
     }
+
+    // The fields dashboard totals depend on, copied before an update mutates the entity
+    private static Song statsSnapshot(Song s) {
+        Song copy = new Song();
+        copy.setId(s.getId());
+        copy.setGenre(s.getGenre());
+        copy.setArtist_id(s.getArtist_id());
+        copy.setDuration(s.getDuration());
+        copy.setPlayCount(s.getPlayCount());
+        return copy;
+    }
 }
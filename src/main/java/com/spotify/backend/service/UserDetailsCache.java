@@ -0,0 +1,69 @@
+package com.spotify.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, TTL-based cache in front of UserDetailsService for the JWT filter,
+ * so an authenticated request doesn't cost a users lookup every time.
+ * Entries are keyed by email and must be evicted whenever a user's email,
+ * password or role changes, or the user is deleted.
+ */
+@Component
+public class UserDetailsCache {
+
+    private final UserDetailsService userDetailsService;
+    private final Cache<String, UserDetails> cache;
+    // Bumped by every eviction, so a load that overlapped one doesn't keep its result
+    private final AtomicLong evictions = new AtomicLong();
+
+    public UserDetailsCache(UserDetailsService userDetailsService,
+                            @Value("${security.user-cache.max-size:10000}") long maxSize,
+                            @Value("${security.user-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userDetailsService = userDetailsService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    // Unknown users are not cached; UsernameNotFoundException propagates as before.
+    // The lookup runs outside the cache's compute (a synchronized map bin) so a virtual
+    // thread waiting on Mongo doesn't pin its carrier; concurrent misses may load twice.
+    // If an eviction ran while loading, the loaded principal may predate the change it
+    // was for: it is returned but taken back out of the cache.
+    public UserDetails load(String email) throws UsernameNotFoundException {
+        UserDetails cached = cache.getIfPresent(email);
+        if (cached != null) return cached;
+
+        long before = evictions.get();
+        UserDetails loaded = userDetailsService.loadUserByUsername(email);
+        cache.put(email, loaded);
+        // Evictions bump the counter before invalidating, so one racing this check either
+        // shows up here or removes the entry itself
+        if (evictions.get() != before) {
+            cache.asMap().remove(email, loaded);
+        }
+        return loaded;
+    }
+
+    public void evict(String email) {
+        if (email != null) {
+            evictions.incrementAndGet();
+            cache.invalidate(email);
+        }
+    }
+
+    public void evictAll() {
+        evictions.incrementAndGet();
+        cache.invalidateAll();
+    }
+}
@@ -5,6 +5,11 @@ import com.spotify.backend.repository.UserRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -17,10 +22,17 @@ import java.util.Optional;
 public class UserService {
 
     private final UserRepository userRepo;
+    private final MongoTemplate mongoTemplate;
+    private final UserDetailsCache userDetailsCache;
+    private final KeysetPaginator keysetPaginator;
     private final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
 
-    public UserService(UserRepository userRepo) {
+    public UserService(UserRepository userRepo, MongoTemplate mongoTemplate, UserDetailsCache userDetailsCache,
+                       KeysetPaginator keysetPaginator) {
         this.userRepo = userRepo;
+        this.mongoTemplate = mongoTemplate;
+        this.userDetailsCache = userDetailsCache;
+        this.keysetPaginator = keysetPaginator;
     }
 
     // -----------------------------------
@@ -78,6 +90,12 @@ public class UserService {
         return response;
     }
 
+    // Cursor (keyset) mode: pass the previous page's nextCursor; the total is only counted on request
+    public Map<String, Object> getByCursor(String cursor, int size, String search, boolean includeTotal) {
+        return keysetPaginator.page(User.class, KeysetPaginator.containsIgnoreCase("username", search),
+                cursor, size, includeTotal, User::getId, page -> page);
+    }
+
 
     // -----------------------------------
     // LOGIN USER
@@ -101,24 +119,43 @@ public class UserService {
     // UPDATE USER
     // -----------------------------------
     public User update(String id, User u) {
-        return userRepo.findById(id).map(existing -> {
-
-            existing.setUsername(u.getUsername());
-            existing.setEmail(u.getEmail());
-            existing.setDisplayName(u.getDisplayName());
-            existing.setProfilePicture(u.getProfilePicture());
-            existing.setRole(u.getRole());
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("username", u.getUsername());
+        fields.put("email", u.getEmail());
+        fields.put("displayName", u.getDisplayName());
+        fields.put("profilePicture", u.getProfilePicture());
+        fields.put("role", u.getRole());
+        return setFields(id, fields);
+    }
 
-            return userRepo.save(existing);
-        }).orElse(null);
+    /**
+     * Sets only the given fields (User property names) and returns the updated user, or
+     * null if there is none. Edits never save the whole document: a timestamp the read
+     * couldn't convert (MongoConfig reads an unparseable legacy string as null) stays as
+     * stored instead of being written back as null.
+     */
+    public User setFields(String id, Map<String, Object> fields) {
+        Update update = new Update();
+        fields.forEach(update::set);
+        User before = mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(id)), update,
+                FindAndModifyOptions.options().returnNew(false), User.class);
+        if (before == null) return null;
+        User saved = userRepo.findById(id).orElse(null);
+        // Email and role feed the cached principal; evicted after the write so a
+        // concurrent login can't re-cache the old one
+        userDetailsCache.evict(before.getEmail());
+        if (saved != null) userDetailsCache.evict(saved.getEmail());
+        return saved;
     }
 
     // -----------------------------------
     // DELETE USER
     // -----------------------------------
     public boolean delete(String id) {
-        if (!userRepo.existsById(id)) return false;
+        Optional<User> existing = userRepo.findById(id);
+        if (existing.isEmpty()) return false;
         userRepo.deleteById(id);
+        userDetailsCache.evict(existing.get().getEmail());
         return true;
     }
 }
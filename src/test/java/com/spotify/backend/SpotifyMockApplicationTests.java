@@ -3,7 +3,8 @@ package com.spotify.backend;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// In-memory stand-in for Redis
+@SpringBootTest(properties = "catalog-cache.store=memory")
 class SpotifyMockApplicationTests {
 
 	@Test
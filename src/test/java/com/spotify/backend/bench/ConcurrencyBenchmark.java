@@ -0,0 +1,146 @@
+package com.spotify.backend.bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop HTTP load generator for comparing the platform-thread and virtual-thread
+ * execution modes: N clients (one virtual thread and one connection each) send GETs
+ * back to back for a fixed duration, and throughput plus latency percentiles are printed.
+ *
+ * Not a unit test; run it against a live instance, once per mode:
+ *
+ *   java -jar target/SpotifyMock-0.0.1-SNAPSHOT.jar --spring.threads.virtual.enabled=false
+ *   java -jar target/SpotifyMock-0.0.1-SNAPSHOT.jar --spring.threads.virtual.enabled=true
+ *
+ *   java -cp target/test-classes com.spotify.backend.bench.ConcurrencyBenchmark \
+ *       http://localhost:8082/api/songs?size=20 5000 30 10 [bearer-token]
+ *
+ * Arguments: url, connections (default 5000), duration seconds (30), warm-up seconds (10),
+ * optional JWT. 5k connections need a file descriptor limit above 5k on both sides
+ * (ulimit -n); server.tomcat.max-connections defaults to 8192.
+ */
+public class ConcurrencyBenchmark {
+
+    // 100 µs buckets up to 30 s; slower responses land in the last bucket
+    private static final long BUCKET_MICROS = 100;
+    private static final int BUCKETS = 300_000;
+
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private volatile boolean recording;
+    private volatile boolean running = true;
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "http://localhost:8082/api/songs?size=20";
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        int durationSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int warmupSeconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        String token = args.length > 4 ? args[4] : null;
+
+        new ConcurrencyBenchmark().run(url, connections, durationSeconds, warmupSeconds, token);
+    }
+
+    private void run(String url, int connections, int durationSeconds, int warmupSeconds, String token)
+            throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(30))
+                .GET();
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        HttpRequest request = builder.build();
+
+        System.out.printf("Target %s, %d connections, %ds warm-up, %ds measured%n",
+                url, connections, warmupSeconds, durationSeconds);
+
+        CountDownLatch done = new CountDownLatch(connections);
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connections; i++) {
+                clients.submit(() -> {
+                    try {
+                        loop(client, request);
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+
+            Thread.sleep(warmupSeconds * 1000L);
+            recording = true;
+            long start = System.nanoTime();
+            Thread.sleep(durationSeconds * 1000L);
+            recording = false;
+            long elapsedNanos = System.nanoTime() - start;
+            running = false;
+
+            report(elapsedNanos);
+            done.await();
+        }
+    }
+
+    private void loop(HttpClient client, HttpRequest request) {
+        while (running) {
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                ok = response.statusCode() < 400;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                ok = false;
+            }
+            if (!recording) continue;
+
+            if (ok) {
+                long micros = (System.nanoTime() - start) / 1000;
+                histogram.incrementAndGet((int) Math.min(micros / BUCKET_MICROS, BUCKETS - 1));
+                completed.increment();
+            } else {
+                errors.increment();
+            }
+        }
+    }
+
+    private void report(long elapsedNanos) {
+        long total = completed.sum();
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("Requests: %d ok, %d failed in %.1fs%n", total, errors.sum(), seconds);
+        System.out.printf("Throughput: %.0f req/s%n", total / seconds);
+        if (total == 0) return;
+
+        for (String p : new String[]{"50", "90", "99", "99.9", "100"}) {
+            System.out.printf("%-6s %8.1f ms%n", p.equals("100") ? "max" : "p" + p,
+                    percentileMillis(total, Double.parseDouble(p)));
+        }
+    }
+
+    private double percentileMillis(long total, double percentile) {
+        long target = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram.get(i);
+            if (seen >= target) {
+                return (i + 1) * BUCKET_MICROS / 1000.0;
+            }
+        }
+        return BUCKETS * BUCKET_MICROS / 1000.0;
+    }
+}
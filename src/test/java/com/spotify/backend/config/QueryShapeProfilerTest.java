@@ -0,0 +1,80 @@
+package com.spotify.backend.config;
+
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryShapeProfilerTest {
+
+    @Test
+    void literalsBecomePlaceholders() {
+        assertEquals(doc("{genre: '?', playCount: {$gt: '?'}, deleted: '?'}"),
+                QueryShapeProfiler.normalize(doc("{genre: 'Pop', playCount: {$gt: 100}, deleted: false}")));
+        assertEquals(doc("{_id: '?'}"), QueryShapeProfiler.normalize(doc("{_id: {$oid: '65a1b2c3d4e5f60718293a4b'}}")));
+    }
+
+    @Test
+    void inListsCollapseWhateverTheirLength() {
+        BsonDocument one = QueryShapeProfiler.normalize(doc("{_id: {$in: ['a']}}")).asDocument();
+        BsonDocument many = QueryShapeProfiler.normalize(doc("{_id: {$in: ['a', 'b', 'c', 'd']}}")).asDocument();
+        BsonDocument none = QueryShapeProfiler.normalize(doc("{_id: {$in: []}}")).asDocument();
+
+        assertEquals(doc("{_id: {$in: ['?']}}"), one);
+        assertEquals(one, many);
+        assertEquals(one, none);
+    }
+
+    @Test
+    void nestedAndOrKeepTheirStructure() {
+        BsonDocument shape = QueryShapeProfiler.normalize(doc(
+                "{$or: [{genre: 'Pop'}, {$and: [{artist_id: {$in: ['a', 'b']}}, {duration: {$lte: 300}}]}]}")).asDocument();
+
+        assertEquals(doc("{$or: [{genre: '?'}, {$and: [{artist_id: {$in: ['?']}}, {duration: {$lte: '?'}}]}]}"), shape);
+        // Different values and list lengths, same shape
+        assertEquals(shape, QueryShapeProfiler.normalize(doc(
+                "{$or: [{genre: 'Rock'}, {$and: [{artist_id: {$in: ['x']}}, {duration: {$lte: 60}}]}]}")));
+        // A different operator is a different shape
+        assertNotEquals(shape, QueryShapeProfiler.normalize(doc(
+                "{$or: [{genre: 'Rock'}, {$and: [{artist_id: {$in: ['x']}}, {duration: {$gte: 60}}]}]}")));
+    }
+
+    @Test
+    void aggregateKeepsStructuralStagesAndNormalizesTheRest() {
+        BsonDocument shape = QueryShapeProfiler.shapeOf("aggregate", doc("""
+                {aggregate: 'songs', pipeline: [
+                    {$match: {genre: 'Pop', playCount: {$gte: 10}}},
+                    {$sort: {playCount: -1}},
+                    {$group: {_id: '$artist_id', plays: {$sum: '$playCount'}}},
+                    {$lookup: {from: 'artists', localField: '_id', foreignField: '_id', as: 'artist'}},
+                    {$unwind: '$artist'},
+                    {$project: {plays: 1, name: '$artist.name'}},
+                    {$skip: 20},
+                    {$limit: 10}
+                ], cursor: {}}"""));
+
+        assertEquals(doc("""
+                {pipeline: [
+                    {$match: {genre: '?', playCount: {$gte: '?'}}},
+                    {$sort: {playCount: -1}},
+                    {$group: {_id: '$artist_id', plays: {$sum: '$playCount'}}},
+                    {$lookup: {from: 'artists', localField: '_id', foreignField: '_id', as: 'artist'}},
+                    {$unwind: '$artist'},
+                    {$project: {plays: 1, name: '$artist.name'}},
+                    {$skip: '?'},
+                    {$limit: '?'}
+                ]}"""), shape);
+    }
+
+    @Test
+    void findKeepsSortAndProjectionAsWritten() {
+        BsonDocument shape = QueryShapeProfiler.shapeOf("find", doc(
+                "{find: 'songs', filter: {genre: 'Pop'}, sort: {playCount: -1}, projection: {title: 1}, limit: 10}"));
+
+        assertEquals(doc("{filter: {genre: '?'}, sort: {playCount: -1}, projection: {title: 1}}"), shape);
+    }
+
+    private static BsonDocument doc(String json) {
+        return BsonDocument.parse(json);
+    }
+}
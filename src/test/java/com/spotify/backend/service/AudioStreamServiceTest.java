@@ -0,0 +1,190 @@
+package com.spotify.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AudioStreamServiceTest {
+
+    private static final int LENGTH = 1000;
+
+    @TempDir
+    Path dir;
+
+    private final AudioStreamService service = new AudioStreamService();
+    private Path file;
+    private byte[] content;
+
+    @BeforeEach
+    void writeFile() throws Exception {
+        content = new byte[LENGTH];
+        for (int i = 0; i < LENGTH; i++) content[i] = (byte) ('a' + i % 26);
+        file = Files.write(dir.resolve("track.mp3"), content);
+    }
+
+    // ==================== resolve ====================
+
+    @Test
+    void resolveSortsAndMergesOverlappingAndAdjacentRanges() {
+        long[][] bounds = AudioStreamService.resolve(HttpRange.parseRanges("bytes=500-599,0-99,50-149,150-199"), LENGTH);
+
+        assertArrayEquals(new long[][]{{0, 199}, {500, 599}}, bounds);
+    }
+
+    @Test
+    void resolveClampsOpenAndSuffixRanges() {
+        assertArrayEquals(new long[][]{{900, 999}}, AudioStreamService.resolve(HttpRange.parseRanges("bytes=900-"), LENGTH));
+        assertArrayEquals(new long[][]{{900, 999}}, AudioStreamService.resolve(HttpRange.parseRanges("bytes=-100"), LENGTH));
+        assertArrayEquals(new long[][]{{0, 999}}, AudioStreamService.resolve(HttpRange.parseRanges("bytes=-5000"), LENGTH));
+        assertArrayEquals(new long[][]{{990, 999}}, AudioStreamService.resolve(HttpRange.parseRanges("bytes=990-5000"), LENGTH));
+    }
+
+    @Test
+    void resolveDropsRangesPastTheEndAndKeepsTheRest() {
+        long[][] bounds = AudioStreamService.resolve(HttpRange.parseRanges("bytes=2000-2100,0-9,1000-"), LENGTH);
+
+        assertArrayEquals(new long[][]{{0, 9}}, bounds);
+    }
+
+    @Test
+    void resolveRefusesWhenNoRangeIsSatisfiable() {
+        assertThrows(IllegalArgumentException.class,
+                () -> AudioStreamService.resolve(HttpRange.parseRanges("bytes=1000-,2000-2100"), LENGTH));
+        assertThrows(IllegalArgumentException.class,
+                () -> AudioStreamService.resolve(HttpRange.parseRanges("bytes=0-10"), 0));
+    }
+
+    @Test
+    void resolveRefusesRangesAddingUpToMoreThanTheFile() {
+        assertThrows(IllegalArgumentException.class,
+                () -> AudioStreamService.resolve(HttpRange.parseRanges("bytes=0-599,100-699"), LENGTH));
+        // A single range covering the whole file is fine
+        assertArrayEquals(new long[][]{{0, 999}}, AudioStreamService.resolve(HttpRange.parseRanges("bytes=0-"), LENGTH));
+    }
+
+    // ==================== stream ====================
+
+    @Test
+    void withoutRangeServesTheWholeFile() throws Exception {
+        MockHttpServletResponse response = stream(get());
+
+        assertEquals(200, response.getStatus());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    void singleRangeServesPartialContent() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-19");
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 10-19/" + LENGTH, response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, 10, 20), response.getContentAsByteArray());
+    }
+
+    @Test
+    void unsatisfiableRangeIsDroppedWhenAnotherCanBeServed() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=5000-5100,0-4");
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 0-4/" + LENGTH, response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, 0, 5), response.getContentAsByteArray());
+    }
+
+    @Test
+    void onlyUnsatisfiableRangesGive416() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=5000-5100");
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */" + LENGTH, response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void multipleRangesServeMultipartByteranges() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=900-909,0-4,3-9");
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="));
+        String body = response.getContentAsString(StandardCharsets.US_ASCII);
+        int first = body.indexOf("Content-Range: bytes 0-9/" + LENGTH);
+        int second = body.indexOf("Content-Range: bytes 900-909/" + LENGTH);
+        assertTrue(first >= 0 && second > first, body);
+        assertTrue(body.contains(new String(content, 0, 10, StandardCharsets.US_ASCII)));
+        assertTrue(body.contains(new String(content, 900, 10, StandardCharsets.US_ASCII)));
+        assertEquals(response.getContentAsByteArray().length, response.getContentLengthLong());
+    }
+
+    @Test
+    void malformedRangeServesTheWholeFile() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=abc");
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(LENGTH, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void ifRangeWithCurrentValidatorsServesTheRange() throws Exception {
+        String etag = stream(get()).getHeader(HttpHeaders.ETAG);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+
+        MockHttpServletRequest byEtag = get();
+        byEtag.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        byEtag.addHeader(HttpHeaders.IF_RANGE, etag);
+        assertEquals(206, stream(byEtag).getStatus());
+
+        MockHttpServletRequest byDate = get();
+        byDate.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        byDate.addHeader(HttpHeaders.IF_RANGE, httpDate(lastModified));
+        assertEquals(206, stream(byDate).getStatus());
+    }
+
+    @Test
+    void ifRangeWithStaleOrWeakValidatorServesTheWholeFile() throws Exception {
+        for (String ifRange : new String[]{"\"stale\"", "W/\"weak\"", httpDate(0)}) {
+            MockHttpServletRequest request = get();
+            request.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+            request.addHeader(HttpHeaders.IF_RANGE, ifRange);
+            MockHttpServletResponse response = stream(request);
+
+            assertEquals(200, response.getStatus(), ifRange);
+            assertEquals(LENGTH, response.getContentAsByteArray().length, ifRange);
+        }
+    }
+
+    private MockHttpServletResponse stream(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.stream(file, request, response);
+        return response;
+    }
+
+    private static MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/api/audio/track.mp3");
+    }
+
+    private static String httpDate(long millis) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setDate(HttpHeaders.IF_RANGE, millis);
+        return headers.getFirst(HttpHeaders.IF_RANGE);
+    }
+}
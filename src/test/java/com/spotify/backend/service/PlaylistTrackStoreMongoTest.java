@@ -0,0 +1,530 @@
+package com.spotify.backend.service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.spotify.backend.model.Playlist;
+import com.spotify.backend.model.PlaylistTrackBucket;
+import com.spotify.backend.model.PlaylistTrackBucket.Track;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.mongodb.MongoDBContainer;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PlaylistTrackStore against a real MongoDB (a container, so these are skipped where
+ * Docker isn't available). Buckets hold 4 tracks so small playlists already span several;
+ * every test ends by checking the invariants: each song once, bucket counts equal their
+ * arrays, no empty buckets and trackCount equal to the tracks in the buckets.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class PlaylistTrackStoreMongoTest {
+
+    private static final int BUCKET_SIZE = 4;
+    private static final int PREVIEW_SIZE = 6;
+    private static final int MAX_RANK_LENGTH = 6;
+    private static final int THREADS = 8;
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+
+    private MongoTemplate mongoTemplate;
+    private PlaylistTrackStore store;
+    private ExecutorService executor;
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(MONGO.getConnectionString());
+    }
+
+    @AfterAll
+    static void disconnect() {
+        client.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = new MongoTemplate(client, "tracks_" + UUID.randomUUID().toString().replace("-", ""));
+        // The unique (playlistId, seq) index is what makes concurrent bucket inserts collide
+        new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(PlaylistTrackBucket.class)
+                .forEach(index -> mongoTemplate.indexOps(PlaylistTrackBucket.class).createIndex(index));
+        store = new PlaylistTrackStore(mongoTemplate, BUCKET_SIZE, PREVIEW_SIZE, MAX_RANK_LENGTH);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        mongoTemplate.getDb().drop();
+    }
+
+    // ==================== APPEND ====================
+
+    @Test
+    void appendFillsBucketsInOrder() {
+        String playlistId = playlist();
+
+        assertEquals(songs("s", 10), store.append(playlistId, songs("s", 10)));
+
+        assertEquals(songs("s", 10), order(playlistId));
+        assertEquals(List.of(4, 4, 2), buckets(playlistId).stream().map(PlaylistTrackBucket::getCount).toList());
+        assertEquals(List.of(0, PlaylistTrackStore.SEQ_STEP, 2 * PlaylistTrackStore.SEQ_STEP),
+                buckets(playlistId).stream().map(PlaylistTrackBucket::getSeq).toList());
+        assertConsistent(playlistId);
+    }
+
+    @Test
+    void appendSkipsSongsAlreadyPresent() {
+        String playlistId = playlist();
+        store.append(playlistId, List.of("a", "b", "c"));
+
+        assertEquals(List.of("d"), store.append(playlistId, List.of("b", "d", "a", "d")));
+        assertEquals(List.of(), store.append(playlistId, List.of("c")));
+
+        assertEquals(List.of("a", "b", "c", "d"), order(playlistId));
+        assertConsistent(playlistId);
+    }
+
+    @Test
+    void concurrentAppendsOfTheSameSongsKeepOneCopyEach() throws Exception {
+        String playlistId = playlist();
+        store.append(playlistId, List.of("first"));
+        List<String> shared = songs("shared", 10);
+
+        List<List<String>> appended = concurrently(THREADS, i -> () -> retrying(() -> {
+            List<String> mine = new ArrayList<>(shared);
+            Collections.rotate(mine, i);
+            mine.add("own-" + i);
+            return store.append(playlistId, mine);
+        }));
+
+        // Every song was reported appended by exactly one of the racing appends
+        List<String> reported = appended.stream().flatMap(List::stream).sorted().toList();
+        List<String> expected = new ArrayList<>(shared);
+        IntStream.range(0, THREADS).forEach(i -> expected.add("own-" + i));
+        assertEquals(expected.stream().sorted().toList(), reported);
+
+        List<String> order = order(playlistId);
+        assertEquals("first", order.get(0));
+        assertEquals(new HashSet<>(expected), new HashSet<>(order.subList(1, order.size())));
+        assertConsistent(playlistId);
+    }
+
+    @Test
+    void concurrentAppendsOfDistinctSongsKeepEachCallersOrder() throws Exception {
+        String playlistId = playlist();
+
+        concurrently(THREADS, i -> () -> retrying(() -> store.append(playlistId, songs("t" + i + "-", 7))));
+
+        List<String> order = order(playlistId);
+        assertEquals(THREADS * 7, order.size());
+        for (int i = 0; i < THREADS; i++) {
+            String prefix = "t" + i + "-";
+            assertEquals(songs(prefix, 7), order.stream().filter(id -> id.startsWith(prefix)).toList());
+        }
+        assertConsistent(playlistId);
+    }
+
+    // ==================== REMOVE ====================
+
+    @Test
+    void removeRecountsAndDropsEmptiedBuckets() {
+        String playlistId = playlist();
+        store.append(playlistId, songs("s", 5));
+
+        assertTrue(store.remove(playlistId, "s4"));
+        assertFalse(store.remove(playlistId, "s4"));
+        assertTrue(store.remove(playlistId, "s1"));
+
+        assertEquals(List.of("s0", "s2", "s3"), order(playlistId));
+        assertEquals(1, buckets(playlistId).size());
+        assertEquals(3, trackCount(playlistId));
+        assertConsistent(playlistId);
+    }
+
+    @Test
+    void removeTakesEveryCopyAndCountsThemAll() {
+        String playlistId = playlist();
+        store.append(playlistId, songs("s", 6));
+        // A second, counted copy of s5 in another bucket
+        mongoTemplate.updateFirst(Query.query(Criteria.where("playlistId").is(playlistId).and("seq").is(0)),
+                new Update().push("tracks", new Track("s5", null, "zz")).inc("count", 1), PlaylistTrackBucket.class);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(playlistId)), new Update().inc("trackCount", 1),
+                Playlist.class);
+
+        assertTrue(store.remove(playlistId, "s5"));
+
+        assertEquals(songs("s", 5), order(playlistId));
+        assertEquals(5, trackCount(playlistId));
+        assertConsistent(playlistId);
+    }
+
+    @Test
+    void concurrentRemovesOfTheSameSongCountItOnce() throws Exception {
+        String playlistId = playlist();
+        store.append(playlistId, songs("s", 9));
+
+        List<Boolean> removed = concurrently(THREADS, i -> () -> retrying(() -> store.remove(playlistId, "s4")));
+
+        assertEquals(1, removed.stream().filter(Boolean::booleanValue).count());
+        assertEquals(8, trackCount(playlistId));
+        assertConsistent(playlistId);
+    }
+
+    // ==================== MOVE ====================
+
+    @Test
+    void moveWithinABucketOnlyChangesTheRank() {
+        String playlistId = playlist();
+        store.append(playlistId, songs("s", 4));
+        Map<String, Integer> seqs = seqsBySong(playlistId);
+
+        assertTrue(store.move(playlistId, "s3", "s0", true));
+        assertTrue(store.move(playlistId, "s1", "s0", false));
+
+        assertEquals(List.of("s1", "s0", "s3", "s2"), order(playlistId));
+        assertEquals(seqs, seqsBySong(playlistId));
+        assertConsistent(playlistId);
+    }
+
+    @Test
+    void moveAcrossBucketsPushesAndPullsOneTrack() {
+        String playlistId = playlist();
+        store.append(playlistId, songs("s", 8));
+
+        assertTrue(store.move(playlistId, "s6", "s1", true));
+
+        assertEquals(List.of("s0", "s1", "s6", "s2", "s3", "s4", "s5", "s7"), order(playlistId));
+        // The target may go over size until the background split
+        assertEquals(List.of(5, 3), buckets(playlistId).stream().map(PlaylistTrackBucket::getCount).toList());
+        assertEquals(8, trackCount(playlistId));
+        assertConsistent(playlistId);
+    }
+
+    @Test
+    void moveOfAMissingSongOrAnchorIsFalse() {
+        String playlistId = playlist();
+        store.append(playlistId, songs("s", 3));
+
+        assertFalse(store.move(playlistId, "nope", "s0", true));
+        assertFalse(store.move(playlistId, "s0", "nope", false));
+        assertTrue(store.move(playlistId, "s1", "s1", true));
+
+        assertEquals(songs("s", 3), order(playlistId));
+    }
+
+    @Test
+    void concurrentMovesKeepEveryTrackExactlyOnce() throws Exception {
+        String playlistId = playlist();
+        List<String> songs = songs("s", 16);
+        store.append(playlistId, songs);
+
+        concurrently(THREADS, i -> () -> {
+            Random random = new Random(i);
+            for (int n = 0; n < 25; n++) {
+                String song = songs.get(random.nextInt(songs.size()));
+                String anchor = songs.get(random.nextInt(songs.size()));
+                boolean after = random.nextBoolean();
+                retrying(() -> store.move(playlistId, song, anchor, after));
+            }
+            return null;
+        });
+
+        assertEquals(new HashSet<>(songs), new HashSet<>(order(playlistId)));
+        assertEquals(16, order(playlistId).size());
+        assertConsistent(playlistId);
+
+        rebalanceUntilSettled();
+        assertEquals(16, order(playlistId).size());
+        assertBucketsWithinSize(playlistId);
+        assertConsistent(playlistId);
+    }
+
+    @Test
+    void concurrentAppendsRemovesAndMovesKeepCountsAndMembership() throws Exception {
+        String playlistId = playlist();
+        List<String> initial = songs("s", 24);
+        store.append(playlistId, initial);
+
+        concurrently(THREADS, i -> () -> {
+            Random random = new Random(100 + i);
+            for (int n = 0; n < 6; n++) {
+                String added = "new-" + i + "-" + n;
+                retrying(() -> store.append(playlistId, List.of(added)));
+                // Thread i removes only its own songs, s{i}, s{i+8} and s{i+16}
+                if (n < 3) {
+                    String removed = initial.get(i + n * THREADS);
+                    retrying(() -> store.remove(playlistId, removed));
+                }
+                String song = initial.get(random.nextInt(initial.size()));
+                String anchor = initial.get(random.nextInt(initial.size()));
+                retrying(() -> store.move(playlistId, song, anchor, random.nextBoolean()));
+            }
+            return null;
+        });
+
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < THREADS; i++) {
+            for (int n = 0; n < 6; n++) expected.add("new-" + i + "-" + n);
+        }
+        List<String> order = order(playlistId);
+        assertEquals(expected, new HashSet<>(order));
+        assertEquals(expected.size(), order.size());
+        assertConsistent(playlistId);
+    }
+
+    // ==================== SPLITS AND REBALANCING ====================
+
+    @Test
+    void oversizeBucketsAreSplitIntoFreeSeqs() {
+        String playlistId = playlist();
+        store.append(playlistId, songs("s", 8));
+        // Pile the second bucket's tracks and more into the first one
+        for (String song : List.of("s4", "s5", "s6", "s7")) {
+            assertTrue(store.move(playlistId, song, "s0", true));
+        }
+        List<String> before = order(playlistId);
+        assertEquals(List.of(8), buckets(playlistId).stream().map(PlaylistTrackBucket::getCount).toList());
+
+        rebalanceUntilSettled();
+
+        assertEquals(before, order(playlistId));
+        assertBucketsWithinSize(playlistId);
+        List<Integer> seqs = buckets(playlistId).stream().map(PlaylistTrackBucket::getSeq).toList();
+        assertEquals(0, seqs.get(0));
+        assertTrue(seqs.get(seqs.size() - 1) <= PlaylistTrackStore.SEQ_STEP, seqs.toString());
+        assertConsistent(playlistId);
+    }
+
+    @Test
+    void splitChainsRespaceBucketsWithConsecutiveSeqs() {
+        // Buckets written before seqs were spaced: 0, 1, 2
+        String playlistId = playlist();
+        List<String> songs = songs("s", 12);
+        List<String> ranks = RankKeys.evenlySpaced(BUCKET_SIZE, BUCKET_SIZE);
+        for (int b = 0; b < 3; b++) {
+            List<Track> tracks = new ArrayList<>();
+            for (int j = 0; j < BUCKET_SIZE; j++) tracks.add(new Track(songs.get(b * BUCKET_SIZE + j), null, ranks.get(j)));
+            mongoTemplate.insert(new PlaylistTrackBucket(null, playlistId, b, BUCKET_SIZE, tracks));
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(playlistId)), new Update().set("trackCount", 12),
+                Playlist.class);
+        // Grow the first bucket past twice the size, with seq 1 still right after it: it has
+        // to respace before splitting, and its halves split again
+        for (String song : List.of("s11", "s10", "s9", "s8", "s5", "s4")) {
+            assertTrue(store.move(playlistId, song, "s0", true));
+        }
+        List<String> before = order(playlistId);
+        assertEquals(List.of("s0", "s4", "s5", "s8", "s9", "s10", "s11", "s1", "s2", "s3", "s6", "s7"), before);
+
+        rebalanceUntilSettled();
+
+        assertEquals(before, order(playlistId));
+        assertBucketsWithinSize(playlistId);
+        List<Integer> seqs = buckets(playlistId).stream().map(PlaylistTrackBucket::getSeq).toList();
+        assertEquals(5, seqs.size(), seqs.toString());
+        assertTrue(seqs.get(seqs.size() - 1) >= PlaylistTrackStore.SEQ_STEP, seqs.toString());
+        assertConsistent(playlistId);
+    }
+
+    @Test
+    void rebalancePendingRekeysLongRanks() {
+        String playlistId = playlist();
+        store.append(playlistId, songs("s", 4));
+        // Keep splitting the same gap: s3 and s2 alternate into the slot right after s0
+        for (int n = 0; n < 40; n++) {
+            assertTrue(store.move(playlistId, n % 2 == 0 ? "s3" : "s2", "s0", true));
+        }
+        List<String> before = order(playlistId);
+
+        rebalanceUntilSettled();
+
+        assertEquals(before, order(playlistId));
+        for (PlaylistTrackBucket bucket : buckets(playlistId)) {
+            for (Track track : bucket.getTracks()) {
+                assertTrue(track.getRank().length() <= MAX_RANK_LENGTH, track.getRank());
+            }
+        }
+        assertConsistent(playlistId);
+    }
+
+    // ==================== LEGACY PLAYLISTS AND REPAIRS ====================
+
+    @Test
+    void ensureBucketedIsIdempotentUnderConcurrency() throws Exception {
+        Playlist legacy = new Playlist("legacy", null, "user-1", true, null);
+        legacy.setSongIds(new ArrayList<>(songs("s", 10)));
+        String playlistId = mongoTemplate.insert(legacy).getId();
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(playlistId)), new Update().unset("trackCount"),
+                Playlist.class);
+
+        concurrently(THREADS, i -> () -> {
+            store.ensureBucketed(playlistId);
+            return null;
+        });
+        store.ensureBucketed(playlistId);
+
+        assertEquals(songs("s", 10), order(playlistId));
+        assertEquals(3, buckets(playlistId).size());
+        Document stored = mongoTemplate.findById(playlistId, Document.class, "playlists");
+        assertFalse(stored.containsKey("songIds"));
+        assertConsistent(playlistId);
+    }
+
+    @Test
+    void writesAreTurnedAwayWhileARepairHoldsTheLease() {
+        String playlistId = playlist();
+        store.append(playlistId, songs("s", 3));
+        AtomicBoolean ran = new AtomicBoolean();
+
+        assertTrue(store.underRepairLease(playlistId, () -> {
+            ran.set(true);
+            assertThrows(PlaylistTrackStore.BusyException.class, () -> store.append(playlistId, List.of("x")));
+            assertThrows(PlaylistTrackStore.BusyException.class, () -> store.remove(playlistId, "s0"));
+            assertFalse(store.underRepairLease(playlistId, () -> fail("second lease")));
+            // Drift the count; the lease sets it from the buckets afterwards
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(playlistId)), new Update().set("trackCount", 99),
+                    Playlist.class);
+        }));
+
+        assertTrue(ran.get());
+        assertEquals(3, trackCount(playlistId));
+        assertEquals(List.of("x"), store.append(playlistId, List.of("x")));
+        assertConsistent(playlistId);
+    }
+
+    // ==================== READS ====================
+
+    @Test
+    void previewsSpanBucketsAndContinueWithTheWindow() {
+        String playlistId = playlist();
+        store.append(playlistId, songs("s", 12));
+        // Shrink the first bucket so the preview needs the next ones
+        store.remove(playlistId, "s1");
+        store.remove(playlistId, "s2");
+        Playlist playlist = mongoTemplate.findById(playlistId, Playlist.class);
+
+        PlaylistTrackStore.TrackWindow preview = store.previews(List.of(playlist)).get(playlistId);
+
+        assertEquals(List.of("s0", "s3", "s4", "s5", "s6", "s7"), songIds(preview.tracks()));
+        assertNotNull(preview.nextCursor());
+        PlaylistTrackStore.TrackWindow rest = store.window(playlist, preview.nextCursor(), 100);
+        assertEquals(List.of("s8", "s9", "s10", "s11"), songIds(rest.tracks()));
+        assertNull(rest.nextCursor());
+    }
+
+    // ==================== HELPERS ====================
+
+    private String playlist() {
+        Playlist playlist = new Playlist("test", null, "user-1", true, null);
+        playlist.setTrackCount(0);
+        return mongoTemplate.insert(playlist).getId();
+    }
+
+    private List<PlaylistTrackBucket> buckets(String playlistId) {
+        return mongoTemplate.find(Query.query(Criteria.where("playlistId").is(playlistId)).with(Sort.by("seq")),
+                PlaylistTrackBucket.class);
+    }
+
+    private List<String> order(String playlistId) {
+        return songIds(store.allTracks(mongoTemplate.findById(playlistId, Playlist.class)));
+    }
+
+    private int trackCount(String playlistId) {
+        return mongoTemplate.findById(playlistId, Playlist.class).getTrackCount();
+    }
+
+    private Map<String, Integer> seqsBySong(String playlistId) {
+        Map<String, Integer> seqs = new HashMap<>();
+        buckets(playlistId).forEach(bucket -> bucket.getTracks().forEach(track -> seqs.put(track.getSongId(), bucket.getSeq())));
+        return seqs;
+    }
+
+    private void rebalanceUntilSettled() {
+        // A split may first have to respace, and its halves may need splitting again
+        for (int round = 0; round < 10; round++) {
+            store.rebalancePending();
+        }
+    }
+
+    private void assertBucketsWithinSize(String playlistId) {
+        for (PlaylistTrackBucket bucket : buckets(playlistId)) {
+            assertTrue(bucket.getCount() <= BUCKET_SIZE, "bucket " + bucket.getSeq() + " holds " + bucket.getCount());
+        }
+    }
+
+    private void assertConsistent(String playlistId) {
+        List<PlaylistTrackBucket> buckets = buckets(playlistId);
+        Set<String> seen = new HashSet<>();
+        int tracks = 0;
+        for (PlaylistTrackBucket bucket : buckets) {
+            assertFalse(bucket.getTracks().isEmpty(), "empty bucket " + bucket.getSeq());
+            assertEquals(bucket.getTracks().size(), bucket.getCount(), "count of bucket " + bucket.getSeq());
+            for (Track track : bucket.getTracks()) {
+                assertTrue(seen.add(track.getSongId()), "duplicate " + track.getSongId());
+            }
+            tracks += bucket.getCount();
+        }
+        assertEquals(tracks, trackCount(playlistId), "trackCount");
+    }
+
+    private static List<String> songs(String prefix, int n) {
+        return IntStream.range(0, n).mapToObj(i -> prefix + i).toList();
+    }
+
+    private static List<String> songIds(List<Track> tracks) {
+        return tracks.stream().map(Track::getSongId).toList();
+    }
+
+    // Runs n tasks at once (released together) and returns their results in task order
+    private <T> List<T> concurrently(int n, IntFunction<Callable<T>> task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Callable<T> callable = task.apply(i);
+            futures.add(executor.submit(() -> {
+                start.await();
+                return callable.call();
+            }));
+        }
+        start.countDown();
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            results.add(future.get(60, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    // What a client does with a 503: try again
+    private static <T> T retrying(Supplier<T> write) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return write.get();
+            } catch (PlaylistTrackStore.BusyException e) {
+                if (attempt == 20) throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.spotify.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaylistTrackStoreTest {
+
+    @Test
+    void cursorRoundTrips() {
+        for (PlaylistTrackStore.Position position : new PlaylistTrackStore.Position[]{
+                new PlaylistTrackStore.Position(0, null, 0),
+                new PlaylistTrackStore.Position(3, "V1", 0),
+                new PlaylistTrackStore.Position(7, null, 199)}) {
+            String cursor = PlaylistTrackStore.encode(position);
+            assertFalse(cursor.contains("=") || cursor.contains("+") || cursor.contains("/"), cursor);
+            assertEquals(position, PlaylistTrackStore.decode(cursor));
+        }
+    }
+
+    @Test
+    void emptyCursorIsTheStart() {
+        assertEquals(new PlaylistTrackStore.Position(0, null, 0), PlaylistTrackStore.decode(null));
+        assertEquals(new PlaylistTrackStore.Position(0, null, 0), PlaylistTrackStore.decode(""));
+    }
+
+    @Test
+    void invalidCursorsAreRejected() {
+        for (String json : new String[]{
+                "{\"v\": 2, \"s\": 0, \"i\": 0}",
+                "{\"s\": 0, \"i\": 0}",
+                "{\"v\": 1, \"s\": -1, \"i\": 0}",
+                "{\"v\": 1, \"s\": 0, \"i\": -1}",
+                "{\"v\": 1, \"s\": \"0\"}",
+                "{\"v\": 1, \"s\": 0, \"r\": 5}",
+                "not json"}) {
+            String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+            assertThrows(KeysetPaginator.InvalidCursorException.class, () -> PlaylistTrackStore.decode(cursor), json);
+        }
+        assertThrows(KeysetPaginator.InvalidCursorException.class, () -> PlaylistTrackStore.decode("%%%"));
+    }
+}
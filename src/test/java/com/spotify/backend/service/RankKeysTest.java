@@ -0,0 +1,101 @@
+package com.spotify.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankKeysTest {
+
+    private static final String DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    @Test
+    void betweenIsStrictlyBetweenAndNeverEndsInZero() {
+        List<String[]> pairs = new ArrayList<>(List.of(
+                new String[]{null, null}, new String[]{null, "1"}, new String[]{"z", null}, new String[]{"zz", null},
+                new String[]{"1", "2"}, new String[]{"y", "z"}, new String[]{"V", "V1"}, new String[]{"V", "W"},
+                new String[]{"01", "02"}, new String[]{"0001", "001"}, new String[]{"Vzzz", "W"}, new String[]{null, "01"}));
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            String a = randomKey(random);
+            String b = randomKey(random);
+            int order = a.compareTo(b);
+            if (order != 0) {
+                pairs.add(order < 0 ? new String[]{a, b} : new String[]{b, a});
+            }
+        }
+        for (String[] pair : pairs) {
+            assertBetween(pair[0], RankKeys.between(pair[0], pair[1]), pair[1]);
+        }
+    }
+
+    @Test
+    void repeatedInsertsIntoOneGapStayOrdered() {
+        String low = "V";
+        String high = "W";
+        for (int i = 0; i < 300; i++) {
+            String key = RankKeys.between(low, high);
+            assertBetween(low, key, high);
+            if (i % 2 == 0) high = key; else low = key;
+        }
+    }
+
+    @Test
+    void betweenRejectsKeysOutOfOrder() {
+        assertThrows(IllegalArgumentException.class, () -> RankKeys.between("W", "V"));
+        assertThrows(IllegalArgumentException.class, () -> RankKeys.between("V", "V"));
+    }
+
+    @Test
+    void afterIsMonotonic() {
+        for (String key : List.of("1", "y", "z", "zz", "zzzy", "z1", "Vzzz")) {
+            String next = RankKeys.after(key);
+            assertTrue(next.compareTo(key) > 0, key + " -> " + next);
+            assertNotEquals('0', next.charAt(next.length() - 1));
+        }
+        String key = RankKeys.after(null);
+        for (int i = 0; i < 2000; i++) {
+            String next = RankKeys.after(key);
+            assertTrue(next.compareTo(key) > 0, key + " -> " + next);
+            key = next;
+        }
+    }
+
+    @Test
+    void evenlySpacedIsStrictlyAscending() {
+        for (int slots : new int[]{1, 2, 61, 62, 63, 200, 3843, 3844, 5000}) {
+            for (int count : new int[]{0, 1, slots / 2, slots}) {
+                List<String> keys = RankKeys.evenlySpaced(count, slots);
+                assertEquals(count, keys.size());
+                for (int i = 0; i < keys.size(); i++) {
+                    String key = keys.get(i);
+                    assertNotEquals('0', key.charAt(key.length() - 1), key);
+                    if (i > 0) {
+                        assertTrue(key.compareTo(keys.get(i - 1)) > 0, keys.get(i - 1) + " >= " + key);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void assertBetween(String low, String key, String high) {
+        assertFalse(key.isEmpty());
+        assertNotEquals('0', key.charAt(key.length() - 1), key);
+        if (low != null) assertTrue(key.compareTo(low) > 0, low + " >= " + key);
+        if (high != null) assertTrue(key.compareTo(high) < 0, key + " >= " + high);
+    }
+
+    // A valid key: 1-6 digits, not ending in the zero digit
+    private static String randomKey(Random random) {
+        StringBuilder key = new StringBuilder();
+        int length = 1 + random.nextInt(6);
+        for (int i = 0; i < length - 1; i++) {
+            key.append(DIGITS.charAt(random.nextInt(DIGITS.length())));
+        }
+        key.append(DIGITS.charAt(1 + random.nextInt(DIGITS.length() - 1)));
+        return key.toString();
+    }
+}